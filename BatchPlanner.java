@@ -0,0 +1,374 @@
+package onTheRoad;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solves a batch of trip requests with one search per start vertex and
+ * metric instead of one per trip. Trips are grouped by getStart() and
+ * isDistance(); each group of several trips is answered by a single
+ * Dijkstra search that stops once all of the group's ends are settled, and
+ * the paths are extracted from its shortest path tree. A group of one trip
+ * is solved on its own, with A* if a heuristic is available. With a
+ * RouteCache, trips seen before are answered without a search, and with
+ * StrongComponents, trips whose end the components show to be unreachable
+ * are answered without one. Trips by time that leave at a given time are
+ * answered by time dependent search when the roads have speed profiles.
+ * <p>
+ * A long list of trips is solved in chunks of consecutive trips, see
+ * solveAll, so that answers are written while later trips are still being
+ * solved; only trips in the same chunk share a search.
+ * <p>
+ * The graphs are only read, so groups can be solved on several threads at once.
+ * Their weights may be changed meanwhile through LiveWeights: a group whose
+ * weights changed while it was solved is solved again with the changes
+ * held off, and the route cache is emptied whenever the weight version of
+ * the graphs is not the one it was filled under, so no answer mixes two
+ * versions of the weights. Every search is a query of QueryStats, when it
+ * is enabled.
+ */
+public class BatchPlanner implements WeightListener {
+	/**
+	 * Number of consecutive trips solveAll groups and holds the paths of at once
+	 */
+	public static final int CHUNK_SIZE = 16384;
+
+	// the graphs and their A* heuristics (null if there are none)
+	private CompactDigraph distanceGraph;
+	private CompactDigraph timeGraph;
+	private Heuristic distanceHeuristic;
+	private Heuristic timeHeuristic;
+
+	// routes found before, or null to search every time
+	private RouteCache cache;
+
+	// weightVersion() of the graphs the routes in the cache were found under
+	private volatile long cacheVersion;
+
+	// strong components of the graphs, or null to search for every trip
+	private StrongComponents components;
+
+	// the road network with speed profiles, or null if there are none
+	private TimeDependentGraph timeDependent;
+
+	/**
+	 * @param distanceGraph
+	 * 		graph weighted by distance
+	 * @param timeGraph
+	 * 		graph weighted by time
+	 * @param distanceHeuristic
+	 * 		A* heuristic for distanceGraph, or null
+	 * @param timeHeuristic
+	 * 		A* heuristic for timeGraph, or null
+	 */
+	public BatchPlanner(CompactDigraph distanceGraph, CompactDigraph timeGraph,
+			Heuristic distanceHeuristic, Heuristic timeHeuristic) {
+		this.distanceGraph = distanceGraph;
+		this.timeGraph = timeGraph;
+		this.distanceHeuristic = distanceHeuristic;
+		this.timeHeuristic = timeHeuristic;
+	}
+
+	/**
+	 * Answers trips from cache when it holds their route, and stores the
+	 * routes of the others in it
+	 * @param cache
+	 * 		route cache for the graphs of this planner, or null for none
+	 */
+	public void setRouteCache(RouteCache cache) {
+		this.cache = cache;
+		cacheVersion = weightVersion();
+	}
+
+	// changes whenever the weights of either graph change
+	private long weightVersion() {
+		return distanceGraph.weightVersion() + timeGraph.weightVersion();
+	}
+
+	/**
+	 * @return the route cache, or null if there is none
+	 */
+	public RouteCache getRouteCache() {
+		return cache;
+	}
+
+	/**
+	 * Drops the routes in the cache, which may no longer be shortest once
+	 * the weights of the graphs have changed
+	 */
+	public void weightsChanged(CompactDigraph g) {
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Answers trips whose end components rule out as unreachable without
+	 * searching, instead of letting a search explore all it can reach
+	 * @param components
+	 * 		strong components of the graphs of this planner, or null for none
+	 */
+	public void setComponents(StrongComponents components) {
+		this.components = components;
+	}
+
+	/**
+	 * Answers trips by time that have a departure time with time dependent
+	 * search, each on its own and without the route cache
+	 * @param timeDependent
+	 * 		the graphs of this planner with speed profiles, or null for none
+	 */
+	public void setTimeDependent(TimeDependentGraph timeDependent) {
+		this.timeDependent = timeDependent;
+	}
+
+	/**
+	 * @param trip
+	 * 		a trip request
+	 * @return whether trip is answered by time dependent search
+	 */
+	private boolean isTimeDependent(TripRequest trip) {
+		return timeDependent != null && !trip.isDistance() && trip.hasDeparture();
+	}
+
+	/**
+	 * Groups trips by start vertex and metric; a trip answered by time
+	 * dependent search is a group of its own
+	 * @param trips
+	 * 		trip requests
+	 * @return for each group, the indices in trips of its trips in increasing
+	 * 		order; groups are in the order of their first trip
+	 */
+	public List<int[]> groups(List<TripRequest> trips) {
+		Map<Long, List<Integer>> groups = new LinkedHashMap<Long, List<Integer>>();
+		for (int i = 0; i < trips.size(); i++) {
+			TripRequest trip = trips.get(i);
+			// keys of time dependent trips are negative and distinct
+			Long key = isTimeDependent(trip) ? -1L - i : 2L * trip.getStart() + (trip.isDistance() ? 1 : 0);
+			List<Integer> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(key, group);
+			}
+			group.add(i);
+		}
+		List<int[]> result = new ArrayList<int[]>(groups.size());
+		for (List<Integer> group : groups.values()) {
+			int[] indices = new int[group.size()];
+			for (int j = 0; j < indices.length; j++) {
+				indices[j] = group.get(j);
+			}
+			result.add(indices);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the shortest paths of one group of trips. Trips whose route is
+	 * in the cache are answered from it, and the routes found are added to it.
+	 * @param trips
+	 * 		trip requests
+	 * @param group
+	 * 		indices in trips of trips with the same start and metric
+	 * @param paths
+	 * 		paths.set(i, path) is called with the shortest path of each trip i
+	 * 		in the group, null if its end cannot be reached
+	 */
+	public void solveGroup(List<TripRequest> trips, int[] group, List<ArrayList<DirectedEdge>> paths) {
+		TripRequest first = trips.get(group[0]);
+		CompactDigraph g = isTimeDependent(first) ? timeDependent.getGraph()
+				: first.isDistance() ? distanceGraph : timeGraph;
+		// routes[j] = route found for trip group[j] to add to the cache, null for none
+		int[][] routes = new int[group.length][];
+
+		// solve without locking, and again with weight changes held off if
+		// some were made meanwhile (or are being made)
+		long stamp = g.optimisticRead();
+		long generation = stamp == 0 ? 0 : solveGroup(trips, group, g, paths, routes);
+		if (!g.validate(stamp)) {
+			stamp = g.readLock();
+			try {
+				generation = solveGroup(trips, group, g, paths, routes);
+			} finally {
+				g.unlockRead(stamp);
+			}
+		}
+		if (cache != null) {
+			for (int j = 0; j < group.length; j++) {
+				if (routes[j] != null) {
+					cache.put(first.getStart(), trips.get(group[j]).getEnd(), first.getMetric(), routes[j], generation);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the shortest paths of one group of trips on g, as solveGroup
+	 * does, without adding routes to the cache
+	 * @param routes
+	 * 		routes[j] is set to the edge ids of the route of trip group[j] to
+	 * 		add to the cache, or RouteCache.NO_PATH, if it was found by a search
+	 * @return the cache generation the routes must be stored under
+	 */
+	private long solveGroup(List<TripRequest> trips, int[] group, CompactDigraph g,
+			List<ArrayList<DirectedEdge>> paths, int[][] routes) {
+		TripRequest first = trips.get(group[0]);
+		if (isTimeDependent(first)) {
+			solveTimeDependent(first, group[0], paths);
+			return 0;
+		}
+		Metric metric = first.getMetric();
+		int start = first.getStart();
+		long generation = 0;
+		if (cache != null) {
+			long version = weightVersion();
+			if (version != cacheVersion) {
+				// the weights changed since the cached routes were found
+				synchronized (this) {
+					if (version != cacheVersion) {
+						cache.invalidateAll();
+						cacheVersion = version;
+					}
+				}
+			}
+			generation = cache.generation();
+		}
+
+		// answer what the components and the cache know; the rest need a search
+		int[] pending = new int[group.length];
+		int[] ends = new int[group.length];
+		int numPending = 0;
+		for (int j = 0; j < group.length; j++) {
+			int i = group[j];
+			int end = trips.get(i).getEnd();
+			routes[j] = null;
+			if (components != null && !components.mayReach(start, end)) {
+				paths.set(i, null);
+				continue;
+			}
+			int[] cached = cache == null ? null : cache.get(start, end, metric);
+			if (cached == null) {
+				pending[numPending] = j;
+				ends[numPending++] = end;
+			} else {
+				paths.set(i, cached == RouteCache.NO_PATH ? null : GraphAlgorithms.pathEdges(g, start, cached));
+			}
+		}
+		if (numPending == 0) {
+			return generation;
+		}
+
+		SearchContext ctx = SearchContext.forThread(g.V());
+		long begin = QueryStats.ENABLED ? System.nanoTime() : 0;
+		if (numPending == 1) {
+			Heuristic h = first.isDistance() ? distanceHeuristic : timeHeuristic;
+			if (h == null) {
+				GraphAlgorithms.dijkstra(g, start, ends[0], ctx);
+			} else {
+				GraphAlgorithms.aStar(g, start, ends[0], h, ctx);
+			}
+		} else {
+			// one search settles every end of the group
+			GraphAlgorithms.dijkstra(g, start, Arrays.copyOf(ends, numPending), ctx);
+		}
+		for (int j = 0; j < numPending; j++) {
+			int[] edgeIds = GraphAlgorithms.extractEdgeIds(g, ctx, ends[j]);
+			paths.set(group[pending[j]], edgeIds == null ? null : GraphAlgorithms.pathEdges(g, start, edgeIds));
+			routes[pending[j]] = edgeIds == null ? RouteCache.NO_PATH : edgeIds;
+			if (QueryStats.ENABLED && edgeIds != null) {
+				QueryStats.recordPath(edgeIds.length);
+			}
+		}
+		if (QueryStats.ENABLED) {
+			QueryStats.record(ctx, System.nanoTime() - begin);
+		}
+		return generation;
+	}
+
+	/**
+	 * Finds the fastest path of a trip with a departure time
+	 * @param trip
+	 * 		trip request by time with a departure time
+	 * @param i
+	 * 		index of trip
+	 * @param paths
+	 * 		paths.set(i, path) is called with the fastest path, null if the
+	 * 		end of trip cannot be reached
+	 */
+	private void solveTimeDependent(TripRequest trip, int i, List<ArrayList<DirectedEdge>> paths) {
+		int start = trip.getStart(), end = trip.getEnd();
+		if (components != null && !components.mayReach(start, end)) {
+			paths.set(i, null);
+			return;
+		}
+		CompactDigraph g = timeDependent.getGraph();
+		SearchContext ctx = SearchContext.forThread(g.V());
+		long begin = QueryStats.ENABLED ? System.nanoTime() : 0;
+		GraphAlgorithms.dijkstra(timeDependent, start, end, trip.getDeparture(), ctx);
+		int[] edgeIds = GraphAlgorithms.extractEdgeIds(g, ctx, end);
+		paths.set(i, edgeIds == null ? null
+				: GraphAlgorithms.pathEdges(timeDependent, start, edgeIds, trip.getDeparture()));
+		if (QueryStats.ENABLED) {
+			if (edgeIds != null) {
+				QueryStats.recordPath(edgeIds.length);
+			}
+			QueryStats.record(ctx, System.nanoTime() - begin);
+		}
+	}
+
+	/**
+	 * Finds the shortest paths of a chunk of trips; the paths of all of
+	 * them are held until the last is found, see solveAll
+	 * @param trips
+	 * 		trip requests
+	 * @return the shortest path of each trip, in the order of trips; null
+	 * 		for trips whose end cannot be reached
+	 */
+	public List<ArrayList<DirectedEdge>> solve(List<TripRequest> trips) {
+		List<ArrayList<DirectedEdge>> paths = emptyPaths(trips.size());
+		for (int[] group : groups(trips)) {
+			solveGroup(trips, group, paths);
+		}
+		return paths;
+	}
+
+	/**
+	 * Finds the shortest paths of all trips and hands them to sink in the
+	 * order of trips. Trips are solved in chunks of CHUNK_SIZE consecutive
+	 * trips, grouped within each chunk, and each chunk is written as soon as
+	 * it is solved, so only the paths of one chunk are held at a time.
+	 * @param trips
+	 * 		trip requests
+	 * @param sink
+	 * 		where to write the answers; flushed at the end
+	 * @throws IOException
+	 * 		if sink cannot be written
+	 */
+	public void solveAll(List<TripRequest> trips, ResultSink sink) throws IOException {
+		for (int from = 0; from < trips.size(); from += CHUNK_SIZE) {
+			List<TripRequest> chunk = trips.subList(from, Math.min(from + CHUNK_SIZE, trips.size()));
+			List<ArrayList<DirectedEdge>> paths = solve(chunk);
+			for (int j = 0; j < chunk.size(); j++) {
+				sink.result(from + j, chunk.get(j), paths.get(j));
+			}
+		}
+		sink.flush();
+	}
+
+	/**
+	 * @param n
+	 * 		number of trips
+	 * @return a list of n nulls, to be filled in by solveGroup
+	 */
+	public static List<ArrayList<DirectedEdge>> emptyPaths(int n) {
+		List<ArrayList<DirectedEdge>> paths = new ArrayList<ArrayList<DirectedEdge>>(n);
+		for (int i = 0; i < n; i++) {
+			paths.add(null);
+		}
+		return paths;
+	}
+}
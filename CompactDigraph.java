@@ -0,0 +1,645 @@
+/******************************************************************************
+ *  Dependencies: EdgeWeightedDigraph.java DirectedEdge.java
+ *  A digraph with fixed edges and updatable weights, in compressed sparse row form.
+ *
+ ******************************************************************************/
+package onTheRoad;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *  The {@code CompactDigraph} class represents an edge-weighted digraph
+ *  with a fixed set of edges of vertices named 0 through <em>V</em> - 1 that is stored in
+ *  <em>compressed sparse row</em> (CSR) form. The edges leaving vertex
+ *  {@code v} are the edge ids {@code firstEdge(v)} (inclusive) through
+ *  {@code endEdge(v)} (exclusive); for each edge id {@code e},
+ *  {@code target(e)} is its head and {@code weight(e)} is its weight.
+ *  <p>
+ *  Unlike {@link EdgeWeightedDigraph}, no per-edge objects are kept: the whole
+ *  graph is three primitive arrays, {@code int[] offsets}, {@code int[] targets}
+ *  and {@code double[] weights}. Iterating over the neighbours of a vertex
+ *  is a linear scan of two arrays and allocates nothing, which is what the
+ *  shortest path searches in {@link GraphAlgorithms} want in their inner loop.
+ *  The outgoing edges of each vertex are stored in the same order in which
+ *  {@link EdgeWeightedDigraph#adj(int)} returns them, so searches visit
+ *  neighbours in the same order on both representations.
+ *  <p>
+ *  An edge may have one weight per {@link Metric}, stored as parallel weight
+ *  columns next to a single copy of the topology. Each metric is seen through
+ *  a view, {@link #view(Metric)}, that is itself a {@code CompactDigraph}, so
+ *  every algorithm runs on any metric without knowing about the others.
+ *  <p>
+ *  The edges cannot change, but their weights can be updated in place with
+ *  {@link #setWeight(int, Metric, double)}, for example from a traffic feed.
+ *  Every change counts up {@link #weightVersion()}, by which structures
+ *  computed from the weights can tell that they are out of date. Changes
+ *  are made under a write lock shared by the digraph and its views; a
+ *  search that must not see weights of two versions can take the read
+ *  lock, or check afterwards that no change was made while it ran, as
+ *  {@link BatchPlanner} does.
+ *  <p>
+ *  The graph uses &Theta;(<em>E</em> + <em>V</em>) space and all instance
+ *  methods take &Theta;(1) time, except {@link #source(int)} which takes
+ *  &Theta;(log <em>V</em>) time.
+ */
+public class CompactDigraph {
+    private static final String NEWLINE = System.getProperty("line.separator");
+
+    private final int V;                // number of vertices in this digraph
+    private final int E;                // number of edges in this digraph
+    private final int[] offsets;        // edges of v are offsets[v] .. offsets[v+1]-1
+    private final int[] targets;        // targets[e] = head of edge e
+    private final double[] weights;     // weights[e] = weight of edge e, columns[column]
+    private final double[][] columns;   // columns[c][e] = weight of edge e under metric c
+    private final int column;           // which column this view uses as its weights
+    private final CompactDigraph root;  // the view of column 0, which holds the other views
+    private CompactDigraph[] views;     // views[c] = view of column c, kept by root only
+    private final int[] intWeights;     // intWeights[e] = weight of edge e as an integer, null unless quantized
+    private final int maxIntWeight;     // largest of intWeights
+    private final double scale;         // integer weight units per unit of the original weights
+    private volatile CompactDigraph reverse;    // this graph with every edge reversed, built on demand
+    private final StampedLock weightLock = new StampedLock();  // guards the weights and reverse, used on root only
+    private volatile long weightVersion;        // number of weight changes, kept by root only
+
+    /**
+     * Freezes the edge-weighted digraph {@code g} into compressed sparse row form.
+     *
+     * @param  g the edge-weighted digraph to copy
+     */
+    public CompactDigraph(EdgeWeightedDigraph g) {
+        this.V = g.V();
+        this.E = g.E();
+        this.offsets = new int[V + 1];
+        this.targets = new int[E];
+        this.weights = new double[E];
+        int e = 0;
+        for (int v = 0; v < V; v++) {
+            offsets[v] = e;
+            for (DirectedEdge edge : g.adj(v)) {
+                targets[e] = edge.to();
+                weights[e] = edge.weight();
+                e++;
+            }
+        }
+        offsets[V] = e;
+        this.columns = new double[][] { weights };
+        this.column = 0;
+        this.root = this;
+        this.intWeights = null;
+        this.maxIntWeight = 0;
+        this.scale = 1.0;
+    }
+
+    // wraps already built arrays; the caller must not modify them afterwards
+    CompactDigraph(int V, int[] offsets, int[] targets, double[] weights) {
+        this(V, offsets, targets, new double[][] { weights });
+    }
+
+    // wraps already built arrays with one weight column per metric
+    CompactDigraph(int V, int[] offsets, int[] targets, double[][] columns) {
+        this.V = V;
+        this.E = targets.length;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.columns = columns;
+        this.column = 0;
+        this.weights = columns[0];
+        this.root = this;
+        this.intWeights = null;
+        this.maxIntWeight = 0;
+        this.scale = 1.0;
+    }
+
+    // the view of another column of root
+    private CompactDigraph(CompactDigraph root, int column) {
+        this.V = root.V;
+        this.E = root.E;
+        this.offsets = root.offsets;
+        this.targets = root.targets;
+        this.columns = root.columns;
+        this.column = column;
+        this.weights = columns[column];
+        this.root = root;
+        this.intWeights = null;
+        this.maxIntWeight = 0;
+        this.scale = 1.0;
+    }
+
+    // a quantized copy sharing the topology of g
+    private CompactDigraph(CompactDigraph g, double[] weights, int[] intWeights, int maxIntWeight, double scale) {
+        this.V = g.V;
+        this.E = g.E;
+        this.offsets = g.offsets;
+        this.targets = g.targets;
+        this.weights = weights;
+        this.columns = new double[][] { weights };
+        this.column = 0;
+        this.root = this;
+        this.intWeights = intWeights;
+        this.maxIntWeight = maxIntWeight;
+        this.scale = scale;
+    }
+
+    /**
+     * Builds a compact digraph from parallel arrays of edge tails, heads and weights,
+     * using a counting sort on the tails. As with {@link EdgeWeightedDigraph#addEdge},
+     * edges added later come first in the adjacency of their tail.
+     *
+     * @param  V the number of vertices
+     * @param  tails tails[i] = tail of the i-th edge
+     * @param  heads heads[i] = head of the i-th edge
+     * @param  weight weight[i] = weight of the i-th edge
+     * @param  E the number of edges to read from the arrays
+     * @return the compact digraph with those edges
+     * @throws IllegalArgumentException if {@code V < 0} or an endpoint is not
+     *         between {@code 0} and {@code V-1}
+     */
+    public static CompactDigraph fromArrays(int V, int[] tails, int[] heads, double[] weight, int E) {
+        return fromArrays(V, tails, heads, new double[][] { weight }, E);
+    }
+
+    /**
+     * Builds a compact digraph with several weights per edge, one for each
+     * {@link Metric}, from parallel arrays of edge tails, heads and weights.
+     * The topology is stored once; {@link #view(Metric)} returns the digraph
+     * weighted by one metric. The digraph returned is the view of the first
+     * column.
+     *
+     * @param  V the number of vertices
+     * @param  tails tails[i] = tail of the i-th edge
+     * @param  heads heads[i] = head of the i-th edge
+     * @param  weights weights[c][i] = weight of the i-th edge under the metric
+     *         with ordinal {@code c}
+     * @param  E the number of edges to read from the arrays
+     * @return the compact digraph with those edges
+     * @throws IllegalArgumentException if {@code V < 0}, there are no weight
+     *         columns, or an endpoint is not between {@code 0} and {@code V-1}
+     */
+    public static CompactDigraph fromArrays(int V, int[] tails, int[] heads, double[][] weights, int E) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices in a Digraph must be nonnegative");
+        if (weights.length == 0) throw new IllegalArgumentException("at least one weight column is needed");
+        int[] offsets = new int[V + 1];
+        for (int i = 0; i < E; i++) {
+            validateVertex(tails[i], V);
+            validateVertex(heads[i], V);
+            offsets[tails[i] + 1]++;
+        }
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+
+        // fill every bucket from its end, so the last edge added is listed first
+        int[] fill = new int[V];
+        for (int v = 0; v < V; v++)
+            fill[v] = offsets[v + 1];
+        int[] targets = new int[E];
+        double[][] columns = new double[weights.length][E];
+        for (int i = 0; i < E; i++) {
+            int e = --fill[tails[i]];
+            targets[e] = heads[i];
+            for (int c = 0; c < weights.length; c++)
+                columns[c][e] = weights[c][i];
+        }
+        return new CompactDigraph(V, offsets, targets, columns);
+    }
+
+    /**
+     * Returns the number of vertices in this digraph.
+     *
+     * @return the number of vertices in this digraph
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Returns the number of edges in this digraph.
+     *
+     * @return the number of edges in this digraph
+     */
+    public int E() {
+        return E;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= v < V}
+    private static void validateVertex(int v, int V) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Returns the id of the first edge incident from vertex {@code v}.
+     *
+     * @param  v the vertex
+     * @return the id of the first edge incident from {@code v}
+     */
+    public int firstEdge(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Returns one past the id of the last edge incident from vertex {@code v}.
+     * The edges incident from {@code v} are {@code firstEdge(v)} through
+     * {@code endEdge(v) - 1}.
+     *
+     * @param  v the vertex
+     * @return one past the id of the last edge incident from {@code v}
+     */
+    public int endEdge(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Returns the head vertex of edge {@code e}.
+     *
+     * @param  e the edge id
+     * @return the head vertex of edge {@code e}
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /**
+     * Returns the weight of edge {@code e}.
+     *
+     * @param  e the edge id
+     * @return the weight of edge {@code e}
+     */
+    public double weight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * Returns the number of weights each edge has, one per metric.
+     *
+     * @return the number of weight columns
+     */
+    public int metrics() {
+        return columns.length;
+    }
+
+    /**
+     * Returns this digraph weighted by {@code metric}. The view shares the
+     * topology and all weight columns with this digraph, so it costs no
+     * memory; asking twice returns the same view.
+     *
+     * @param  metric the metric
+     * @return the digraph whose {@link #weight(int)} is the weight under {@code metric}
+     * @throws IllegalArgumentException if this digraph has no weights for {@code metric}
+     */
+    public CompactDigraph view(Metric metric) {
+        if (metric.ordinal() >= columns.length)
+            throw new IllegalArgumentException("digraph has no " + metric + " weights");
+        return root.viewOf(metric.ordinal());
+    }
+
+    // the view of column c, whichever view this is
+    CompactDigraph columnView(int c) {
+        return root.viewOf(c);
+    }
+
+    // the view of column c; only called on root
+    private synchronized CompactDigraph viewOf(int c) {
+        if (c == 0) return this;
+        if (views == null) views = new CompactDigraph[columns.length];
+        if (views[c] == null) views[c] = new CompactDigraph(this, c);
+        return views[c];
+    }
+
+    // the column this view uses, for building other graphs with the same columns
+    int column() {
+        return column;
+    }
+
+    // the arrays behind this digraph, for writing snapshots; not to be modified
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    double[][] columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the weight of edge {@code e} under {@code metric}.
+     *
+     * @param  e the edge id
+     * @param  metric the metric
+     * @return the weight of edge {@code e} under {@code metric}
+     * @throws IllegalArgumentException if this digraph has no weights for {@code metric}
+     */
+    public double weight(int e, Metric metric) {
+        if (metric.ordinal() >= columns.length)
+            throw new IllegalArgumentException("digraph has no " + metric + " weights");
+        return columns[metric.ordinal()][e];
+    }
+
+    // weight of edge e in column c
+    double weight(int e, int c) {
+        return columns[c][e];
+    }
+
+    /**
+     * Changes the weight of edge {@code e} under {@code metric}. Every view
+     * of this digraph sees the new weight; the reverse built so far is
+     * dropped and built again when next asked for. Quantized copies made
+     * before keep the old weight.
+     *
+     * @param  e the edge id
+     * @param  metric the metric
+     * @param  weight the new weight
+     * @throws IllegalArgumentException unless {@code 0 <= e < E}, if
+     *         {@code weight} is NaN, or if this digraph has no weights for {@code metric}
+     * @throws IllegalStateException if this digraph is quantized
+     */
+    public void setWeight(int e, Metric metric, double weight) {
+        if (intWeights != null) throw new IllegalStateException("weights of a quantized digraph cannot change");
+        if (Double.isNaN(weight)) throw new IllegalArgumentException("Weight is NaN");
+        if (metric.ordinal() >= columns.length)
+            throw new IllegalArgumentException("digraph has no " + metric + " weights");
+        double[][] weights = new double[columns.length][1];
+        for (int c = 0; c < columns.length; c++)
+            weights[c][0] = c == metric.ordinal() ? weight : Double.NaN;
+        setWeights(new int[] { e }, weights, 1);
+    }
+
+    /**
+     * Changes the weights of the first {@code n} edges of {@code edges} in
+     * a single change, under the write lock: a search holding the read lock
+     * sees all of the new weights or none of them.
+     *
+     * @param  edges edge ids
+     * @param  weights weights[c][i] = new weight of edge {@code edges[i]} in
+     *         column {@code c}, or NaN to keep the weight it has
+     * @param  n the number of edges to change
+     * @throws IllegalArgumentException unless every edge id is between
+     *         {@code 0} and {@code E-1}, or if there are not as many
+     *         weight rows as metrics
+     * @throws IllegalStateException if this digraph is quantized
+     */
+    void setWeights(int[] edges, double[][] weights, int n) {
+        if (intWeights != null) throw new IllegalStateException("weights of a quantized digraph cannot change");
+        if (weights.length != columns.length)
+            throw new IllegalArgumentException("need weights for all " + columns.length + " metrics");
+        for (int i = 0; i < n; i++)
+            if (edges[i] < 0 || edges[i] >= E)
+                throw new IllegalArgumentException("edge " + edges[i] + " is not between 0 and " + (E-1));
+        long stamp = root.weightLock.writeLock();
+        try {
+            for (int c = 0; c < columns.length; c++)
+                for (int i = 0; i < n; i++)
+                    if (!Double.isNaN(weights[c][i])) columns[c][edges[i]] = weights[c][i];
+            root.weightVersion++;
+            root.dropReverse();
+        }
+        finally {
+            root.weightLock.unlockWrite(stamp);
+        }
+    }
+
+    // forgets the reverse of root and of its views, whose weights are stale;
+    // called with the write lock held
+    private synchronized void dropReverse() {
+        reverse = null;
+        if (views != null)
+            for (CompactDigraph view : views)
+                if (view != null) view.reverse = null;
+    }
+
+    /**
+     * Returns the number of times the weights of this digraph and its views
+     * have been changed. A structure computed from the weights can keep the
+     * version it was computed for and compare it with this one to find out
+     * whether it is out of date.
+     *
+     * @return the weight version
+     */
+    public long weightVersion() {
+        return root.weightVersion;
+    }
+
+    // a stamp for reading the weights without the lock, 0 while they are
+    // being changed; see validate
+    long optimisticRead() {
+        return root.weightLock.tryOptimisticRead();
+    }
+
+    // were the weights unchanged since optimisticRead returned stamp?
+    boolean validate(long stamp) {
+        return stamp != 0 && root.weightLock.validate(stamp);
+    }
+
+    // holds off changes to the weights until unlockRead
+    long readLock() {
+        return root.weightLock.readLock();
+    }
+
+    void unlockRead(long stamp) {
+        root.weightLock.unlockRead(stamp);
+    }
+
+    /**
+     * Returns a copy of this digraph whose weights are integers: every weight
+     * is multiplied by {@code scale} and rounded to the nearest integer, as in
+     * {@code quantize(GraphAlgorithms.DECISECONDS_PER_HOUR)} for a time graph.
+     * The copy shares its topology arrays with this digraph, and its
+     * {@link #weight(int)} is the rounded weight, so every search works on it
+     * and finds distances in the scaled unit. Searches that use
+     * {@link QueueStrategy#DIAL} or {@link QueueStrategy#RADIX} need such a copy.
+     *
+     * @param  scale the integer weight units per unit of the weights of this digraph
+     * @return the quantized copy
+     * @throws IllegalArgumentException if {@code scale} is not positive, or a scaled
+     *         weight is negative or does not fit in an {@code int}
+     */
+    public CompactDigraph quantize(double scale) {
+        if (!(scale > 0)) throw new IllegalArgumentException("scale must be positive: " + scale);
+        return quantize(scale, scale);
+    }
+
+    // multiplies the weights by factor, and records that they are in units of 1/scale
+    private CompactDigraph quantize(double factor, double scale) {
+        double[] rounded = new double[E];
+        int[] ints = new int[E];
+        int max = 0;
+        for (int e = 0; e < E; e++) {
+            long w = Math.round(weights[e] * factor);
+            if (w < 0 || w > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("weight " + weights[e] + " of edge " + e + " cannot be quantized");
+            ints[e] = (int) w;
+            rounded[e] = w;
+            max = Math.max(max, ints[e]);
+        }
+        return new CompactDigraph(this, rounded, ints, max, scale);
+    }
+
+    /**
+     * Is this digraph a copy made by {@link #quantize(double)}?
+     *
+     * @return {@code true} if the weights of this digraph are integers
+     */
+    public boolean isQuantized() {
+        return intWeights != null;
+    }
+
+    /**
+     * Returns the integer weight of edge {@code e} of a quantized digraph.
+     *
+     * @param  e the edge id
+     * @return the weight of edge {@code e}
+     * @throws IllegalStateException if this digraph is not quantized
+     */
+    public int intWeight(int e) {
+        if (intWeights == null) throw new IllegalStateException("digraph is not quantized");
+        return intWeights[e];
+    }
+
+    /**
+     * Returns the largest integer weight of a quantized digraph.
+     *
+     * @return the largest edge weight, 0 if there are no edges
+     * @throws IllegalStateException if this digraph is not quantized
+     */
+    public int maxIntWeight() {
+        if (intWeights == null) throw new IllegalStateException("digraph is not quantized");
+        return maxIntWeight;
+    }
+
+    /**
+     * Returns the factor the weights were multiplied by when this digraph was
+     * quantized; distances found on it divided by the scale are in the
+     * original unit.
+     *
+     * @return the scale, 1 if this digraph is not quantized
+     */
+    public double scale() {
+        return scale;
+    }
+
+    /**
+     * Returns the tail vertex of edge {@code e}. The tail is not stored,
+     * so this searches the offsets array.
+     *
+     * @param  e the edge id
+     * @return the tail vertex of edge {@code e}
+     * @throws IllegalArgumentException unless {@code 0 <= e < E}
+     */
+    public int source(int e) {
+        if (e < 0 || e >= E)
+            throw new IllegalArgumentException("edge " + e + " is not between 0 and " + (E-1));
+        // find the last vertex v with offsets[v] <= e
+        int lo = 0, hi = V - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= e) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the number of directed edges incident from vertex {@code v}.
+     *
+     * @param  v the vertex
+     * @return the outdegree of vertex {@code v}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public int outdegree(int v) {
+        validateVertex(v, V);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Returns this digraph with every edge reversed. The reverse is built
+     * by {@link GraphAlgorithms#graphEdgeReversal(CompactDigraph)} the first
+     * time it is asked for and cached afterwards. The reverse of a view is
+     * the same view of the reverse, so the views share one reversed topology.
+     * It is built under the read lock, so it is never built from the
+     * weights of two versions, and a change of the weights drops it.
+     *
+     * @return the reverse of this digraph
+     */
+    public CompactDigraph reverse() {
+        CompactDigraph r = reverse;
+        if (r != null) return r;
+        long stamp = readLock();
+        try {
+            return reverseLocked();
+        }
+        finally {
+            unlockRead(stamp);
+        }
+    }
+
+    // the reverse, built if it is missing; called with the read lock of root held
+    private CompactDigraph reverseLocked() {
+        CompactDigraph r = reverse;
+        if (r == null) {
+            if (root != this) {
+                // views of one digraph share one reversed topology
+                r = root.reverseLocked().viewOf(column);
+            } else {
+                // two threads may both build it; either copy is equally good
+                r = GraphAlgorithms.graphEdgeReversal(this);
+                // the reversed weights are already integers
+                if (intWeights != null) r = r.quantize(1.0, scale);
+                r.reverse = this;
+            }
+            reverse = r;
+        }
+        return r;
+    }
+
+    /**
+     * Returns edge {@code e} as a {@link DirectedEdge}, for use with code
+     * that works on edge objects, such as printing a path.
+     *
+     * @param  v the tail vertex of the edge
+     * @param  e the edge id
+     * @return a new directed edge from {@code v} to {@code target(e)}
+     */
+    public DirectedEdge edge(int v, int e) {
+        return new DirectedEdge(v, targets[e], weights[e]);
+    }
+
+    /**
+     * Returns a string representation of this digraph, in the same format as
+     * {@link EdgeWeightedDigraph#toString()}.
+     *
+     * @return the number of vertices <em>V</em>, followed by the number of edges <em>E</em>,
+     *         followed by the <em>V</em> adjacency lists of edges
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(V + " " + E + NEWLINE);
+        for (int v = 0; v < V; v++) {
+            s.append(v + ": ");
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                s.append(edge(v, e) + "  ");
+            }
+            s.append(NEWLINE);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Unit tests the {@code CompactDigraph} data type.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(10);
+        G.addEdge(new DirectedEdge(0, 1, 1.5));
+        G.addEdge(new DirectedEdge(3, 4, 2.5));
+        G.addEdge(new DirectedEdge(1, 5, 5));
+        G.addEdge(new DirectedEdge(5, 1, 10));
+        G.addEdge(new DirectedEdge(0, 9, 1.5));
+        CompactDigraph C = new CompactDigraph(G);
+        System.out.println(C);
+        System.out.println("source of edge 1 = " + C.source(1));
+    }
+
+}
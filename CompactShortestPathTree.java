@@ -0,0 +1,82 @@
+/******************************************************************************
+ *  Dependencies: ShortestPathTree.java CompactDigraph.java SearchContext.java
+ *  The shortest paths from one vertex to all others in a compact graph,
+ *  with the ids of their edges.
+ *
+ ******************************************************************************/
+package onTheRoad;
+
+/**
+ *  The {@code CompactShortestPathTree} class is the {@link ShortestPathTree}
+ *  of a search of a {@link CompactDigraph}. Besides the distance and parent
+ *  of every vertex it holds the id of the last edge on its shortest path,
+ *  so paths can also be given as arrays of edge ids, as the route cache
+ *  stores them. Edge objects are only made when {@link #pathTo(int)} asks
+ *  for them.
+ */
+public class CompactShortestPathTree extends ShortestPathTree {
+    private final int[] edgeTo;         // edgeTo[v] = id of last edge on the path, -1 for s or none
+    private final CompactDigraph graph; // graph of the edge ids
+
+    /**
+     * Copies the tree a search of a compact graph left in {@code ctx}.
+     * Takes &Theta;(<em>V</em> + <em>E</em>) time.
+     *
+     * @param  g the compact graph that was searched
+     * @param  s the source of the search
+     * @param  ctx the state of a search from {@code s} that reached every
+     *         vertex it could
+     */
+    CompactShortestPathTree(CompactDigraph g, int s, SearchContext ctx) {
+        super(g.V(), s);
+        int V = g.V();
+        this.graph = g;
+        this.edgeTo = new int[V];
+        double[] distTo = distances();
+        int[] parent = parents();
+        for (int v = 0; v < V; v++) {
+            distTo[v] = ctx.getDist(v);
+            edgeTo[v] = ctx.getEdgeTo(v);
+            parent[v] = -1;
+        }
+        // the tails of the edges are not stored, so find them in one pass over the edges
+        for (int v = 0; v < V; v++) {
+            for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                int w = g.target(e);
+                if (edgeTo[w] == e) parent[w] = v;
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the edges of the shortest path from the source to
+     * {@code v}, in the graph that was searched.
+     *
+     * @param  v the vertex
+     * @return the edge ids of the path in order, or {@code null} if there is no path
+     */
+    public int[] edgePathTo(int v) {
+        int n = edgeCount(v);
+        if (n < 0) return null;
+        int[] parent = parents();
+        int[] path = new int[n];
+        for (int w = v, i = n - 1; i >= 0; w = parent[w], i--)
+            path[i] = edgeTo[w];
+        return path;
+    }
+
+    /**
+     * Returns the id of the last edge on the shortest path to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the edge id, or -1 if {@code v} is the source or cannot be reached
+     */
+    public int edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    @Override
+    DirectedEdge lastEdge(int v) {
+        return graph.edge(parents()[v], edgeTo[v]);
+    }
+}
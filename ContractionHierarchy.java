@@ -0,0 +1,703 @@
+package onTheRoad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Contraction Hierarchies: a preprocessed form of a road network that
+ * answers shortest path queries by exploring only a few hundred vertices,
+ * whatever the size of the graph.
+ * <p>
+ * Preprocessing contracts the vertices one at a time, cheapest first by
+ * edge difference (shortcuts added minus edges removed) plus the number of
+ * neighbours already contracted. Contracting v removes it from the graph
+ * and, for every pair of remaining neighbours u->v->w whose shortest
+ * connection runs through v, adds a shortcut arc u->w. A local "witness"
+ * search decides whether some other path is just as short, in which case no
+ * shortcut is needed.
+ * <p>
+ * A query is a bidirectional Dijkstra search that only follows arcs towards
+ * vertices contracted later: forward from the start and backward from the end.
+ * Every shortcut remembers the two arcs it replaces, so the path found is
+ * unpacked into the original edges of the graph.
+ * <p>
+ * The shortcuts depend on the weights. Once the weights of a CompactDigraph
+ * the hierarchy was built from change, as through LiveWeights, queries
+ * throw IllegalStateException; CustomizableContractionHierarchy takes in
+ * new weights without being built again.
+ */
+public class ContractionHierarchy {
+	// most vertices a witness search may settle before giving up and
+	// conservatively adding the shortcut
+	private static final int WITNESS_SETTLE_LIMIT = 100;
+
+	// number of vertices
+	private int V;
+
+	// the graph preprocessed, and its weight version the arcs are for
+	private CompactDigraph graph;
+	private long weightVersion;
+
+	// rank[v] = position of v in the contraction order
+	private int[] rank;
+
+	// all arcs, original edges and shortcuts; arc a goes from arcFrom[a] to
+	// arcTo[a] with weight arcWeight[a]. A shortcut replaces arcs arcFirst[a]
+	// then arcSecond[a]; both are -1 for an original edge.
+	private int numArcs;
+	private int numOriginal;
+	private int[] arcFrom;
+	private int[] arcTo;
+	private double[] arcWeight;
+	private int[] arcFirst;
+	private int[] arcSecond;
+
+	// upward search graphs: up holds the arcs leading to higher ranked vertices,
+	// down holds the arcs coming from higher ranked vertices, reversed.
+	// upArc[e] (downArc[e]) is the arc behind edge e of up (down).
+	private CompactDigraph up;
+	private CompactDigraph down;
+	private int[] upArc;
+	private int[] downArc;
+
+	// per-vertex lists of incident arc ids, only used during preprocessing
+	private int[][] outArcs;
+	private int[] outCount;
+	private int[][] inArcs;
+	private int[] inCount;
+	private boolean[] contracted;
+
+	/**
+	 * Preprocesses a graph built by FileParser.makeGraph
+	 * @param g
+	 * 		edge weighted directed graph
+	 */
+	public ContractionHierarchy(EdgeWeightedDigraph g) {
+		this(new CompactDigraph(g));
+	}
+
+	/**
+	 * Preprocesses a compact graph
+	 * @param g
+	 * 		compact edge weighted directed graph
+	 */
+	public ContractionHierarchy(CompactDigraph g) {
+		V = g.V();
+		graph = g;
+		weightVersion = g.weightVersion();
+		int capacity = Math.max(16, 2 * g.E());
+		arcFrom = new int[capacity];
+		arcTo = new int[capacity];
+		arcWeight = new double[capacity];
+		arcFirst = new int[capacity];
+		arcSecond = new int[capacity];
+		outArcs = new int[V][];
+		inArcs = new int[V][];
+		outCount = new int[V];
+		inCount = new int[V];
+		for (int v = 0; v < V; v++) {
+			outArcs[v] = new int[Math.max(2, g.outdegree(v))];
+			inArcs[v] = new int[2];
+		}
+		for (int v = 0; v < V; v++) {
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				if (g.target(e) != v) {
+					addArc(v, g.target(e), g.weight(e), -1, -1);
+				}
+			}
+		}
+		numOriginal = numArcs;
+
+		contract();
+		buildSearchGraphs();
+
+		// the preprocessing lists are no longer needed
+		outArcs = null;
+		inArcs = null;
+		outCount = null;
+		inCount = null;
+		contracted = null;
+	}
+
+	/**
+	 * @return number of vertices
+	 */
+	public int V() {
+		return V;
+	}
+
+	/**
+	 * @return number of shortcut arcs added by preprocessing
+	 */
+	public int shortcuts() {
+		return numArcs - numOriginal;
+	}
+
+	/**
+	 * @param v
+	 * 		a vertex
+	 * @return position of v in the contraction order
+	 */
+	public int rank(int v) {
+		return rank[v];
+	}
+
+	/**
+	 * Computes shortest path from start to end
+	 * @param start
+	 * 		starting node in search for shortest path
+	 * @param end
+	 * 		ending node in search for shortest path
+	 * @return a list of edges in that shortest path in correct order, or null
+	 * 		if end cannot be reached from start
+	 */
+	public ArrayList<DirectedEdge> getShortestPath(int start, int end) {
+		return getShortestPath(start, end,
+				SearchContext.forThread(V, SearchContext.FORWARD),
+				SearchContext.forThread(V, SearchContext.BACKWARD));
+	}
+
+	/**
+	 * Computes shortest path from start to end, keeping the state of the two
+	 * searches in fwd and bwd
+	 * @param start
+	 * 		starting node in search for shortest path
+	 * @param end
+	 * 		ending node in search for shortest path
+	 * @param fwd
+	 * 		search state for the forward search
+	 * @param bwd
+	 * 		search state for the backward search
+	 * @return a list of edges in that shortest path in correct order, or null
+	 * 		if end cannot be reached from start
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since preprocessing
+	 */
+	public ArrayList<DirectedEdge> getShortestPath(int start, int end, SearchContext fwd, SearchContext bwd) {
+		checkWeights();
+		int meet = search(start, end, fwd, bwd);
+		if (meet == -1) {
+			return null;
+		}
+		ArrayList<DirectedEdge> edges = new ArrayList<DirectedEdge>();
+
+		// arcs from start up to meet, collected backwards
+		int[] stack = new int[16];
+		int depth = 0;
+		for (int v = meet; fwd.getEdgeTo(v) != -1; v = arcFrom[upArc[fwd.getEdgeTo(v)]]) {
+			if (depth == stack.length) stack = Arrays.copyOf(stack, 2 * depth);
+			stack[depth++] = upArc[fwd.getEdgeTo(v)];
+		}
+		while (depth > 0) {
+			unpack(stack[--depth], edges);
+		}
+		// arcs from meet down to end
+		for (int v = meet; bwd.getEdgeTo(v) != -1; v = arcTo[downArc[bwd.getEdgeTo(v)]]) {
+			unpack(downArc[bwd.getEdgeTo(v)], edges);
+		}
+		return edges;
+	}
+
+	/**
+	 * Computes the length of the shortest path from start to end
+	 * @param start
+	 * 		starting node
+	 * @param end
+	 * 		ending node
+	 * @return length of the shortest path, positive infinity if there is none
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since preprocessing
+	 */
+	public double distance(int start, int end) {
+		checkWeights();
+		SearchContext fwd = SearchContext.forThread(V, SearchContext.FORWARD);
+		SearchContext bwd = SearchContext.forThread(V, SearchContext.BACKWARD);
+		int meet = search(start, end, fwd, bwd);
+		return meet == -1 ? Double.POSITIVE_INFINITY : fwd.getDist(meet) + bwd.getDist(meet);
+	}
+
+	/**
+	 * Computes the many-to-many matrix of shortest path lengths from every
+	 * source to every target with the bucket algorithm of Knopp et al.
+	 * @param sources
+	 * 		start vertices, one row each
+	 * @param targets
+	 * 		end vertices, one column each
+	 * @return matrix[i][j] = length of the shortest path from sources[i] to
+	 * 		targets[j], positive infinity if there is none
+	 */
+	public double[][] distanceMatrix(int[] sources, int[] targets) {
+		final double[][] matrix = new double[sources.length][];
+		distanceMatrix(sources, targets, new MatrixSink() {
+			public void row(int source, double[] distances) {
+				matrix[source] = distances.clone();
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * Computes the many-to-many matrix of shortest path lengths from every
+	 * source to every target and hands it to sink row by row.
+	 * <p>
+	 * One backward upward search per target leaves, at every vertex v it
+	 * settles, an entry (target, distance from v to target) in v's bucket.
+	 * Then one forward upward search per source combines its distance to
+	 * each settled vertex with that vertex's bucket entries. Every shortest
+	 * path peaks at a vertex both searches settle, so the smallest sum is
+	 * the distance. The work is |sources| + |targets| upward searches plus
+	 * the bucket scans, instead of a search per pair, and only the buckets,
+	 * not the matrix, are held in memory.
+	 * @param sources
+	 * 		start vertices, one row each
+	 * @param targets
+	 * 		end vertices, one column each
+	 * @param sink
+	 * 		receives the rows, in the order of sources
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since preprocessing
+	 */
+	public void distanceMatrix(int[] sources, int[] targets, MatrixSink sink) {
+		checkWeights();
+		SearchContext ctx = SearchContext.forThread(V);
+
+		// bucket entries in the order the backward searches make them
+		int numEntries = 0;
+		int[] entryVertex = new int[Math.max(16, targets.length)];
+		int[] entryTarget = new int[entryVertex.length];
+		double[] entryDist = new double[entryVertex.length];
+		for (int j = 0; j < targets.length; j++) {
+			upwardSearch(down, targets[j], ctx);
+			DoubleIndexMinPQ pq = ctx.priorityQueue();
+			while (!pq.isEmpty()) {
+				int v = pq.delMin();
+				if (numEntries == entryVertex.length) {
+					entryVertex = Arrays.copyOf(entryVertex, 2 * numEntries);
+					entryTarget = Arrays.copyOf(entryTarget, 2 * numEntries);
+					entryDist = Arrays.copyOf(entryDist, 2 * numEntries);
+				}
+				entryVertex[numEntries] = v;
+				entryTarget[numEntries] = j;
+				entryDist[numEntries++] = ctx.getDist(v);
+				for (int e = down.firstEdge(v); e < down.endEdge(v); e++) {
+					GraphAlgorithms.relax(down, v, e, ctx);
+				}
+			}
+		}
+
+		// group the entries by vertex: bucket v is bucketStart[v] .. bucketStart[v+1]-1
+		int[] bucketStart = new int[V + 1];
+		for (int k = 0; k < numEntries; k++) {
+			bucketStart[entryVertex[k] + 1]++;
+		}
+		for (int v = 0; v < V; v++) {
+			bucketStart[v + 1] += bucketStart[v];
+		}
+		int[] fill = Arrays.copyOf(bucketStart, V);
+		int[] bucketTarget = new int[numEntries];
+		double[] bucketDist = new double[numEntries];
+		for (int k = 0; k < numEntries; k++) {
+			int slot = fill[entryVertex[k]]++;
+			bucketTarget[slot] = entryTarget[k];
+			bucketDist[slot] = entryDist[k];
+		}
+		entryVertex = null;
+		entryTarget = null;
+		entryDist = null;
+
+		double[] row = new double[targets.length];
+		for (int i = 0; i < sources.length; i++) {
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+			upwardSearch(up, sources[i], ctx);
+			DoubleIndexMinPQ pq = ctx.priorityQueue();
+			while (!pq.isEmpty()) {
+				int v = pq.delMin();
+				double dist = ctx.getDist(v);
+				for (int k = bucketStart[v]; k < bucketStart[v + 1]; k++) {
+					if (dist + bucketDist[k] < row[bucketTarget[k]]) {
+						row[bucketTarget[k]] = dist + bucketDist[k];
+					}
+				}
+				for (int e = up.firstEdge(v); e < up.endEdge(v); e++) {
+					GraphAlgorithms.relax(up, v, e, ctx);
+				}
+			}
+			sink.row(i, row);
+		}
+	}
+
+	/**
+	 * Throws IllegalStateException if the weights of the graph changed since preprocessing
+	 */
+	private void checkWeights() {
+		if (graph.weightVersion() != weightVersion) {
+			throw new IllegalStateException("weights of the graph changed since the hierarchy was built");
+		}
+	}
+
+	/**
+	 * Starts a search of side (up or down) from s: clears ctx and puts s on
+	 * its queue, for the caller to run to completion
+	 */
+	private static void upwardSearch(CompactDigraph side, int s, SearchContext ctx) {
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+		ctx.priorityQueue().insert(s, 0.0);
+	}
+
+	/**
+	 * Upward bidirectional search from start and end.
+	 * @return the vertex where the shortest path peaks, -1 if there is no path
+	 */
+	private int search(int start, int end, SearchContext fwd, SearchContext bwd) {
+		return search(up, down, start, end, fwd, bwd);
+	}
+
+	/**
+	 * Bidirectional search from start over up and from end over down, each
+	 * stopping once it cannot improve the shortest path found; also used by
+	 * CustomizableContractionHierarchy
+	 * @return the vertex where the shortest path peaks, -1 if there is no path
+	 */
+	static int search(CompactDigraph up, CompactDigraph down, int start, int end,
+			SearchContext fwd, SearchContext bwd) {
+		fwd.clear();
+		bwd.clear();
+		fwd.setDist(start, 0.0, -1);
+		bwd.setDist(end, 0.0, -1);
+		DoubleIndexMinPQ fwdPQ = fwd.priorityQueue();
+		DoubleIndexMinPQ bwdPQ = bwd.priorityQueue();
+		fwdPQ.insert(start, 0.0);
+		bwdPQ.insert(end, 0.0);
+
+		double best = start == end ? 0.0 : Double.POSITIVE_INFINITY;
+		int meet = start == end ? start : -1;
+
+		boolean forward = true;
+		while (true) {
+			// each side stops once it cannot find anything shorter than best
+			boolean fwdDone = fwdPQ.isEmpty() || fwdPQ.minKey() >= best;
+			boolean bwdDone = bwdPQ.isEmpty() || bwdPQ.minKey() >= best;
+			if (fwdDone && bwdDone) {
+				break;
+			}
+			if (forward ? fwdDone : bwdDone) {
+				forward = !forward;
+			}
+			CompactDigraph side = forward ? up : down;
+			SearchContext ctx = forward ? fwd : bwd;
+			SearchContext other = forward ? bwd : fwd;
+
+			int v = ctx.priorityQueue().delMin();
+			ctx.mark(v);
+			for (int e = side.firstEdge(v); e < side.endEdge(v); e++) {
+				GraphAlgorithms.relax(side, v, e, ctx);
+				int w = side.target(e);
+				if (other.isReached(w)) {
+					double length = ctx.getDist(w) + other.getDist(w);
+					if (length < best) {
+						best = length;
+						meet = w;
+					}
+				}
+			}
+			forward = !forward;
+		}
+		return meet;
+	}
+
+	/**
+	 * Appends the original edges behind arc a to edges, in path order
+	 */
+	private void unpack(int a, ArrayList<DirectedEdge> edges) {
+		int[] stack = new int[16];
+		int depth = 0;
+		stack[depth++] = a;
+		while (depth > 0) {
+			int arc = stack[--depth];
+			if (arcFirst[arc] == -1) {
+				edges.add(new DirectedEdge(arcFrom[arc], arcTo[arc], arcWeight[arc]));
+			} else {
+				if (depth + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+				// second half below first half, so the first half is unpacked first
+				stack[depth++] = arcSecond[arc];
+				stack[depth++] = arcFirst[arc];
+			}
+		}
+	}
+
+	/**
+	 * Contracts all vertices, cheapest first
+	 */
+	private void contract() {
+		rank = new int[V];
+		contracted = new boolean[V];
+		int[] deletedNeighbors = new int[V];
+		SearchContext witness = new SearchContext(V);
+
+		// scratch space for the neighbours of the vertex being contracted
+		Neighbors nbrs = new Neighbors(V);
+		int[] touched = new int[16];
+
+		DoubleIndexMinPQ order = new DoubleIndexMinPQ(V);
+		for (int v = 0; v < V; v++) {
+			order.insert(v, priority(v, deletedNeighbors, witness, nbrs));
+		}
+
+		int next = 0;
+		while (!order.isEmpty()) {
+			int v = order.delMin();
+			// priorities of waiting vertices may be stale; re-check lazily
+			int p = priority(v, deletedNeighbors, witness, nbrs);
+			if (!order.isEmpty() && p > order.minKey()) {
+				order.insert(v, p);
+				continue;
+			}
+
+			contractVertex(v, witness, nbrs, true);
+			contracted[v] = true;
+			rank[v] = next++;
+
+			// the neighbours lost a neighbour and may have gained shortcuts;
+			// copy them out first, since computing a priority reuses nbrs
+			nbrs.gather(v);
+			int numTouched = 0;
+			if (touched.length < nbrs.inSize + nbrs.outSize) {
+				touched = new int[2 * (nbrs.inSize + nbrs.outSize)];
+			}
+			for (int i = 0; i < nbrs.inSize; i++) {
+				touched[numTouched++] = arcFrom[nbrs.in[i]];
+			}
+			for (int i = 0; i < nbrs.outSize; i++) {
+				touched[numTouched++] = arcTo[nbrs.out[i]];
+			}
+			for (int i = 0; i < numTouched; i++) {
+				deletedNeighbors[touched[i]]++;
+			}
+			for (int i = 0; i < numTouched; i++) {
+				int u = touched[i];
+				if (order.contains(u)) {
+					order.changeKey(u, priority(u, deletedNeighbors, witness, nbrs));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Edge difference of contracting v plus its number of contracted neighbours
+	 */
+	private int priority(int v, int[] deletedNeighbors, SearchContext witness, Neighbors nbrs) {
+		int shortcuts = contractVertex(v, witness, nbrs, false);
+		return shortcuts - nbrs.inSize - nbrs.outSize + deletedNeighbors[v];
+	}
+
+	/**
+	 * Finds the shortcuts needed to contract v, and adds them if add is true.
+	 * Leaves the remaining neighbours of v in nbrs.
+	 * @return number of shortcuts needed
+	 */
+	private int contractVertex(int v, SearchContext witness, Neighbors nbrs, boolean add) {
+		nbrs.gather(v);
+		int shortcuts = 0;
+		double maxOut = 0;
+		for (int j = 0; j < nbrs.outSize; j++) {
+			maxOut = Math.max(maxOut, arcWeight[nbrs.out[j]]);
+		}
+		for (int i = 0; i < nbrs.inSize; i++) {
+			int inArc = nbrs.in[i];
+			int u = arcFrom[inArc];
+			witnessSearch(u, v, arcWeight[inArc] + maxOut, witness);
+			for (int j = 0; j < nbrs.outSize; j++) {
+				int outArc = nbrs.out[j];
+				int w = arcTo[outArc];
+				if (w == u) {
+					continue;
+				}
+				double viaV = arcWeight[inArc] + arcWeight[outArc];
+				if (witness.getDist(w) <= viaV) {
+					continue;
+				}
+				shortcuts++;
+				if (add) {
+					addArc(u, w, viaV, inArc, outArc);
+				}
+			}
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Dijkstra from u over the uncontracted graph without v, up to distance
+	 * maxDist or WITNESS_SETTLE_LIMIT settled vertices
+	 */
+	private void witnessSearch(int u, int v, double maxDist, SearchContext ctx) {
+		ctx.clear();
+		ctx.setDist(u, 0.0, -1);
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(u, 0.0);
+		int settled = 0;
+		while (!pq.isEmpty() && pq.minKey() <= maxDist && settled < WITNESS_SETTLE_LIMIT) {
+			int x = pq.delMin();
+			settled++;
+			for (int i = 0; i < outCount[x]; i++) {
+				int a = outArcs[x][i];
+				int y = arcTo[a];
+				if (contracted[y] || y == v) {
+					continue;
+				}
+				double newDist = ctx.getDist(x) + arcWeight[a];
+				if (ctx.getDist(y) > newDist) {
+					ctx.setDist(y, newDist, a);
+					if (pq.contains(y)) {
+						pq.decreaseKey(y, newDist);
+					} else {
+						pq.insert(y, newDist);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds arc from -> to and returns its id
+	 */
+	private int addArc(int from, int to, double weight, int first, int second) {
+		if (numArcs == arcFrom.length) {
+			int capacity = 2 * numArcs;
+			arcFrom = Arrays.copyOf(arcFrom, capacity);
+			arcTo = Arrays.copyOf(arcTo, capacity);
+			arcWeight = Arrays.copyOf(arcWeight, capacity);
+			arcFirst = Arrays.copyOf(arcFirst, capacity);
+			arcSecond = Arrays.copyOf(arcSecond, capacity);
+		}
+		int a = numArcs++;
+		arcFrom[a] = from;
+		arcTo[a] = to;
+		arcWeight[a] = weight;
+		arcFirst[a] = first;
+		arcSecond[a] = second;
+
+		if (outCount[from] == outArcs[from].length) {
+			outArcs[from] = Arrays.copyOf(outArcs[from], 2 * outCount[from]);
+		}
+		outArcs[from][outCount[from]++] = a;
+		if (inCount[to] == inArcs[to].length) {
+			inArcs[to] = Arrays.copyOf(inArcs[to], 2 * inCount[to]);
+		}
+		inArcs[to][inCount[to]++] = a;
+		return a;
+	}
+
+	/**
+	 * Splits the arcs by the direction of their ranks into the two upward
+	 * search graphs
+	 */
+	private void buildSearchGraphs() {
+		int[] upTails = new int[numArcs];
+		int[] upHeads = new int[numArcs];
+		double[] upWeights = new double[numArcs];
+		int[] upIds = new int[numArcs];
+		int[] downTails = new int[numArcs];
+		int[] downHeads = new int[numArcs];
+		double[] downWeights = new double[numArcs];
+		int[] downIds = new int[numArcs];
+		int numUp = 0, numDown = 0;
+		for (int a = 0; a < numArcs; a++) {
+			int from = arcFrom[a], to = arcTo[a];
+			if (rank[from] < rank[to]) {
+				upTails[numUp] = from;
+				upHeads[numUp] = to;
+				upWeights[numUp] = arcWeight[a];
+				upIds[numUp++] = a;
+			} else {
+				downTails[numDown] = to;
+				downHeads[numDown] = from;
+				downWeights[numDown] = arcWeight[a];
+				downIds[numDown++] = a;
+			}
+		}
+		up = CompactDigraph.fromArrays(V, upTails, upHeads, upWeights, numUp);
+		down = CompactDigraph.fromArrays(V, downTails, downHeads, downWeights, numDown);
+		upArc = arcIds(up, upTails, upIds, numUp);
+		downArc = arcIds(down, downTails, downIds, numDown);
+	}
+
+	/**
+	 * Maps the edge ids of g, built by fromArrays from the given tails, back to arc ids
+	 */
+	private int[] arcIds(CompactDigraph g, int[] tails, int[] ids, int n) {
+		// fromArrays fills every vertex's edges from the back, in input order
+		int[] fill = new int[V];
+		for (int v = 0; v < V; v++) {
+			fill[v] = g.endEdge(v);
+		}
+		int[] arcs = new int[n];
+		for (int i = 0; i < n; i++) {
+			arcs[--fill[tails[i]]] = ids[i];
+		}
+		return arcs;
+	}
+
+	/**
+	 * The arcs between a vertex and its uncontracted neighbours, keeping only
+	 * the lightest arc to or from each neighbour
+	 */
+	private class Neighbors {
+		int[] in = new int[16];
+		int[] out = new int[16];
+		int inSize, outSize;
+		// best[x] = position in in (or out) of the arc kept for neighbour x
+		private int[] best;
+		private int[] stamp;
+		private int generation;
+
+		Neighbors(int V) {
+			best = new int[V];
+			stamp = new int[V];
+		}
+
+		void gather(int v) {
+			inSize = 0;
+			generation++;
+			// arcs to contracted vertices are dropped from the lists for good
+			int kept = 0;
+			for (int i = 0; i < inCount[v]; i++) {
+				int a = inArcs[v][i];
+				int u = arcFrom[a];
+				if (contracted[u]) {
+					continue;
+				}
+				inArcs[v][kept++] = a;
+				if (stamp[u] == generation) {
+					if (arcWeight[a] < arcWeight[in[best[u]]]) in[best[u]] = a;
+					continue;
+				}
+				if (inSize == in.length) in = Arrays.copyOf(in, 2 * inSize);
+				stamp[u] = generation;
+				best[u] = inSize;
+				in[inSize++] = a;
+			}
+			inCount[v] = kept;
+			outSize = 0;
+			generation++;
+			kept = 0;
+			for (int i = 0; i < outCount[v]; i++) {
+				int a = outArcs[v][i];
+				int w = arcTo[a];
+				if (contracted[w]) {
+					continue;
+				}
+				outArcs[v][kept++] = a;
+				if (stamp[w] == generation) {
+					if (arcWeight[a] < arcWeight[out[best[w]]]) out[best[w]] = a;
+					continue;
+				}
+				if (outSize == out.length) out = Arrays.copyOf(out, 2 * outSize);
+				stamp[w] = generation;
+				best[w] = outSize;
+				out[outSize++] = a;
+			}
+			outCount[v] = kept;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package onTheRoad;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the locations of a road network, read from the optional
+ * coordinate columns of the location lines of the input file. Positions
+ * are either planar x/y pairs, measured in the same unit as segment
+ * distances, or geographic latitude/longitude pairs in degrees, whose
+ * straight-line distance is the great-circle distance in miles.
+ */
+public class Coordinates {
+	// mean radius of the earth, in miles
+	private static final double EARTH_RADIUS = 3958.8;
+
+	// whether positions are latitude/longitude (true) or planar x/y (false)
+	private boolean geographic;
+
+	// x[v], y[v] = position of vertex v (latitude and longitude in radians
+	// when geographic); NaN when v has no position
+	private double[] x;
+	private double[] y;
+
+	/**
+	 * Creates a set of positions in which no vertex has a position yet
+	 * @param V
+	 * 		number of vertices
+	 * @param geographic
+	 * 		whether positions are latitude/longitude in degrees rather than planar x/y
+	 */
+	public Coordinates(int V, boolean geographic) {
+		this.geographic = geographic;
+		x = new double[V];
+		y = new double[V];
+		Arrays.fill(x, Double.NaN);
+		Arrays.fill(y, Double.NaN);
+	}
+
+	/**
+	 * Positions as stored, for reading snapshots
+	 * @param geographic
+	 * 		whether positions are latitude/longitude
+	 * @param x
+	 * 		x[v] = x, or latitude in radians when geographic; NaN for no position
+	 * @param y
+	 * 		y[v] = y, or longitude in radians when geographic
+	 */
+	Coordinates(boolean geographic, double[] x, double[] y) {
+		this.geographic = geographic;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Sets the position of vertex v
+	 * @param v
+	 * 		the vertex
+	 * @param first
+	 * 		x, or latitude in degrees when geographic
+	 * @param second
+	 * 		y, or longitude in degrees when geographic
+	 */
+	public void set(int v, double first, double second) {
+		if (geographic) {
+			x[v] = Math.toRadians(first);
+			y[v] = Math.toRadians(second);
+		} else {
+			x[v] = first;
+			y[v] = second;
+		}
+	}
+
+	// the positions as stored, for writing snapshots; not to be modified
+	double[] x() {
+		return x;
+	}
+
+	double[] y() {
+		return y;
+	}
+
+	/**
+	 * @return whether positions are latitude/longitude rather than planar x/y
+	 */
+	public boolean isGeographic() {
+		return geographic;
+	}
+
+	/**
+	 * @param v
+	 * 		the vertex
+	 * @return whether vertex v has a position
+	 */
+	public boolean has(int v) {
+		return !Double.isNaN(x[v]);
+	}
+
+	/**
+	 * @return whether every vertex has a position
+	 */
+	public boolean hasAll() {
+		for (int v = 0; v < x.length; v++) {
+			if (Double.isNaN(x[v])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Straight-line distance between two vertices: Euclidean distance for
+	 * planar positions, haversine great-circle distance in miles for
+	 * geographic ones.
+	 * @param u
+	 * 		a vertex with a position
+	 * @param v
+	 * 		a vertex with a position
+	 * @return distance between u and v
+	 */
+	public double distance(int u, int v) {
+		if (!geographic) {
+			return Math.hypot(x[u] - x[v], y[u] - y[v]);
+		}
+		double sinLat = Math.sin((x[v] - x[u]) / 2);
+		double sinLon = Math.sin((y[v] - y[u]) / 2);
+		double a = sinLat * sinLat + Math.cos(x[u]) * Math.cos(x[v]) * sinLon * sinLon;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+	}
+
+	/**
+	 * Straight-line heuristic for A* search: the straight-line distance to
+	 * the target times scale. Every vertex must have a position, see hasAll:
+	 * a bound of 0 for the vertices without one would still be a lower bound,
+	 * but not a consistent one, and A* settles every vertex only once.
+	 * @param scale
+	 * 		1 for distance graphs, 1 / (maximum speed) for time graphs
+	 * @return the heuristic
+	 */
+	public Heuristic heuristic(final double scale) {
+		return new Heuristic() {
+			public double lowerBound(int v, int target) {
+				return scale * distance(v, target);
+			}
+		};
+	}
+}
@@ -0,0 +1,622 @@
+package onTheRoad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Customizable Contraction Hierarchies, after Dibbelt, Strasser and Wagner:
+ * a contraction hierarchy whose preprocessing depends only on the roads,
+ * not on their weights, followed by a customization that reads the
+ * weights. New weights, as from a traffic feed through LiveWeights, are
+ * taken in by customizing again, which is much faster than preprocessing.
+ * <p>
+ * Preprocessing orders the vertices by nested dissection of the undirected
+ * graph of the roads: a breadth-first search splits the graph at its middle
+ * level, the vertices of that level that touch the far side go last, and
+ * both sides are ordered the same way. The vertices are then eliminated in
+ * that order, adding an arc between every two remaining neighbours of each
+ * eliminated vertex. Small separators keep those arcs few and the searches
+ * of a query short.
+ * No witness search decides which of these arcs are needed, as in
+ * ContractionHierarchy, so they are the same for every weight. Each arc
+ * joins a vertex to one eliminated later and has a weight in each direction.
+ * <p>
+ * Customization gives every arc the weight of the lightest road it stands
+ * for, then goes through the vertices in order: for each triangle of v and
+ * two vertices x and y eliminated after it, the path x-v-y may be lighter
+ * than the arc x-y. This takes time proportional to the number of
+ * triangles, without any search.
+ * <p>
+ * Queries are the upward bidirectional search of ContractionHierarchy, and
+ * the arcs found are unpacked into the edges of the graph. Queries must not
+ * run while the hierarchy is customized, and throw IllegalStateException
+ * if the weights of the graph changed since it was last customized, as
+ * when the hierarchy is not a listener of the LiveWeights that changed them.
+ */
+public class CustomizableContractionHierarchy implements WeightListener {
+	// parts of at most this many vertices are not dissected further
+	private static final int DISSECTION_LEAF = 2;
+
+	// number of vertices
+	private int V;
+
+	// rank[v] = position of v in the elimination order; order[r] = vertex of rank r
+	private int[] rank;
+	private int[] order;
+
+	// the arcs, grouped by their lower ranked end: the arcs of v are
+	// arcStart[v] .. arcStart[v+1]-1 and lead to arcTarget[a], ranked above v.
+	// arcSource[a] = the lower ranked end of arc a
+	private int numArcs;
+	private int[] arcStart;
+	private int[] arcTarget;
+	private int[] arcSource;
+
+	// graph the weights come from, and the arc behind each of its edges:
+	// edgeArc[e] = 2a for an edge going up arc a, 2a + 1 for one going
+	// down it, -1 for a loop
+	private CompactDigraph g;
+	private int[] edgeArc;
+
+	// weight version of g the hierarchy was last customized for
+	private long weightVersion;
+
+	// weights[0][a] = weight of arc a going up, weights[1][a] going down;
+	// a directed arc d is arc d / 2 going up if d is even, down if odd
+	private double[][] weights;
+
+	// the lightest edge of g behind directed arc d, or, if firstArc[d] is not
+	// -1, the two directed arcs firstArc[d] then secondArc[d] it stands for
+	private int[] originalEdge;
+	private int[] firstArc;
+	private int[] secondArc;
+
+	// the arcs and their weights as search graphs: up by the upward weights,
+	// down by the downward ones, both from the lower ranked end
+	private CompactDigraph up;
+	private CompactDigraph down;
+
+	/**
+	 * Preprocesses a compact graph and customizes it with its weights
+	 * @param g
+	 * 		compact edge weighted directed graph
+	 */
+	public CustomizableContractionHierarchy(CompactDigraph g) {
+		V = g.V();
+		int[][] neighbors = undirectedNeighbors(g);
+		dissect(neighbors);
+		eliminate(neighbors);
+		findEdgeArcs(g);
+		customizeFor(g);
+	}
+
+	/**
+	 * Customizes the preprocessing of hierarchy with the weights of g, for
+	 * example to add a metric: the order and arcs are shared, not copied
+	 * @param hierarchy
+	 * 		hierarchy of a graph with the same edges as g, such as another
+	 * 		view of the same multi-metric graph
+	 * @param g
+	 * 		compact edge weighted directed graph
+	 */
+	public CustomizableContractionHierarchy(CustomizableContractionHierarchy hierarchy, CompactDigraph g) {
+		if (g.offsets() != hierarchy.g.offsets() || g.targets() != hierarchy.g.targets()) {
+			throw new IllegalArgumentException("graph does not share the edges of the hierarchy");
+		}
+		V = hierarchy.V;
+		rank = hierarchy.rank;
+		order = hierarchy.order;
+		numArcs = hierarchy.numArcs;
+		arcStart = hierarchy.arcStart;
+		arcTarget = hierarchy.arcTarget;
+		arcSource = hierarchy.arcSource;
+		edgeArc = hierarchy.edgeArc;
+		customizeFor(g);
+	}
+
+	/**
+	 * @return number of vertices
+	 */
+	public int V() {
+		return V;
+	}
+
+	/**
+	 * @return number of arcs, each with a weight in both directions
+	 */
+	public int arcs() {
+		return numArcs;
+	}
+
+	/**
+	 * @param v
+	 * 		a vertex
+	 * @return position of v in the elimination order
+	 */
+	public int rank(int v) {
+		return rank[v];
+	}
+
+	/**
+	 * Reads the weights of the graph again, after they have changed
+	 */
+	public void customize() {
+		// read first, so that a change made while customizing is noticed
+		weightVersion = g.weightVersion();
+		Arrays.fill(weights[0], Double.POSITIVE_INFINITY);
+		Arrays.fill(weights[1], Double.POSITIVE_INFINITY);
+		Arrays.fill(originalEdge, -1);
+		Arrays.fill(firstArc, -1);
+		for (int e = 0; e < edgeArc.length; e++) {
+			int d = edgeArc[e];
+			if (d != -1 && g.weight(e) < weights[d & 1][d >> 1]) {
+				weights[d & 1][d >> 1] = g.weight(e);
+				originalEdge[d] = e;
+			}
+		}
+
+		// slot[y] = arc from the current vertex to y, valid if mark[y] is its rank + 1
+		int[] slot = new int[V];
+		int[] mark = new int[V];
+		double[] upWeight = weights[0], downWeight = weights[1];
+		for (int r = 0; r < V; r++) {
+			int v = order[r];
+			for (int b = arcStart[v]; b < arcStart[v + 1]; b++) {
+				slot[arcTarget[b]] = b;
+				mark[arcTarget[b]] = r + 1;
+			}
+			// every triangle v, x, y with x below y: arcs a = v-x, b = v-y and c = x-y
+			for (int a = arcStart[v]; a < arcStart[v + 1]; a++) {
+				int x = arcTarget[a];
+				for (int c = arcStart[x]; c < arcStart[x + 1]; c++) {
+					int y = arcTarget[c];
+					if (mark[y] != r + 1) {
+						continue;
+					}
+					int b = slot[y];
+					// x up to y through v: down a, then up b
+					if (downWeight[a] + upWeight[b] < upWeight[c]) {
+						upWeight[c] = downWeight[a] + upWeight[b];
+						firstArc[2 * c] = 2 * a + 1;
+						secondArc[2 * c] = 2 * b;
+					}
+					// y down to x through v: down b, then up a
+					if (downWeight[b] + upWeight[a] < downWeight[c]) {
+						downWeight[c] = downWeight[b] + upWeight[a];
+						firstArc[2 * c + 1] = 2 * b + 1;
+						secondArc[2 * c + 1] = 2 * a;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Customizes the hierarchy again when the weights of its graph change
+	 */
+	public void weightsChanged(CompactDigraph g) {
+		customize();
+	}
+
+	/**
+	 * Computes shortest path from start to end
+	 * @param start
+	 * 		starting node in search for shortest path
+	 * @param end
+	 * 		ending node in search for shortest path
+	 * @return a list of edges in that shortest path in correct order, or null
+	 * 		if end cannot be reached from start
+	 */
+	public ArrayList<DirectedEdge> getShortestPath(int start, int end) {
+		return getShortestPath(start, end,
+				SearchContext.forThread(V, SearchContext.FORWARD),
+				SearchContext.forThread(V, SearchContext.BACKWARD));
+	}
+
+	/**
+	 * Computes shortest path from start to end, keeping the state of the two
+	 * searches in fwd and bwd
+	 * @param start
+	 * 		starting node in search for shortest path
+	 * @param end
+	 * 		ending node in search for shortest path
+	 * @param fwd
+	 * 		search state for the forward search
+	 * @param bwd
+	 * 		search state for the backward search
+	 * @return a list of edges in that shortest path in correct order, or null
+	 * 		if end cannot be reached from start
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since the last customization
+	 */
+	public ArrayList<DirectedEdge> getShortestPath(int start, int end, SearchContext fwd, SearchContext bwd) {
+		checkWeights();
+		int meet = ContractionHierarchy.search(up, down, start, end, fwd, bwd);
+		if (meet == -1) {
+			return null;
+		}
+		ArrayList<DirectedEdge> edges = new ArrayList<DirectedEdge>();
+
+		// arcs from start up to meet, collected backwards
+		int[] stack = new int[16];
+		int depth = 0;
+		for (int v = meet; fwd.getEdgeTo(v) != -1; v = arcSource[fwd.getEdgeTo(v)]) {
+			if (depth == stack.length) stack = Arrays.copyOf(stack, 2 * depth);
+			stack[depth++] = 2 * fwd.getEdgeTo(v);
+		}
+		while (depth > 0) {
+			unpack(stack[--depth], edges);
+		}
+		// arcs from meet down to end
+		for (int v = meet; bwd.getEdgeTo(v) != -1; v = arcSource[bwd.getEdgeTo(v)]) {
+			unpack(2 * bwd.getEdgeTo(v) + 1, edges);
+		}
+		return edges;
+	}
+
+	/**
+	 * Computes the length of the shortest path from start to end
+	 * @param start
+	 * 		starting node
+	 * @param end
+	 * 		ending node
+	 * @return length of the shortest path, positive infinity if there is none
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since the last customization
+	 */
+	public double distance(int start, int end) {
+		checkWeights();
+		SearchContext fwd = SearchContext.forThread(V, SearchContext.FORWARD);
+		SearchContext bwd = SearchContext.forThread(V, SearchContext.BACKWARD);
+		int meet = ContractionHierarchy.search(up, down, start, end, fwd, bwd);
+		return meet == -1 ? Double.POSITIVE_INFINITY : fwd.getDist(meet) + bwd.getDist(meet);
+	}
+
+	/**
+	 * Throws IllegalStateException if the weights of g changed since the last customization
+	 */
+	private void checkWeights() {
+		if (g.weightVersion() != weightVersion) {
+			throw new IllegalStateException("weights of the graph changed since the hierarchy was customized");
+		}
+	}
+
+	/**
+	 * Appends the edges of g behind directed arc d to edges, in path order
+	 */
+	private void unpack(int d, ArrayList<DirectedEdge> edges) {
+		int[] stack = new int[16];
+		int depth = 0;
+		stack[depth++] = d;
+		while (depth > 0) {
+			int arc = stack[--depth];
+			if (firstArc[arc] == -1) {
+				int a = arc >> 1;
+				boolean isUp = (arc & 1) == 0;
+				int from = isUp ? arcSource[a] : arcTarget[a];
+				int to = isUp ? arcTarget[a] : arcSource[a];
+				edges.add(new DirectedEdge(from, to, g.weight(originalEdge[arc])));
+			} else {
+				if (depth + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+				// second half below first half, so the first half is unpacked first
+				stack[depth++] = secondArc[arc];
+				stack[depth++] = firstArc[arc];
+			}
+		}
+	}
+
+	/**
+	 * The undirected neighbours of every vertex of g, without loops or repeats
+	 * @return neighbors[v][0 .. neighbors[v].length-1]
+	 */
+	private static int[][] undirectedNeighbors(CompactDigraph g) {
+		int V = g.V();
+		int[] degree = new int[V];
+		for (int v = 0; v < V; v++) {
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				degree[v]++;
+				degree[g.target(e)]++;
+			}
+		}
+		int[][] neighbors = new int[V][];
+		for (int v = 0; v < V; v++) {
+			neighbors[v] = new int[degree[v]];
+			degree[v] = 0;
+		}
+		for (int v = 0; v < V; v++) {
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				int w = g.target(e);
+				neighbors[v][degree[v]++] = w;
+				neighbors[w][degree[w]++] = v;
+			}
+		}
+		// drop loops and repeats
+		int[] seen = new int[V];
+		for (int v = 0; v < V; v++) {
+			int kept = 0;
+			for (int w : neighbors[v]) {
+				if (w != v && seen[w] != v + 1) {
+					seen[w] = v + 1;
+					neighbors[v][kept++] = w;
+				}
+			}
+			neighbors[v] = Arrays.copyOf(neighbors[v], kept);
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Orders the vertices by nested dissection, filling in rank and order.
+	 * Parts still to be split are kept on a stack, so the separator of a
+	 * part is ranked above everything inside it.
+	 * @param neighbors
+	 * 		undirected neighbours of every vertex
+	 */
+	private void dissect(int[][] neighbors) {
+		rank = new int[V];
+		order = new int[V];
+		int nextRank = V;
+
+		// part[v] = id of the part v is in; level[v] = its depth in the last search
+		int[] part = new int[V];
+		int[] level = new int[V];
+		int[] queue = new int[V];
+		int numParts = 1;
+		ArrayList<int[]> stack = new ArrayList<int[]>();
+		int[] all = new int[V];
+		for (int v = 0; v < V; v++) {
+			all[v] = v;
+		}
+		stack.add(all);
+		while (!stack.isEmpty()) {
+			int[] members = stack.remove(stack.size() - 1);
+			int id = part[members[0]];
+			if (members.length <= DISSECTION_LEAF) {
+				for (int v : members) {
+					rank[v] = --nextRank;
+				}
+				continue;
+			}
+
+			// search from an end of the part, found by searching from any vertex
+			int reached = levels(members[0], id, part, level, queue, neighbors);
+			reached = levels(queue[reached - 1], id, part, level, queue, neighbors);
+			if (reached < members.length) {
+				// the part falls apart: split off what the search reached
+				split(members, queue, reached, part, ++numParts, stack);
+				continue;
+			}
+
+			// the middle level, counting vertices, and those of it that touch the level beyond
+			int middle = level[queue[members.length / 2]];
+			int numSeparator = 0;
+			for (int i = 0; i < reached; i++) {
+				int v = queue[i];
+				if (level[v] != middle) {
+					continue;
+				}
+				for (int w : neighbors[v]) {
+					if (part[w] == id && level[w] == middle + 1) {
+						queue[numSeparator++] = v;
+						break;
+					}
+				}
+			}
+			if (numSeparator == 0) {
+				// the middle level is the last: all of it separates
+				for (int v : members) {
+					if (level[v] == middle) {
+						queue[numSeparator++] = v;
+					}
+				}
+			}
+			for (int i = 0; i < numSeparator; i++) {
+				int v = queue[i];
+				rank[v] = --nextRank;
+				part[v] = -1;
+			}
+
+			// the vertices up to the middle level form one part, those beyond another
+			int near = ++numParts, far = ++numParts;
+			int numNear = 0;
+			for (int v : members) {
+				if (part[v] == id) {
+					if (level[v] <= middle) {
+						part[v] = near;
+						numNear++;
+					} else {
+						part[v] = far;
+					}
+				}
+			}
+			int[] nearMembers = new int[numNear];
+			int[] farMembers = new int[members.length - numSeparator - numNear];
+			numNear = 0;
+			int numFar = 0;
+			for (int v : members) {
+				if (part[v] == near) {
+					nearMembers[numNear++] = v;
+				} else if (part[v] == far) {
+					farMembers[numFar++] = v;
+				}
+			}
+			if (numNear > 0) stack.add(nearMembers);
+			if (numFar > 0) stack.add(farMembers);
+		}
+		for (int v = 0; v < V; v++) {
+			order[rank[v]] = v;
+		}
+	}
+
+	/**
+	 * Breadth-first search from s over the vertices of part id
+	 * @return number of vertices reached, which are queue[0 .. n-1] in the
+	 * 		order reached, with level[v] their distance from s
+	 */
+	private static int levels(int s, int id, int[] part, int[] level, int[] queue, int[][] neighbors) {
+		// level[v] == -1 marks the vertices of the part reached so far
+		int n = 0;
+		queue[n++] = s;
+		part[s] = -2 - id;
+		level[s] = 0;
+		for (int head = 0; head < n; head++) {
+			int v = queue[head];
+			for (int w : neighbors[v]) {
+				if (part[w] == id) {
+					part[w] = -2 - id;
+					level[w] = level[v] + 1;
+					queue[n++] = w;
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			part[queue[i]] = id;
+		}
+		return n;
+	}
+
+	/**
+	 * Splits members into the n vertices of queue, given the new part id,
+	 * and the rest, and pushes both on stack
+	 */
+	private static void split(int[] members, int[] queue, int n, int[] part, int id,
+			ArrayList<int[]> stack) {
+		int old = part[members[0]];
+		int[] reached = Arrays.copyOf(queue, n);
+		for (int v : reached) {
+			part[v] = id;
+		}
+		int[] rest = new int[members.length - n];
+		int numRest = 0;
+		for (int v : members) {
+			if (part[v] == old) {
+				rest[numRest++] = v;
+			}
+		}
+		stack.add(reached);
+		stack.add(rest);
+	}
+
+	/**
+	 * Eliminates the vertices in order, and makes the arcs from each vertex
+	 * to the neighbours it has when eliminated
+	 * @param neighbors
+	 * 		undirected neighbours of every vertex; used up
+	 */
+	private void eliminate(int[][] neighbors) {
+		boolean[] eliminated = new boolean[V];
+		int[] size = new int[V];
+		for (int v = 0; v < V; v++) {
+			size[v] = neighbors[v].length;
+		}
+
+		int[] tails = new int[Math.max(16, 2 * V)];
+		int[] heads = new int[tails.length];
+		int[] clique = new int[16];
+		int[] seen = new int[V];
+		int stamp = 0;
+		for (int r = 0; r < V; r++) {
+			int v = order[r];
+			eliminated[v] = true;
+
+			// the remaining neighbours of v become a clique, and get an arc from v
+			int n = 0;
+			for (int i = 0; i < size[v]; i++) {
+				int w = neighbors[v][i];
+				if (eliminated[w]) {
+					continue;
+				}
+				if (n == clique.length) clique = Arrays.copyOf(clique, 2 * n);
+				clique[n++] = w;
+			}
+			neighbors[v] = null;
+			if (numArcs + n > tails.length) {
+				int capacity = Math.max(2 * tails.length, numArcs + n);
+				tails = Arrays.copyOf(tails, capacity);
+				heads = Arrays.copyOf(heads, capacity);
+			}
+			for (int i = 0; i < n; i++) {
+				tails[numArcs] = v;
+				heads[numArcs++] = clique[i];
+			}
+			for (int i = 0; i < n; i++) {
+				int u = clique[i];
+				stamp++;
+				// keep u's remaining neighbours, then add the clique members it lacks
+				int kept = 0;
+				for (int j = 0; j < size[u]; j++) {
+					int w = neighbors[u][j];
+					if (!eliminated[w]) {
+						seen[w] = stamp;
+						neighbors[u][kept++] = w;
+					}
+				}
+				for (int j = 0; j < n; j++) {
+					int w = clique[j];
+					if (w == u || seen[w] == stamp) {
+						continue;
+					}
+					if (kept == neighbors[u].length) {
+						neighbors[u] = Arrays.copyOf(neighbors[u], Math.max(4, 2 * kept));
+					}
+					neighbors[u][kept++] = w;
+				}
+				size[u] = kept;
+			}
+		}
+
+		// the arcs of each vertex were made together; sort them by target
+		arcStart = new int[V + 1];
+		for (int a = 0; a < numArcs; a++) {
+			arcStart[tails[a] + 1]++;
+		}
+		for (int v = 0; v < V; v++) {
+			arcStart[v + 1] += arcStart[v];
+		}
+		int[] fill = Arrays.copyOf(arcStart, V);
+		arcTarget = new int[numArcs];
+		arcSource = new int[numArcs];
+		for (int a = 0; a < numArcs; a++) {
+			int slot = fill[tails[a]]++;
+			arcTarget[slot] = heads[a];
+			arcSource[slot] = tails[a];
+		}
+		for (int v = 0; v < V; v++) {
+			Arrays.sort(arcTarget, arcStart[v], arcStart[v + 1]);
+		}
+	}
+
+	/**
+	 * Finds the arc behind every edge of g
+	 */
+	private void findEdgeArcs(CompactDigraph g) {
+		edgeArc = new int[g.E()];
+		for (int u = 0; u < V; u++) {
+			for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+				int w = g.target(e);
+				if (w == u) {
+					edgeArc[e] = -1;
+					continue;
+				}
+				int low = rank[u] < rank[w] ? u : w;
+				int high = low == u ? w : u;
+				int a = Arrays.binarySearch(arcTarget, arcStart[low], arcStart[low + 1], high);
+				edgeArc[e] = low == u ? 2 * a : 2 * a + 1;
+			}
+		}
+	}
+
+	/**
+	 * Makes the weights and search graphs for g, and customizes them
+	 */
+	private void customizeFor(CompactDigraph g) {
+		this.g = g;
+		weights = new double[2][numArcs];
+		originalEdge = new int[2 * numArcs];
+		firstArc = new int[2 * numArcs];
+		secondArc = new int[2 * numArcs];
+		up = new CompactDigraph(V, arcStart, arcTarget, weights);
+		down = up.columnView(1);
+		customize();
+	}
+}
@@ -0,0 +1,168 @@
+/******************************************************************************
+ *  Dial's bucket queue for monotone integer keys.
+ *
+ ******************************************************************************/
+
+package onTheRoad;
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code DialQueue} class is a monotone indexed priority queue for
+ *  searches whose edge weights are integers between 0 and a known maximum
+ *  <em>C</em> (Dial's algorithm). While Dijkstra's algorithm runs, every key
+ *  on the queue lies between the last key removed and that key plus <em>C</em>,
+ *  so <em>C</em> + 1 buckets used as a circular array hold every key in a
+ *  bucket of its own. Each bucket is a doubly linked list threaded through
+ *  arrays indexed by the queue indices, so nothing is allocated after construction.
+ *  <p>
+ *  The <em>insert</em>, <em>decrease-key</em> and <em>contains</em> operations
+ *  take &Theta;(1) time. A <em>delete-the-minimum</em> scans forward over empty
+ *  buckets, and over a whole search the scans take time proportional to the
+ *  largest key removed, so a search takes &Theta;(<em>E</em> + <em>V</em> + <em>D</em>)
+ *  time where <em>D</em> is the largest distance found.
+ */
+public class DialQueue implements MonotonePQ {
+    private final int maxN;       // maximum number of elements on the queue
+    private final int C;          // largest gap between any key and the last key removed
+    private final int[] head;     // head[b] = first index in bucket b, or -1
+    private final int[] next;     // next[i] = index after i in its bucket, or -1
+    private final int[] prev;     // prev[i] = index before i in its bucket, or -1 if first
+    private final long[] keys;    // keys[i] = key of index i
+    private final boolean[] onQueue;
+    private int n;                // number of elements on the queue
+    private long cursor;          // no key on the queue is below cursor
+
+    /**
+     * Initializes an empty queue with indices between {@code 0} and
+     * {@code maxN - 1}, for keys that never exceed the last key removed by
+     * more than {@code C}.
+     *
+     * @param  maxN the number of indices
+     * @param  C the largest edge weight of the graph to be searched
+     * @throws IllegalArgumentException if {@code maxN < 0} or {@code C < 0}
+     */
+    public DialQueue(int maxN, int C) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        if (C < 0) throw new IllegalArgumentException("largest weight must be nonnegative");
+        this.maxN = maxN;
+        this.C = C;
+        head = new int[C + 1];
+        next = new int[maxN];
+        prev = new int[maxN];
+        keys = new long[maxN];
+        onQueue = new boolean[maxN];
+        for (int b = 0; b <= C; b++)
+            head[b] = -1;
+    }
+
+    /**
+     * Returns the largest edge weight this queue was made for.
+     *
+     * @return the largest edge weight
+     */
+    public int maxWeight() {
+        return C;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public boolean contains(int i) {
+        validateIndex(i);
+        return onQueue[i];
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code i} is on the queue, or
+     *         {@code key} is below the last key removed or more than
+     *         {@code C} above it
+     */
+    public void insert(int i, long key) {
+        validateIndex(i);
+        if (onQueue[i]) throw new IllegalArgumentException("index is already in the priority queue");
+        validateKey(key);
+        onQueue[i] = true;
+        keys[i] = key;
+        link(i);
+        n++;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code key} is not below the key
+     *         of {@code i} or is below the last key removed
+     * @throws NoSuchElementException if {@code i} is not on the queue
+     */
+    public void decreaseKey(int i, long key) {
+        validateIndex(i);
+        if (!onQueue[i]) throw new NoSuchElementException("index is not in the priority queue");
+        if (key >= keys[i]) throw new IllegalArgumentException("Calling decreaseKey() with a key not below the key in the priority queue");
+        validateKey(key);
+        unlink(i);
+        keys[i] = key;
+        link(i);
+    }
+
+    /**
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        int b = bucket(cursor);
+        while (head[b] == -1) {
+            cursor++;
+            b = b == C ? 0 : b + 1;
+        }
+        int i = head[b];
+        unlink(i);
+        onQueue[i] = false;
+        n--;
+        return i;
+    }
+
+    /**
+     * Takes time proportional to the number of elements on the queue.
+     */
+    public void clear() {
+        for (int b = bucket(cursor), seen = 0; seen < n; b = b == C ? 0 : b + 1) {
+            for (int i = head[b]; i != -1; i = next[i]) {
+                onQueue[i] = false;
+                seen++;
+            }
+            head[b] = -1;
+        }
+        n = 0;
+        cursor = 0;
+    }
+
+    private int bucket(long key) {
+        return (int) (key % (C + 1));
+    }
+
+    private void link(int i) {
+        int b = bucket(keys[i]);
+        prev[i] = -1;
+        next[i] = head[b];
+        if (head[b] != -1) prev[head[b]] = i;
+        head[b] = i;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] == -1) head[bucket(keys[i])] = next[i];
+        else               next[prev[i]] = next[i];
+        if (next[i] != -1) prev[next[i]] = prev[i];
+    }
+
+    // throw an IllegalArgumentException unless cursor <= key <= cursor + C
+    private void validateKey(long key) {
+        if (key < cursor) throw new IllegalArgumentException("key " + key + " is below the last key removed " + cursor);
+        if (key - cursor > C) throw new IllegalArgumentException("key " + key + " is more than " + C + " above the last key removed " + cursor);
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= i < maxN}
+    private void validateIndex(int i) {
+        if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
+        if (i >= maxN) throw new IllegalArgumentException("index >= capacity: " + i);
+    }
+}
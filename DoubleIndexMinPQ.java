@@ -0,0 +1,280 @@
+/******************************************************************************
+ *  Minimum-oriented indexed PQ with primitive double keys, using a d-ary heap.
+ *
+ ******************************************************************************/
+
+package onTheRoad;
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code DoubleIndexMinPQ} class represents an indexed priority queue of
+ *  {@code double} keys. It has the same contract as {@link IndexMinPQ}:
+ *  the usual <em>insert</em> and <em>delete-the-minimum</em> operations, along
+ *  with <em>decrease-key</em> and <em>change-key</em>, where the client refers
+ *  to each key by an integer index between {@code 0} and {@code maxN - 1}.
+ *  <p>
+ *  Unlike {@code IndexMinPQ<Double>}, keys are never boxed and are compared
+ *  with {@code <} rather than through {@code Comparable}, so no operation
+ *  allocates. The keys are stored in heap order next to the heap itself,
+ *  so sifting a key reads one array rather than following an index into another.
+ *  <p>
+ *  This implementation uses a <em>d</em>-ary heap (4-ary unless specified
+ *  otherwise). A wider heap is shallower, which makes <em>insert</em> and
+ *  <em>decrease-key</em> (the common operations in Dijkstra's algorithm)
+ *  cheaper, at the price of more comparisons per level in <em>delete-the-minimum</em>.
+ *  The <em>insert</em>, <em>decrease-key</em> and <em>change-key</em> operations take
+ *  &Theta;(log<sub><em>d</em></sub> <em>n</em>) time and <em>delete-the-minimum</em>
+ *  takes &Theta;(<em>d</em> log<sub><em>d</em></sub> <em>n</em>) time in the worst case.
+ *  Construction takes time proportional to the specified capacity.
+ */
+public class DoubleIndexMinPQ {
+    private final int maxN;      // maximum number of elements on PQ
+    private final int d;         // arity of the heap
+    private int n;               // number of elements on PQ
+    private final int[] pq;      // d-ary heap using 0-based indexing
+    private final double[] heapKeys; // heapKeys[k] = key of pq[k]
+    private final int[] qp;      // inverse of pq - qp[pq[k]] = k, or -1 if not on PQ
+
+    /**
+     * Initializes an empty 4-ary indexed priority queue with indices between
+     * {@code 0} and {@code maxN - 1}.
+     * @param  maxN the keys on this priority queue are index from {@code 0}
+     *         {@code maxN - 1}
+     * @throws IllegalArgumentException if {@code maxN < 0}
+     */
+    public DoubleIndexMinPQ(int maxN) {
+        this(maxN, 4);
+    }
+
+    /**
+     * Initializes an empty {@code d}-ary indexed priority queue with indices
+     * between {@code 0} and {@code maxN - 1}.
+     * @param  maxN the keys on this priority queue are index from {@code 0}
+     *         {@code maxN - 1}
+     * @param  d the arity of the heap
+     * @throws IllegalArgumentException if {@code maxN < 0} or {@code d < 2}
+     */
+    public DoubleIndexMinPQ(int maxN, int d) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        if (d < 2) throw new IllegalArgumentException("arity must be at least 2");
+        this.maxN = maxN;
+        this.d = d;
+        n = 0;
+        pq = new int[maxN];
+        heapKeys = new double[maxN];
+        qp = new int[maxN];
+        for (int i = 0; i < maxN; i++)
+            qp[i] = -1;
+    }
+
+    /**
+     * Returns true if this priority queue is empty.
+     *
+     * @return {@code true} if this priority queue is empty;
+     *         {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Is {@code i} an index on this priority queue?
+     *
+     * @param  i an index
+     * @return {@code true} if {@code i} is an index on this priority queue;
+     *         {@code false} otherwise
+     * @throws IllegalArgumentException unless {@code 0 <= i < maxN}
+     */
+    public boolean contains(int i) {
+        validateIndex(i);
+        return qp[i] != -1;
+    }
+
+    /**
+     * Returns the number of keys on this priority queue.
+     *
+     * @return the number of keys on this priority queue
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Associates key with index {@code i}.
+     *
+     * @param  i an index
+     * @param  key the key to associate with index {@code i}
+     * @throws IllegalArgumentException unless {@code 0 <= i < maxN}
+     * @throws IllegalArgumentException if there already is an item associated
+     *         with index {@code i}
+     */
+    public void insert(int i, double key) {
+        validateIndex(i);
+        if (qp[i] != -1) throw new IllegalArgumentException("index is already in the priority queue");
+        swim(n++, i, key);
+    }
+
+    /**
+     * Returns an index associated with a minimum key.
+     *
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[0];
+    }
+
+    /**
+     * Returns a minimum key.
+     *
+     * @return a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public double minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return heapKeys[0];
+    }
+
+    /**
+     * Removes a minimum key and returns its associated index.
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[0];
+        qp[min] = -1;
+        n--;
+        if (n > 0) sink(0, pq[n], heapKeys[n]);
+        return min;
+    }
+
+    /**
+     * Returns the key associated with index {@code i}.
+     *
+     * @param  i the index of the key to return
+     * @return the key associated with index {@code i}
+     * @throws IllegalArgumentException unless {@code 0 <= i < maxN}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public double keyOf(int i) {
+        validateIndex(i);
+        if (qp[i] == -1) throw new NoSuchElementException("index is not in the priority queue");
+        return heapKeys[qp[i]];
+    }
+
+    /**
+     * Change the key associated with index {@code i} to the specified value.
+     *
+     * @param  i the index of the key to change
+     * @param  key change the key associated with index {@code i} to this key
+     * @throws IllegalArgumentException unless {@code 0 <= i < maxN}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void changeKey(int i, double key) {
+        validateIndex(i);
+        if (qp[i] == -1) throw new NoSuchElementException("index is not in the priority queue");
+        int k = qp[i];
+        if (key < heapKeys[k]) swim(k, i, key);
+        else                   sink(k, i, key);
+    }
+
+    /**
+     * Decrease the key associated with index {@code i} to the specified value.
+     *
+     * @param  i the index of the key to decrease
+     * @param  key decrease the key associated with index {@code i} to this key
+     * @throws IllegalArgumentException unless {@code 0 <= i < maxN}
+     * @throws IllegalArgumentException if {@code key >= keyOf(i)}
+     * @throws NoSuchElementException no key is associated with index {@code i}
+     */
+    public void decreaseKey(int i, double key) {
+        validateIndex(i);
+        if (qp[i] == -1) throw new NoSuchElementException("index is not in the priority queue");
+        int k = qp[i];
+        if (heapKeys[k] == key)
+            throw new IllegalArgumentException("Calling decreaseKey() with a key equal to the key in the priority queue");
+        if (heapKeys[k] < key)
+            throw new IllegalArgumentException("Calling decreaseKey() with a key strictly greater than the key in the priority queue");
+        swim(k, i, key);
+    }
+
+    /**
+     * Removes all keys from this priority queue.
+     * Takes time proportional to the number of keys, not to the capacity.
+     */
+    public void clear() {
+        for (int k = 0; k < n; k++)
+            qp[pq[k]] = -1;
+        n = 0;
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= i < maxN}
+    private void validateIndex(int i) {
+        if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
+        if (i >= maxN) throw new IllegalArgumentException("index >= capacity: " + i);
+    }
+
+   /***************************************************************************
+    * Heap helper functions. Both move a hole rather than swapping entries:
+    * index i with the given key is written once, where it ends up.
+    ***************************************************************************/
+    private void swim(int k, int i, double key) {
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            if (heapKeys[parent] <= key) break;
+            pq[k] = pq[parent];
+            heapKeys[k] = heapKeys[parent];
+            qp[pq[k]] = k;
+            k = parent;
+        }
+        pq[k] = i;
+        heapKeys[k] = key;
+        qp[i] = k;
+    }
+
+    private void sink(int k, int i, double key) {
+        while (true) {
+            int first = d * k + 1;
+            if (first >= n) break;
+            int last = Math.min(first + d, n);
+            int child = first;
+            for (int c = first + 1; c < last; c++)
+                if (heapKeys[c] < heapKeys[child]) child = c;
+            if (key <= heapKeys[child]) break;
+            pq[k] = pq[child];
+            heapKeys[k] = heapKeys[child];
+            qp[pq[k]] = k;
+            k = child;
+        }
+        pq[k] = i;
+        heapKeys[k] = key;
+        qp[i] = k;
+    }
+
+
+    /**
+     * Unit tests the {@code DoubleIndexMinPQ} data type.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        double[] keys = { 5.5, 3.25, 9.0, 1.0, 7.75, 3.25, 0.5, 8.0 };
+
+        DoubleIndexMinPQ pq = new DoubleIndexMinPQ(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            pq.insert(i, keys[i]);
+        }
+        pq.decreaseKey(2, 2.0);
+        pq.changeKey(6, 6.0);
+
+        // delete and print each key
+        while (!pq.isEmpty()) {
+            double key = pq.minKey();
+            int i = pq.delMin();
+            System.out.println(i + " " + key);
+        }
+    }
+}
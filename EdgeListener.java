@@ -0,0 +1,17 @@
+package onTheRoad;
+
+/**
+ * Notified whenever an edge is added to an EdgeWeightedDigraph, so that
+ * anything derived from the graph (cached routes, component ids) can be
+ * brought up to date. Register with EdgeWeightedDigraph.addEdgeListener.
+ */
+public interface EdgeListener {
+	/**
+	 * Called after e has been added to g
+	 * @param g
+	 *            the graph that changed
+	 * @param e
+	 *            the edge added
+	 */
+	void edgeAdded(EdgeWeightedDigraph g, DirectedEdge e);
+}
@@ -5,6 +5,9 @@
  ******************************************************************************/
 package onTheRoad;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  *  The {@code EdgeWeightedDigraph} class represents a edge-weighted
  *  digraph of vertices named 0 through <em>V</em> - 1, where each
@@ -42,9 +45,10 @@ public class EdgeWeightedDigraph {
     private int E;                      // number of edges in this digraph
     private Bag<DirectedEdge>[] adj;    // adj[v] = adjacency list for vertex v
     private int[] indegree;             // indegree[v] = indegree of vertex v
-    private boolean[] marked;  // marked[v] = is there an s->v path?
-    private DirectedEdge[] edgeTo;      // edgeTo[v] = last edge on shortest s->v path
-    private double[] distTo;      // distTo[v] = length of shortest s->v path
+    private SearchContext search;       // marks and distances of the last search
+    private DirectedEdge[] edgeTo;      // edgeTo[v] = last edge on shortest s->v path, if search reached v
+    private long version;               // number of changes made to this digraph
+    private final List<EdgeListener> listeners = new CopyOnWriteArrayList<EdgeListener>();  // told about every added edge
 
     
     /**
@@ -61,8 +65,7 @@ public class EdgeWeightedDigraph {
         adj = (Bag<DirectedEdge>[]) new Bag[V];
         for (int v = 0; v < V; v++)
             adj[v] = new Bag<DirectedEdge>();
-        this.marked = new boolean[V];
-        this.distTo = new double[V];
+        this.search = new SearchContext(V);
         this.edgeTo = new DirectedEdge[V];
     }
 
@@ -105,6 +108,37 @@ public class EdgeWeightedDigraph {
         adj[v].add(e);
         indegree[w]++;
         E++;
+        version++;
+        for (EdgeListener listener : listeners)
+            listener.edgeAdded(this, e);
+    }
+
+    /**
+     * Registers {@code listener} to be told about every edge added from now on.
+     *
+     * @param  listener the listener
+     */
+    public void addEdgeListener(EdgeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling {@code listener} about added edges.
+     *
+     * @param  listener the listener
+     */
+    public void removeEdgeListener(EdgeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of changes made to this digraph so far. Anything
+     * computed from the digraph is stale if the version has moved since.
+     *
+     * @return the version of this digraph
+     */
+    public long version() {
+        return version;
     }
 
     /**
@@ -164,12 +198,18 @@ public class EdgeWeightedDigraph {
     
     /**
      * Resets the auxiliary arrays in this edge-weighted graph.
-     * 
+     * Takes constant time: see {@link SearchContext#clear()}.
      */
     public void reset() {
-        this.marked = new boolean[V];
-        this.distTo = new double[V];
-        this.edgeTo = new DirectedEdge[V];
+        search.clear();
+    }
+
+    /**
+     * Returns the search context holding the marks and distances of this graph.
+     * @return the search context used by the methods below
+     */
+    SearchContext searchContext() {
+        return search;
     }
     
 /**
@@ -178,8 +218,8 @@ public class EdgeWeightedDigraph {
      * @param distance
      */
     public void visit(DirectedEdge e, double distance) {
-    	marked[e.to()] = true;
-    	distTo[e.to()] = distance;
+    	search.mark(e.to());
+    	search.setDist(e.to(), distance, -1);
     	edgeTo[e.to()] = e;
     }
     
@@ -189,23 +229,28 @@ public class EdgeWeightedDigraph {
      * @return true if v has been marked, false otherwise
      */
     public boolean isVisited(int v) {
-    	return marked[v];
+    	return search.isMarked(v);
     }
 
     /**
      * Returns the value of distTo at index v
      * @param v
-     * @return the value of distTo at index v
+     * @return the value of distTo at index v, positive infinity if v has
+     * 		not been reached since the last reset
      */
     public double getDist(int v) {
-    	return distTo[v];
+    	return search.getDist(v);
     }
     
     /**
      * Sets the value weight of distTo at index v
      */
     public void setDist(int v, double weight) {
-    	distTo[v] = weight;
+    	// the first time v is reached, forget the edge left over from an earlier search
+    	if (!search.isReached(v)) {
+    		edgeTo[v] = null;
+    	}
+    	search.setDist(v, weight, -1);
     }
     
     /**
@@ -219,14 +264,14 @@ public class EdgeWeightedDigraph {
      * Gets the edge from v
      */
     public DirectedEdge getEdgeTo(DirectedEdge e) {
-    	return edgeTo[e.from()];
+    	return getEdgeTo(e.from());
     }
     
     /**
      * Gets the edge from v
      */
     public DirectedEdge getEdgeTo(int v) {
-    	return edgeTo[v];
+    	return search.isReached(v) ? edgeTo[v] : null;
     }
     
     /**
@@ -4,95 +4,232 @@ package onTheRoad;
  * build the graph used in finding shortest paths
  */
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FileParser {
-	// list of all vertices & edges in graph being build
+	// list of all vertices in graph being build
 	private List<String> vertices = new ArrayList<String>();
-	private List<Segment> segments = new ArrayList<Segment>();
+
+	// the segments (edges) as parallel arrays, in input order
+	private int numSegments;
+	private int[] segmentStarts = new int[0];
+	private int[] segmentEnds = new int[0];
+	private double[] segmentDistances = new double[0];
+	private double[] segmentSpeeds = new double[0];
+
+	// speed profiles of the segments that have one: segmentProfiles[i] is
+	// the id in profiles of segment i's profile, -1 if it has none. Both
+	// are null until a segment with a profile is read.
+	private SpeedProfiles profiles;
+	private int[] segmentProfiles;
 	
 	// List of all trips that should be calculated
 	private List<TripRequest> trips = new ArrayList<TripRequest>();
 
+	// positions of the vertices, null if no location line has coordinates
+	private Coordinates coordinates;
+
+	// the input file
+	private String fileName;
+
 	/**
 	 * Parse input to obtain lists of vertices, edges, and trip requests.
+	 * The file is scanned as bytes by an InputScanner, and segments go
+	 * straight into primitive arrays, so no objects are made per segment
+	 * or per number.
 	 * @param fileName
 	 * 		file containing information on road network
 	 */
 	public FileParser(String fileName) {
-		try {
-			// file with input data on transportation network
-			BufferedReader input = new BufferedReader(new FileReader(fileName));
+		this(fileName, false);
+	}
 
+	/**
+	 * Parse input, optionally reading only the trip requests, for when the
+	 * road network comes from a GraphSnapshot
+	 * @param fileName
+	 * 		file containing information on road network
+	 * @param tripsOnly
+	 * 		whether to skip the location and segment lines, leaving the
+	 * 		lists of vertices and segments empty
+	 */
+	public FileParser(String fileName, boolean tripsOnly) {
+		this.fileName = fileName;
+		try (InputScanner input = new InputScanner(fileName)) {
 			// get intersections
-			String line = getDataLine(input);
-			int numLocations = Integer.parseInt(line);
+			input.nextDataLine();
+			int numLocations = input.lineInt();
 
 			for (int count = 0; count < numLocations; count++) {
-				line = getDataLine(input);
-				vertices.add(line.trim());
+				input.nextDataLine();
+				if (!tripsOnly) {
+					vertices.add(parseLocation(input.line(), count, numLocations));
+				}
 			}
 
 			// get road segments
-			line = getDataLine(input);
-			int numSegments = Integer.parseInt(line);
+			input.nextDataLine();
+			int declaredSegments = input.lineInt();
+			if (tripsOnly) {
+				for (int count = 0; count < declaredSegments; count++) {
+					input.nextDataLine();
+				}
+				declaredSegments = 0;
+			}
+			segmentStarts = new int[declaredSegments];
+			segmentEnds = new int[declaredSegments];
+			segmentDistances = new double[declaredSegments];
+			segmentSpeeds = new double[declaredSegments];
 
-			for (int count = 0; count < numSegments; count++) {
-				line = getDataLine(input);
-				segments.add(new Segment(line));
+			for (int count = 0; count < declaredSegments; count++) {
+				input.nextDataLine();
+				parseSegment(input, count);
+				numSegments++;
 			}
 			
-			// TO DO: Make sure all segments are legal, i.e., startIndex
+			// Make sure all segments are legal, i.e., startIndex
 			// and endIndex are legal for vertices.
-			for (Segment seg : segments) {
-				if (seg.getStart() < 0 || seg.getStart() >= vertices.size()) {
-					throw new IllegalArgumentException("start index " + seg.getStart() + " is not legal for vertices");
+			for (int i = 0; i < numSegments; i++) {
+				if (segmentStarts[i] < 0 || segmentStarts[i] >= vertices.size()) {
+					throw new IllegalArgumentException("start index " + segmentStarts[i] + " is not legal for vertices");
 				}
-				if (seg.getEnd() < 0 || seg.getEnd() >= vertices.size()) {
-					throw new IllegalArgumentException("end index " + seg.getEnd() + " is not legal for vertices");
+				if (segmentEnds[i] < 0 || segmentEnds[i] >= vertices.size()) {
+					throw new IllegalArgumentException("end index " + segmentEnds[i] + " is not legal for vertices");
 				}
 			}
 
 
 			// get trip requests
-			line = getDataLine(input);
-			int numTrips = Integer.parseInt(line);
+			input.nextDataLine();
+			int numTrips = input.lineInt();
 
 			for (int count = 0; count < numTrips; count++) {
-				line = getDataLine(input);
+				input.nextDataLine();
 				try {
-					trips.add(new TripRequest(line, vertices));
+					int start = input.nextInt();
+					int end = input.nextInt();
+					boolean isDistance = input.nextFieldEquals("D");
+					// only trips by time have a departure; any other extra field is ignored, as it always was
+					double departure = Double.NaN;
+					if (!isDistance && !input.atEndOfLine()) {
+						try {
+							departure = input.nextDouble();
+						} catch (NumberFormatException e) {
+							// not a time, so not a departure
+						}
+					}
+					if (Double.isNaN(departure)) {
+						trips.add(new TripRequest(start, end, isDistance));
+					} else {
+						trips.add(new TripRequest(start, end, isDistance, departure));
+					}
 				}
 				catch(IllegalArgumentException E){	
 					continue;
 				}
 			}
-
-			input.close();
 		} catch (IOException e) {
 			System.out.println(e);
 		}
 	}
 
 	/**
-	 * 
+	 * Reads one segment line into the segment arrays, with the same checks
+	 * as Segment(String): start index, end index, distance and speed
+	 * separated by spaces, with positive distance and speed. A speed
+	 * profile may follow, as breakpoints "hour=speed" separated by spaces,
+	 * see SpeedProfiles; the plain speed is used by trips without a
+	 * departure time.
+	 * @param input
+	 * 		scanner positioned at the segment line
+	 * @param i
+	 * 		index of the segment
+	 */
+	private void parseSegment(InputScanner input, int i) {
+		segmentStarts[i] = input.nextInt();
+		segmentEnds[i] = input.nextInt();
+		segmentDistances[i] = input.nextDouble();
+		if (segmentDistances[i] <= 0) {
+			throw new ArithmeticException("distance must be positive");
+		}
+		segmentSpeeds[i] = input.nextDouble();
+		if (segmentSpeeds[i] <= 0) {
+			throw new ArithmeticException("speed must be positive");
+		}
+		if (!input.atEndOfLine()) {
+			parseProfile(input, i);
+		}
+	}
+
+	/**
+	 * Reads the speed profile at the end of a segment line
 	 * @param input
-	 *            file from which data is read
-	 * @return next valid line of input, skips blank lines and lines starting
-	 *         with #
-	 * @throws IOException
+	 * 		scanner positioned at the first breakpoint
+	 * @param i
+	 * 		index of the segment
 	 */
-	private String getDataLine(BufferedReader input) throws IOException {
-		String line = input.readLine();
-		while (line.trim().equals("") || line.charAt(0) == ('#')) {
-			line = input.readLine();
+	private void parseProfile(InputScanner input, int i) {
+		if (profiles == null) {
+			profiles = new SpeedProfiles();
+			segmentProfiles = new int[segmentStarts.length];
+			Arrays.fill(segmentProfiles, -1);
+		}
+		double[] hours = new double[4];
+		double[] speeds = new double[4];
+		int n = 0;
+		while (!input.atEndOfLine()) {
+			if (n == hours.length) {
+				hours = Arrays.copyOf(hours, 2 * n);
+				speeds = Arrays.copyOf(speeds, 2 * n);
+			}
+			hours[n] = input.nextDouble('=');
+			speeds[n++] = input.nextDouble();
 		}
+		segmentProfiles[i] = profiles.add(hours, speeds, n);
+	}
 
-		return line;
+	/**
+	 * Reads one location line. A location is a name, optionally followed by
+	 * "|", a tag letter and two coordinates: "P x y" for planar coordinates
+	 * in the same unit as segment distances, or "G lat lon" for latitude and
+	 * longitude in degrees. All locations with coordinates must use the same tag.
+	 * A "|" not followed by such coordinates is part of the name.
+	 * @param line
+	 * 		location line from the input
+	 * @param index
+	 * 		index of the location
+	 * @param numLocations
+	 * 		number of locations in the input
+	 * @return name of the location
+	 */
+	private String parseLocation(String line, int index, int numLocations) {
+		int bar = line.lastIndexOf('|');
+		if (bar < 0) {
+			return line.trim();
+		}
+		String[] pieces = line.substring(bar + 1).trim().split("\\s+");
+		if (pieces.length != 3 || !(pieces[0].equals("P") || pieces[0].equals("G"))) {
+			return line.trim();
+		}
+		double first, second;
+		try {
+			first = Double.parseDouble(pieces[1]);
+			second = Double.parseDouble(pieces[2]);
+		} catch (NumberFormatException e) {
+			return line.trim();
+		}
+		boolean geographic = pieces[0].equals("G");
+		if (coordinates == null) {
+			coordinates = new Coordinates(numLocations, geographic);
+		} else if (coordinates.isGeographic() != geographic) {
+			throw new IllegalArgumentException("location " + index + " mixes planar and geographic coordinates");
+		}
+		coordinates.set(index, first, second);
+		return line.substring(0, bar).trim();
 	}
 
 	/**
@@ -108,7 +245,19 @@ public class FileParser {
 	 * @return list of segments (edges) from the input
 	 */
 	public List<Segment> getSegments() {
-		return segments;
+		// a view of the segment arrays; Segment objects are made as they are read
+		return new AbstractList<Segment>() {
+			public Segment get(int i) {
+				if (i < 0 || i >= numSegments) {
+					throw new IndexOutOfBoundsException("segment " + i + " of " + numSegments);
+				}
+				return new Segment(segmentStarts[i], segmentEnds[i], segmentDistances[i], segmentSpeeds[i]);
+			}
+
+			public int size() {
+				return numSegments;
+			}
+		};
 	}
 
 	/**
@@ -119,6 +268,42 @@ public class FileParser {
 		return trips;
 	}
 
+	/**
+	 * 
+	 * @return positions of the vertices, or null if the input has none
+	 */
+	public Coordinates getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * 
+	 * @return highest speed of any segment, 0 if there are no segments
+	 */
+	public double getMaxSpeed() {
+		double maxSpeed = 0;
+		for (int i = 0; i < numSegments; i++) {
+			maxSpeed = Math.max(maxSpeed, segmentSpeeds[i]);
+		}
+		return maxSpeed;
+	}
+
+	/**
+	 * Builds the straight-line A* heuristic for the graph made by
+	 * makeGraph(isDistance) or makeCompactGraph(isDistance). For distance
+	 * graphs it is the straight-line distance to the target; for time graphs
+	 * it is that distance divided by the highest segment speed, as no trip
+	 * can cover it faster.
+	 * @param isDistance Whether the heuristic is for the distance or the time graph.
+	 * @return  the heuristic, or null unless every location has coordinates
+	 */
+	public Heuristic makeHeuristic(boolean isDistance) {
+		if (coordinates == null || !coordinates.hasAll()) {
+			return null;
+		}
+		return coordinates.heuristic(isDistance ? 1.0 : 1.0 / getMaxSpeed());
+	}
+
 	/**
 	 * Builds graph from input file
 	 * @param isDistance Whether to make graph with edges for distance or for time.
@@ -129,22 +314,22 @@ public class FileParser {
 		EdgeWeightedDigraph myGraph = new EdgeWeightedDigraph(vertices.size());
 		
 		// loop through each segment
-		for (Segment mySeg : segments) {
+		for (int i = 0; i < numSegments; i++) {
 			// declaring DirectedEdge
 			DirectedEdge newEdge;
 			
 			// checking if making graphs for distance or for time
 			if (isDistance) {
 			// get the distance from the segment (distance is the weight)
-				double dist = mySeg.getDistance();
+				double dist = segmentDistances[i];
 				// create a new DirectedEdge
-				newEdge = new DirectedEdge(mySeg.getStart(), mySeg.getEnd(), dist);
+				newEdge = new DirectedEdge(segmentStarts[i], segmentEnds[i], dist);
 			}
 			else { // graph is for time
 				// get the time from the segment (time is the weight)
-				double time = mySeg.getDistance()/mySeg.getSpeed();
+				double time = segmentDistances[i]/segmentSpeeds[i];
 				// create a new DirectedEdge
-				newEdge = new DirectedEdge(mySeg.getStart(), mySeg.getEnd(), time);
+				newEdge = new DirectedEdge(segmentStarts[i], segmentEnds[i], time);
 			}
 			// populate graph with edges based on the segments
 			myGraph.addEdge(newEdge);
@@ -152,6 +337,134 @@ public class FileParser {
 		return myGraph;
 	}
 
+	/**
+	 * Builds a compact (CSR) graph from input file, without creating an
+	 * edge object per segment.
+	 * @param isDistance Whether to make graph with edges for distance or for time.
+	 * @return  Compact graph representing file read in, with the same edges in
+	 * 		the same adjacency order as makeGraph(isDistance)
+	 */
+	public CompactDigraph makeCompactGraph(boolean isDistance) {
+		double[] weights = segmentDistances;
+		if (!isDistance) {
+			weights = new double[numSegments];
+			for (int i = 0; i < numSegments; i++) {
+				weights[i] = segmentDistances[i]/segmentSpeeds[i];
+			}
+		}
+		// the segment arrays already are the parallel arrays fromArrays copies from
+		return CompactDigraph.fromArrays(vertices.size(), segmentStarts, segmentEnds, weights, numSegments);
+	}
+
+
+	/**
+	 * Builds one compact graph holding the weights of every metric, so the
+	 * topology is stored once. view(Metric.DISTANCE) and view(Metric.TIME)
+	 * of it have the same edges and weights as makeCompactGraph(true) and
+	 * makeCompactGraph(false).
+	 * @return  Compact graph representing file read in, with a weight column per metric
+	 */
+	public CompactDigraph makeMultiMetricGraph() {
+		double[][] weights = new double[Metric.values().length][numSegments];
+
+		// one weight column per metric
+		for (int i = 0; i < numSegments; i++) {
+			weights[Metric.DISTANCE.ordinal()][i] = segmentDistances[i];
+			weights[Metric.TIME.ordinal()][i] = segmentDistances[i]/segmentSpeeds[i];
+		}
+		return CompactDigraph.fromArrays(vertices.size(), segmentStarts, segmentEnds, weights, numSegments);
+	}
+
+	/**
+	 * Makes the segments of the input updatable in roads, the graph made by
+	 * makeMultiMetricGraph(); speeds may not rise above getMaxSpeed(), and
+	 * distances not fall below the straight line between the ends
+	 * @param roads
+	 * 		graph made by makeMultiMetricGraph() of this parser
+	 * @return  updater of the weights of roads, segment by segment
+	 */
+	public LiveWeights makeLiveWeights(CompactDigraph roads) {
+		return new LiveWeights(roads, segmentEdges(roads), Arrays.copyOf(segmentSpeeds, numSegments), getMaxSpeed(),
+				coordinates);
+	}
+
+	/**
+	 * Gives the edges of roads, the graph made by makeMultiMetricGraph(),
+	 * the speed profiles of their segments
+	 * @param roads
+	 * 		graph made by makeMultiMetricGraph() of this parser
+	 * @return  the time dependent road network, or null if no segment has a profile
+	 */
+	public TimeDependentGraph makeTimeDependentGraph(CompactDigraph roads) {
+		if (profiles == null) {
+			return null;
+		}
+		int[] segmentEdges = segmentEdges(roads);
+		int[] edgeProfile = new int[numSegments];
+		for (int i = 0; i < numSegments; i++) {
+			edgeProfile[segmentEdges[i]] = segmentProfiles[i];
+		}
+		return new TimeDependentGraph(roads, edgeProfile, profiles);
+	}
+
+	/**
+	 * @return the speed profiles of the segments, or null if no segment has one
+	 */
+	public SpeedProfiles getSpeedProfiles() {
+		return profiles;
+	}
+
+	/**
+	 * Finds the edge each segment became in roads
+	 * @param roads
+	 * 		graph made by makeMultiMetricGraph() of this parser
+	 * @return  segmentEdges[i] = id of the edge of segment i
+	 */
+	private int[] segmentEdges(CompactDigraph roads) {
+		if (roads.V() != vertices.size() || roads.E() != numSegments) {
+			throw new IllegalArgumentException("graph was not made by this parser");
+		}
+		// fromArrays fills every vertex's edges from the back, in input order
+		int[] fill = new int[roads.V()];
+		for (int v = 0; v < fill.length; v++) {
+			fill[v] = roads.endEdge(v);
+		}
+		int[] segmentEdges = new int[numSegments];
+		for (int i = 0; i < numSegments; i++) {
+			segmentEdges[i] = --fill[segmentStarts[i]];
+		}
+		return segmentEdges;
+	}
+
+	/**
+	 * Builds a snapshot of the road network, with the graph made by
+	 * makeMultiMetricGraph() and its strong component ids in the section
+	 * SCC_SECTION, that records this parser's input file as its source.
+	 * Snapshots do not hold speed profiles.
+	 * @return  the snapshot
+	 * @throws IOException if the size or modification time of the input file cannot be read
+	 * @throws IllegalStateException if a segment has a speed profile
+	 */
+	public GraphSnapshot makeSnapshot() throws IOException {
+		if (profiles != null) {
+			throw new IllegalStateException("speed profiles cannot be stored in a snapshot");
+		}
+		CompactDigraph roads = makeMultiMetricGraph();
+		GraphSnapshot snapshot = new GraphSnapshot(vertices, roads, coordinates, getMaxSpeed());
+		snapshot.putSection(GraphSnapshot.SCC_SECTION, new StrongComponents(roads).ids());
+		snapshot.setSource(fileName);
+		return snapshot;
+	}
+
+	/**
+	 * Writes a snapshot of the road network, to be read back with
+	 * GraphSnapshot.load(snapshotFile)
+	 * @param snapshotFile file to write
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void saveSnapshot(String snapshotFile) throws IOException {
+		makeSnapshot().save(snapshotFile);
+	}
 
 	// testing code for file parser
 	public static void main(String[] args) {
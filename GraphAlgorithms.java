@@ -7,11 +7,29 @@ package onTheRoad;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class GraphAlgorithms {
+	/**
+	 * Scale that turns the hours of a time graph into deciseconds, for
+	 * CompactDigraph.quantize
+	 */
+	public static final double DECISECONDS_PER_HOUR = 36000.0;
+
+	// line separator, as written by System.out.println
+	private static final String NEWLINE = System.lineSeparator();
+
+	/**
+	 * Most rows of a distance matrix computed in parallel that are held at once
+	 */
+	public static final int MATRIX_ROWS_IN_FLIGHT = 256;
 
 	/**
 	 * Reverses the edges of a graph
@@ -32,6 +50,34 @@ public class GraphAlgorithms {
 		return revG;
 	}
 
+	/**
+	 * Reverses the edges of a compact graph
+	 *
+	 * @param g
+	 *            compact edge weighted directed graph
+	 * @return compact graph like g except all edges are reversed
+	 */
+	public static CompactDigraph graphEdgeReversal(CompactDigraph g) {
+		int[] tails = new int[g.E()];
+		int[] heads = new int[g.E()];
+		// every weight column is reversed, so the reverse has the same metrics
+		double[][] weights = new double[g.metrics()][g.E()];
+		// walk the edges in reverse order so that the buckets of the reversed
+		// graph list them in the same order graphEdgeReversal(EdgeWeightedDigraph) does
+		int i = 0;
+		for (int v = g.V() - 1; v >= 0; v--) {
+			for (int e = g.endEdge(v) - 1; e >= g.firstEdge(v); e--) {
+				tails[i] = g.target(e);
+				heads[i] = v;
+				for (int c = 0; c < weights.length; c++) {
+					weights[c][i] = g.weight(e, c);
+				}
+				i++;
+			}
+		}
+		CompactDigraph reversed = CompactDigraph.fromArrays(g.V(), tails, heads, weights, g.E());
+		return reversed.columnView(g.column());
+	}
 	/**
 	 * Performs breadth-first search of g from vertex start.
 	 * 
@@ -71,46 +117,73 @@ public class GraphAlgorithms {
 	}
 
 	/**
-	 * Calculates whether the graph is strongly connected
+	 * Performs breadth-first search of compact graph g from vertex start,
+	 * marking every vertex reachable from start in ctx and recording its
+	 * number of hops from start as its distance.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param start
+	 *            index of starting vertex for search
+	 * @param ctx
+	 *            search state to fill in; it is cleared first
+	 * @return number of vertices reached, including start
+	 */
+	public static int breadthFirstSearch(CompactDigraph g, int start, SearchContext ctx) {
+		ctx.clear();
+		// vertices waiting to be visited, as a plain array used as a FIFO queue
+		int[] toVisit = ctx.queue();
+		int head = 0, tail = 0;
+
+		ctx.mark(start);
+		ctx.setDist(start, 0, -1);
+		toVisit[tail++] = start;
+		while (head < tail) {
+			int v = toVisit[head++];
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				int w = g.target(e);
+				if (!ctx.isMarked(w)) {
+					ctx.mark(w);
+					ctx.setDist(w, ctx.getDist(v) + 1, e);
+					toVisit[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Calculates whether the graph is strongly connected, with one pass of
+	 * Tarjan's algorithm and no reversed copy of the graph
 	 * 
 	 * @param g
 	 *            directed edge weighted graph
 	 * @return whether graph g is strongly connected.
 	 */
 	public static boolean isStronglyConnected(EdgeWeightedDigraph g) {
-		// do breadthFirstSearch to see which vertices have been visited starting at 0
-		breadthFirstSearch(g, 0);
-		
-		// loop through the vertices
-		for (int v = 0; v < g.V(); v++) {
-			if (!g.isVisited(v)) { // if it has not been visited 
-				return false;
-			}	
-		}
-		
-		// reverse the graph
-		EdgeWeightedDigraph reverseGraph = graphEdgeReversal(g);
-		
-		// do breadthFirstSearch to see which vertices have been visited starting at 0
-		breadthFirstSearch(reverseGraph, 0);
-		
-		// loop through the vertices
-		for (int v = 0; v < reverseGraph.V(); v++) {
-			if (!reverseGraph.isVisited(v)) { // if it has not been visited 
-				return false;
-			}	
-		}
-		return true;
+		return new StrongComponents(g).isStronglyConnected();
 	}
 	
 	
+	/**
+	 * Calculates whether the compact graph is strongly connected, with one
+	 * pass of Tarjan's algorithm and no reversed copy of the graph
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @return whether graph g is strongly connected.
+	 */
+	public static boolean isStronglyConnected(CompactDigraph g) {
+		return new StrongComponents(g).isStronglyConnected();
+	}
+	
 	/**
 	 * 
 	 * @param g
 	 * @param e
 	 * @param pq
 	 */
-	public static void relax(EdgeWeightedDigraph g, DirectedEdge e, IndexMinPQ<Double> pq) {
+	public static void relax(EdgeWeightedDigraph g, DirectedEdge e, DoubleIndexMinPQ pq) {
 
 		// defining start and finish
 		int v = e.from(), w = e.to();
@@ -139,22 +212,18 @@ public class GraphAlgorithms {
 	 *            directed edge weighted graph
 	 * @param s
 	 *            starting vertex
-	 * @return a hashmap where a key-value pair <i, path_i> corresponds to the i-th
-	 *         vertex and path_i is an arraylist that contains the edges along the
-	 *         shortest path from s to i.
+	 * @return the tree of shortest paths from s: the distance and parent of
+	 *         every vertex, from which tree.pathTo(i) builds the path to
+	 *         vertex i when it is needed
 	 */
-	public static HashMap<Integer, ArrayList<DirectedEdge>> dijkstra(EdgeWeightedDigraph g, int s) {
+	public static ShortestPathTree dijkstra(EdgeWeightedDigraph g, int s) {
+		// after a reset every vertex is at distance positive infinity
 		g.reset();
-		IndexMinPQ<Double> pq;
-		HashMap<Integer, ArrayList<DirectedEdge>> myHash = new HashMap<Integer, ArrayList<DirectedEdge>>();
+		DoubleIndexMinPQ pq;
 		
-		// priority queue of vertices
-		pq = new IndexMinPQ<Double>(g.V());
+		// priority queue of vertices, reused from one search to the next
+		pq = g.searchContext().priorityQueue();
 		
-		// set everything to positive infinity
-		for (int v = 0; v < g.V(); v++) {
-			g.setDist(v, Double.POSITIVE_INFINITY);
-		}
 		g.setDist(s, 0.0);
 
 		// relax vertices in order of distance from s
@@ -165,25 +234,457 @@ public class GraphAlgorithms {
 				relax(g, e, pq);
 			}
 		}
-		// loop through vertices
-		for (int i = 0; i < g.V(); i++) {
-			ArrayList<DirectedEdge> myArray  = new ArrayList<DirectedEdge>();
-			// check if the distance is less than infinity
-			if (g.getDist(i) < Double.POSITIVE_INFINITY) {
-				for (DirectedEdge edge = g.getEdgeTo(i); edge != null; edge = g.getEdgeTo(edge.from())) {
-					myArray.add(edge);
-				}
-				// insert into the hashMap
-				myHash.put(i, myArray);
+		return new ShortestPathTree(g, s);
+	}
+
+	/**
+	 * Relaxes edge e of compact graph g, which leaves vertex v.
+	 * 
+	 * @param g compact directed edge weighted graph
+	 * @param v tail of edge e
+	 * @param e edge id in g
+	 * @param ctx search state holding distances, parent edges and the queue
+	 */
+	public static void relax(CompactDigraph g, int v, int e, SearchContext ctx) {
+		if (QueryStats.ENABLED) ctx.relaxed++;
+		int w = g.target(e);
+		double newDist = ctx.getDist(v) + g.weight(e);
+		if (ctx.getDist(w) > newDist) {
+			ctx.setDist(w, newDist, e);
+			DoubleIndexMinPQ pq = ctx.priorityQueue();
+			if (pq.contains(w)) {
+				pq.decreaseKey(w, newDist);
+				if (QueryStats.ENABLED) ctx.decreaseKeys++;
 			} else {
-				myHash.put(i, null);
+				pq.insert(w, newDist);
+				if (QueryStats.ENABLED) ctx.inserts++;
+			}
+		}
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on compact graph g from starting vertex s,
+	 * filling in the shortest path tree instead of building a path per vertex.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param s
+	 *            starting vertex
+	 * @param ctx
+	 *            search state to fill in; it is cleared first. Afterwards
+	 *            ctx.getDist(v) is the length of the shortest path from s to v
+	 *            and ctx.getEdgeTo(v) the id of its last edge.
+	 */
+	public static void dijkstra(CompactDigraph g, int s, SearchContext ctx) {
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		// relax vertices in order of distance from s
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(s, 0.0);
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) {
+				ctx.delMins++;
+				ctx.settled++;
+			}
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				relax(g, v, e, ctx);
+			}
+		}
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on compact graph g from starting vertex s and
+	 * returns the tree of shortest paths to every vertex.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param s
+	 *            starting vertex
+	 * @return the distance and parent of every vertex, and the id of the
+	 *         last edge on its shortest path; paths are built from it on demand
+	 */
+	public static CompactShortestPathTree dijkstra(CompactDigraph g, int s) {
+		SearchContext ctx = SearchContext.forThread(g.V());
+		dijkstra(g, s, ctx);
+		return new CompactShortestPathTree(g, s, ctx);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on compact graph g from s, stopping as soon
+	 * as target is settled. Only the vertices closer to s than target (and
+	 * their neighbours) are touched, so short trips on a large graph are cheap.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param s
+	 *            starting vertex
+	 * @param target
+	 *            vertex whose shortest path is wanted
+	 * @param ctx
+	 *            search state to fill in; it is cleared first. Settled
+	 *            vertices are marked, and the parent edges of target and all
+	 *            vertices on its shortest path are final.
+	 * @return whether target is reachable from s
+	 */
+	public static boolean dijkstra(CompactDigraph g, int s, int target, SearchContext ctx) {
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		// relax vertices in order of distance from s until target is settled
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(s, 0.0);
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) ctx.delMins++;
+			ctx.mark(v);
+			if (v == target) {
+				return true;
+			}
+			if (QueryStats.ENABLED) ctx.settled++;
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				relax(g, v, e, ctx);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on compact graph g from s, stopping as soon
+	 * as every vertex in targets is settled, so one search answers all trips
+	 * that start at s. The parent edges of every target reached, and of the
+	 * vertices on its shortest path, are final; extractPath(g, ctx, t) builds
+	 * the path to each target t.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param s
+	 *            starting vertex
+	 * @param targets
+	 *            vertices whose shortest paths are wanted; may repeat
+	 * @param ctx
+	 *            search state to fill in; it is cleared first
+	 * @return number of distinct targets reachable from s
+	 */
+	public static int dijkstra(CompactDigraph g, int s, int[] targets, SearchContext ctx) {
+		// distinct targets, sorted so that settled vertices can be looked up
+		int[] pending = targets.clone();
+		Arrays.sort(pending);
+		int distinct = 0;
+		for (int i = 0; i < pending.length; i++) {
+			if (i == 0 || pending[i] != pending[i - 1]) {
+				pending[distinct++] = pending[i];
+			}
+		}
+
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		// relax vertices in order of distance from s until every target is settled
+		int settled = 0;
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(s, 0.0);
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) ctx.delMins++;
+			ctx.mark(v);
+			if (Arrays.binarySearch(pending, 0, distinct, v) >= 0 && ++settled == distinct) {
+				break;
+			}
+			if (QueryStats.ENABLED) ctx.settled++;
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				relax(g, v, e, ctx);
+			}
+		}
+		return settled;
+	}
+
+	/**
+	 * Runs time dependent Dijkstra search on g from s, leaving at departure,
+	 * and stops as soon as target is settled. The driving time of an edge is
+	 * computed when the search reaches it, for the time it is reached; since
+	 * leaving later never means arriving earlier on any edge, the earliest
+	 * arrival at each vertex is also the best time to go on from it, and
+	 * Dijkstra's algorithm stays exact.
+	 * 
+	 * @param g
+	 *            time dependent road network
+	 * @param s
+	 *            starting vertex
+	 * @param target
+	 *            vertex whose fastest path is wanted
+	 * @param departure
+	 *            time of leaving s, in hours from midnight of the first day
+	 * @param ctx
+	 *            search state to fill in; it is cleared first. ctx.getDist(v)
+	 *            is the time taken to reach a settled vertex v, and the
+	 *            parent edges are edges of g.getGraph().
+	 * @return whether target is reachable from s
+	 */
+	public static boolean dijkstra(TimeDependentGraph g, int s, int target, double departure, SearchContext ctx) {
+		CompactDigraph roads = g.getGraph();
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		// settle vertices in order of arrival until target is settled
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(s, 0.0);
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) ctx.delMins++;
+			ctx.mark(v);
+			if (v == target) {
+				return true;
+			}
+			if (QueryStats.ENABLED) ctx.settled++;
+			double dist = ctx.getDist(v);
+			for (int e = roads.firstEdge(v); e < roads.endEdge(v); e++) {
+				if (QueryStats.ENABLED) ctx.relaxed++;
+				int w = roads.target(e);
+				double newDist = dist + g.travelTime(e, departure + dist);
+				if (ctx.getDist(w) > newDist) {
+					ctx.setDist(w, newDist, e);
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, newDist);
+						if (QueryStats.ENABLED) ctx.decreaseKeys++;
+					} else {
+						pq.insert(w, newDist);
+						if (QueryStats.ENABLED) ctx.inserts++;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Turns a path of a time dependent search back into edge objects, each
+	 * weighted by the time it takes when the path is driven from departure
+	 *
+	 * @param g
+	 *            time dependent road network
+	 * @param start
+	 *            first vertex of the path
+	 * @param edgeIds
+	 *            ids of the edges of the path, in order
+	 * @param departure
+	 *            time of leaving start, in hours from midnight of the first day
+	 * @return the edges of the path
+	 */
+	public static ArrayList<DirectedEdge> pathEdges(TimeDependentGraph g, int start, int[] edgeIds, double departure) {
+		CompactDigraph roads = g.getGraph();
+		ArrayList<DirectedEdge> edges = new ArrayList<DirectedEdge>(edgeIds.length);
+		int from = start;
+		double time = departure;
+		for (int e : edgeIds) {
+			double taken = g.travelTime(e, time);
+			edges.add(new DirectedEdge(from, roads.target(e), taken));
+			time += taken;
+			from = roads.target(e);
+		}
+		return edges;
+	}
+
+	/**
+	 * Computes the many-to-many matrix of shortest path lengths from every
+	 * source to every target, with one Dijkstra search per source that stops
+	 * once all targets are settled. The metric is that of g, the distance
+	 * or the time graph.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param sources
+	 *            start vertices, one row each
+	 * @param targets
+	 *            end vertices, one column each
+	 * @return matrix[i][j] = length of the shortest path from sources[i] to
+	 *         targets[j], positive infinity if there is none
+	 */
+	public static double[][] distanceMatrix(CompactDigraph g, int[] sources, int[] targets) {
+		final double[][] matrix = new double[sources.length][];
+		distanceMatrix(g, sources, targets, null, new MatrixSink() {
+			public void row(int source, double[] distances) {
+				matrix[source] = distances.clone();
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * Computes the many-to-many matrix of shortest path lengths under metric
+	 * on a graph with several weights per edge, see distanceMatrix(g, sources, targets).
+	 * 
+	 * @param g
+	 *            compact directed graph with a weight column for metric
+	 * @param metric
+	 *            what the path lengths measure
+	 * @param sources
+	 *            start vertices, one row each
+	 * @param targets
+	 *            end vertices, one column each
+	 * @return matrix[i][j] = length of the shortest path from sources[i] to
+	 *         targets[j] under metric, positive infinity if there is none
+	 */
+	public static double[][] distanceMatrix(CompactDigraph g, Metric metric, int[] sources, int[] targets) {
+		return distanceMatrix(g.view(metric), sources, targets);
+	}
+
+	/**
+	 * Computes the many-to-many matrix of shortest path lengths from every
+	 * source to every target and hands it to sink row by row, in the order of
+	 * sources. With an executor, the searches of different sources run in
+	 * parallel; at most MATRIX_ROWS_IN_FLIGHT rows are held at a time.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param sources
+	 *            start vertices, one row each
+	 * @param targets
+	 *            end vertices, one column each
+	 * @param executor
+	 *            runs the searches, or null to run them on the calling thread
+	 * @param sink
+	 *            receives the rows, on the calling thread
+	 */
+	public static void distanceMatrix(final CompactDigraph g, int[] sources, final int[] targets,
+			ExecutorService executor, MatrixSink sink) {
+		if (executor == null) {
+			double[] row = new double[targets.length];
+			for (int i = 0; i < sources.length; i++) {
+				distanceRow(g, sources[i], targets, row);
+				sink.row(i, row);
+			}
+			return;
+		}
+		Deque<Future<double[]>> inFlight = new ArrayDeque<Future<double[]>>();
+		try {
+			for (int next = 0, done = 0; done < sources.length; ) {
+				// keep the executor busy, but hold a bounded number of rows
+				while (next < sources.length && inFlight.size() < MATRIX_ROWS_IN_FLIGHT) {
+					final int source = sources[next++];
+					inFlight.add(executor.submit(new Callable<double[]>() {
+						public double[] call() {
+							return distanceRow(g, source, targets, new double[targets.length]);
+						}
+					}));
+				}
+				sink.row(done++, inFlight.remove().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while computing distances", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Future<double[]> row : inFlight) {
+				row.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Fills row with the shortest path lengths from s to each of targets
+	 * @return row
+	 */
+	private static double[] distanceRow(CompactDigraph g, int s, int[] targets, double[] row) {
+		SearchContext ctx = SearchContext.forThread(g.V());
+		dijkstra(g, s, targets, ctx);
+		for (int j = 0; j < targets.length; j++) {
+			row[j] = ctx.getDist(targets[j]);
+		}
+		return row;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on quantized graph g from starting vertex s,
+	 * using the given kind of priority queue. Since the weights are integers,
+	 * DIAL and RADIX can replace the heap; all three give the same distances.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph made by CompactDigraph.quantize
+	 * @param s
+	 *            starting vertex
+	 * @param strategy
+	 *            priority queue to use
+	 * @param ctx
+	 *            search state to fill in, as by dijkstra(g, s, ctx). Distances
+	 *            are in the quantized unit; divide them by g.scale() for the
+	 *            original unit.
+	 * @throws IllegalArgumentException if g is not quantized
+	 */
+	public static void dijkstra(CompactDigraph g, int s, QueueStrategy strategy, SearchContext ctx) {
+		dijkstra(g, s, -1, strategy, ctx);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm on quantized graph g from s with the given
+	 * kind of priority queue, stopping as soon as target is settled.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph made by CompactDigraph.quantize
+	 * @param s
+	 *            starting vertex
+	 * @param target
+	 *            vertex whose shortest path is wanted, or -1 to search the whole graph
+	 * @param strategy
+	 *            priority queue to use
+	 * @param ctx
+	 *            search state to fill in, as by dijkstra(g, s, target, ctx)
+	 * @return whether target is reachable from s, false if target is -1
+	 * @throws IllegalArgumentException if g is not quantized
+	 */
+	public static boolean dijkstra(CompactDigraph g, int s, int target, QueueStrategy strategy, SearchContext ctx) {
+		if (!g.isQuantized()) {
+			throw new IllegalArgumentException("graph must be quantized to use " + strategy);
+		}
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		// integer distances are exact in a double up to 2^53
+		MonotonePQ pq = ctx.monotoneQueue(strategy, g.maxIntWeight());
+		pq.insert(s, 0L);
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) ctx.delMins++;
+			ctx.mark(v);
+			if (v == target) {
+				return true;
+			}
+			if (QueryStats.ENABLED) ctx.settled++;
+			long distV = (long) ctx.getDist(v);
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				if (QueryStats.ENABLED) ctx.relaxed++;
+				int w = g.target(e);
+				long newDist = distV + g.intWeight(e);
+				if (ctx.getDist(w) > newDist) {
+					ctx.setDist(w, newDist, e);
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, newDist);
+						if (QueryStats.ENABLED) ctx.decreaseKeys++;
+					} else {
+						pq.insert(w, newDist);
+						if (QueryStats.ENABLED) ctx.inserts++;
+					}
+				}
 			}
 		}
-	return myHash;
+		return false;
 	}
 
 	/**
 	 * Computes shortest path from start to end using Dijkstra's algorithm.
+	 * The search stops as soon as end is settled, and only the path to end
+	 * is built.
 	 *
 	 * @param g
 	 *            directed graph
@@ -191,21 +692,329 @@ public class GraphAlgorithms {
 	 *            starting node in search for shortest path
 	 * @param end
 	 *            ending node in search for shortest path
-	 * @return a list of edges in that shortest path in correct order
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
 	 */
 	public static ArrayList<DirectedEdge> getShortestPath(EdgeWeightedDigraph g, int start, int end) {
-		// run dijkstra
-		HashMap<Integer, ArrayList<DirectedEdge>> hashDJ = dijkstra(g, start);
-		
-		// create a new ArrayList with edges running from start to end.
+		// after a reset every vertex is at distance positive infinity
+		g.reset();
+		DoubleIndexMinPQ pq = g.searchContext().priorityQueue();
+		g.setDist(start, 0.0);
+
+		// relax vertices in order of distance from start until end is settled
+		pq.insert(start, g.getDist(start));
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (v == end) {
+				break;
+			}
+			for (DirectedEdge e : g.adj(v)) {
+				relax(g, e, pq);
+			}
+		}
+		if (g.getDist(end) == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+
+		// walk back from end, then put the edges in order from start to end
 		ArrayList<DirectedEdge> edges = new ArrayList<DirectedEdge>();
-		
-		// get all the paths from start to end
-		ArrayList<DirectedEdge> endPath = hashDJ.get(end);
-		
-		// add list paths in reverse order
-		for(int i = endPath.size()-1; i>=0; i--) {
-			edges.add(endPath.get(i));
+		for (DirectedEdge edge = g.getEdgeTo(end); edge != null; edge = g.getEdgeTo(edge.from())) {
+			edges.add(edge);
+		}
+		Collections.reverse(edges);
+		return edges;
+	}
+
+	/**
+	 * Computes shortest path from start to end on a compact graph using
+	 * Dijkstra's algorithm.
+	 *
+	 * @param g
+	 *            compact directed graph
+	 * @param start
+	 *            starting node in search for shortest path
+	 * @param end
+	 *            ending node in search for shortest path
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
+	 */
+	public static ArrayList<DirectedEdge> getShortestPath(CompactDigraph g, int start, int end) {
+		return getShortestPath(g, start, end, SearchContext.forThread(g.V()));
+	}
+
+	/**
+	 * Computes shortest path from start to end on a compact graph using
+	 * Dijkstra's algorithm, keeping the search state in ctx so that several
+	 * threads can query the same graph.
+	 *
+	 * @param g
+	 *            compact directed graph
+	 * @param start
+	 *            starting node in search for shortest path
+	 * @param end
+	 *            ending node in search for shortest path
+	 * @param ctx
+	 *            search state owned by the calling thread
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
+	 */
+	public static ArrayList<DirectedEdge> getShortestPath(CompactDigraph g, int start, int end, SearchContext ctx) {
+		if (!dijkstra(g, start, end, ctx)) {
+			return null;
+		}
+		return extractPath(g, ctx, end);
+	}
+
+	/**
+	 * Runs A* search on compact graph g from s to target: Dijkstra's
+	 * algorithm with every vertex keyed by its distance from s plus h's lower
+	 * bound on its distance to target, so that the search heads towards
+	 * target instead of growing a disk around s.
+	 * 
+	 * @param g
+	 *            compact directed edge weighted graph
+	 * @param s
+	 *            starting vertex
+	 * @param target
+	 *            vertex whose shortest path is wanted
+	 * @param h
+	 *            consistent lower bound on the distance to target
+	 * @param ctx
+	 *            search state to fill in; it is cleared first
+	 * @return whether target is reachable from s
+	 */
+	public static boolean aStar(CompactDigraph g, int s, int target, Heuristic h, SearchContext ctx) {
+		ctx.clear();
+		ctx.setDist(s, 0.0, -1);
+
+		DoubleIndexMinPQ pq = ctx.priorityQueue();
+		pq.insert(s, h.lowerBound(s, target));
+		if (QueryStats.ENABLED) ctx.inserts++;
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			if (QueryStats.ENABLED) ctx.delMins++;
+			ctx.mark(v);
+			if (v == target) {
+				return true;
+			}
+			if (QueryStats.ENABLED) ctx.settled++;
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				if (QueryStats.ENABLED) ctx.relaxed++;
+				int w = g.target(e);
+				double newDist = ctx.getDist(v) + g.weight(e);
+				if (ctx.getDist(w) > newDist) {
+					ctx.setDist(w, newDist, e);
+					double key = newDist + h.lowerBound(w, target);
+					if (pq.contains(w)) {
+						// the sum can round to the old key even though newDist is smaller
+						if (key < pq.keyOf(w)) {
+							pq.decreaseKey(w, key);
+							if (QueryStats.ENABLED) ctx.decreaseKeys++;
+						}
+					} else {
+						pq.insert(w, key);
+						if (QueryStats.ENABLED) ctx.inserts++;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes shortest path from start to end on a compact graph using A*
+	 * search with heuristic h, such as the straight-line heuristic from
+	 * FileParser.makeHeuristic.
+	 *
+	 * @param g
+	 *            compact directed graph
+	 * @param start
+	 *            starting node in search for shortest path
+	 * @param end
+	 *            ending node in search for shortest path
+	 * @param h
+	 *            consistent lower bound on the distance to end
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
+	 */
+	public static ArrayList<DirectedEdge> getShortestPath(CompactDigraph g, int start, int end, Heuristic h) {
+		SearchContext ctx = SearchContext.forThread(g.V());
+		if (!aStar(g, start, end, h, ctx)) {
+			return null;
+		}
+		return extractPath(g, ctx, end);
+	}
+
+	/**
+	 * Computes shortest path from start to end on a compact graph using
+	 * bidirectional Dijkstra: a forward search from start on g and a backward
+	 * search from end on the (cached) reverse of g take turns, until the sum
+	 * of the two smallest queue keys reaches the best path seen so far.
+	 *
+	 * @param g
+	 *            compact directed graph
+	 * @param start
+	 *            starting node in search for shortest path
+	 * @param end
+	 *            ending node in search for shortest path
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
+	 */
+	public static ArrayList<DirectedEdge> bidirectionalShortestPath(CompactDigraph g, int start, int end) {
+		return bidirectionalShortestPath(g, start, end,
+				SearchContext.forThread(g.V(), SearchContext.FORWARD),
+				SearchContext.forThread(g.V(), SearchContext.BACKWARD));
+	}
+
+	/**
+	 * Computes shortest path from start to end on a compact graph using
+	 * bidirectional Dijkstra, keeping the state of the two searches in
+	 * fwd and bwd.
+	 *
+	 * @param g
+	 *            compact directed graph
+	 * @param start
+	 *            starting node in search for shortest path
+	 * @param end
+	 *            ending node in search for shortest path
+	 * @param fwd
+	 *            search state of the forward search on g
+	 * @param bwd
+	 *            search state of the backward search on g.reverse()
+	 * @return a list of edges in that shortest path in correct order, or null
+	 *         if end cannot be reached from start
+	 */
+	public static ArrayList<DirectedEdge> bidirectionalShortestPath(CompactDigraph g, int start, int end,
+			SearchContext fwd, SearchContext bwd) {
+		CompactDigraph rev = g.reverse();
+		fwd.clear();
+		bwd.clear();
+		fwd.setDist(start, 0.0, -1);
+		bwd.setDist(end, 0.0, -1);
+		DoubleIndexMinPQ fwdPQ = fwd.priorityQueue();
+		DoubleIndexMinPQ bwdPQ = bwd.priorityQueue();
+		fwdPQ.insert(start, 0.0);
+		bwdPQ.insert(end, 0.0);
+
+		// length of the shortest path found so far, and the vertex where its halves meet
+		double best = start == end ? 0.0 : Double.POSITIVE_INFINITY;
+		int meet = start == end ? start : -1;
+
+		boolean forward = true;
+		while (!fwdPQ.isEmpty() && !bwdPQ.isEmpty()) {
+			// no path through an unsettled vertex can beat best any more
+			if (fwdPQ.minKey() + bwdPQ.minKey() >= best) {
+				break;
+			}
+			CompactDigraph side = forward ? g : rev;
+			SearchContext ctx = forward ? fwd : bwd;
+			SearchContext other = forward ? bwd : fwd;
+
+			int v = ctx.priorityQueue().delMin();
+			ctx.mark(v);
+			for (int e = side.firstEdge(v); e < side.endEdge(v); e++) {
+				relax(side, v, e, ctx);
+				// a vertex reached from both ends closes a path
+				int w = side.target(e);
+				if (other.isReached(w)) {
+					double length = ctx.getDist(w) + other.getDist(w);
+					if (length < best) {
+						best = length;
+						meet = w;
+					}
+				}
+			}
+			forward = !forward;
+		}
+		if (meet == -1) {
+			return null;
+		}
+
+		// forward half from start to meet, then backward half from meet to end;
+		// a reverse edge y->x taken by the backward search is the edge x->y of g
+		ArrayList<DirectedEdge> edges = extractPath(g, fwd, meet);
+		for (int x = meet; bwd.getEdgeTo(x) != -1; ) {
+			int e = bwd.getEdgeTo(x);
+			int y = rev.source(e);
+			edges.add(new DirectedEdge(x, y, rev.weight(e)));
+			x = y;
+		}
+		return edges;
+	}
+
+	/**
+	 * Builds the path to end out of the parent edges a search left in ctx.
+	 *
+	 * @param g
+	 *            compact directed graph that was searched
+	 * @param ctx
+	 *            search state of a search that reached end
+	 * @param end
+	 *            last vertex of the path
+	 * @return a list of edges in the path from the search's start to end in
+	 *         correct order, or null if the search did not reach end
+	 */
+	public static ArrayList<DirectedEdge> extractPath(CompactDigraph g, SearchContext ctx, int end) {
+		int[] edgeIds = extractEdgeIds(g, ctx, end);
+		if (edgeIds == null) {
+			return null;
+		}
+		int start = edgeIds.length == 0 ? end : g.source(edgeIds[0]);
+		return pathEdges(g, start, edgeIds);
+	}
+
+	/**
+	 * Builds the path to end out of the parent edges a search left in ctx,
+	 * as edge ids, which take far less memory than edge objects.
+	 *
+	 * @param g
+	 *            compact directed graph that was searched
+	 * @param ctx
+	 *            search state of a search that reached end
+	 * @param end
+	 *            last vertex of the path
+	 * @return the ids of the edges in the path from the search's start to end
+	 *         in correct order, or null if the search did not reach end
+	 */
+	public static int[] extractEdgeIds(CompactDigraph g, SearchContext ctx, int end) {
+		if (!ctx.isReached(end)) {
+			return null;
+		}
+		// walk back from end, then put the edges in order from start to end
+		int[] edgeIds = new int[8];
+		int length = 0;
+		for (int v = end; ctx.getEdgeTo(v) != -1; ) {
+			if (length == edgeIds.length) {
+				edgeIds = Arrays.copyOf(edgeIds, 2 * length);
+			}
+			int e = ctx.getEdgeTo(v);
+			edgeIds[length++] = e;
+			v = g.source(e);
+		}
+		int[] path = new int[length];
+		for (int i = 0; i < length; i++) {
+			path[i] = edgeIds[length - 1 - i];
+		}
+		return path;
+	}
+
+	/**
+	 * Turns a path given as edge ids of g back into edge objects
+	 *
+	 * @param g
+	 *            compact directed graph the ids belong to
+	 * @param start
+	 *            first vertex of the path
+	 * @param edgeIds
+	 *            ids of the edges of the path, in order
+	 * @return a list of the edges in the path in correct order
+	 */
+	public static ArrayList<DirectedEdge> pathEdges(CompactDigraph g, int start, int[] edgeIds) {
+		ArrayList<DirectedEdge> edges = new ArrayList<DirectedEdge>(edgeIds.length);
+		int from = start;
+		for (int e : edgeIds) {
+			edges.add(g.edge(from, e));
+			from = g.target(e);
 		}
 		return edges;
 	}
@@ -218,6 +1027,25 @@ public class GraphAlgorithms {
 	 * @param isDistance prints it based on distance (true) or time (false)
 	 */
 	public static void printShortestPath(ArrayList<DirectedEdge> path, boolean isDistance, List<String> vertices) {
+		StringBuilder out = new StringBuilder();
+		formatShortestPath(out, path, isDistance, vertices);
+		System.out.print(out);
+	}
+
+	/**
+	 * Appends the text printShortestPath prints for path to out, so that
+	 * paths found on several threads can be printed in order afterwards.
+	 * 
+	 * @param out
+	 *            where to append the text
+	 * @param path
+	 *            list of edges in shortest path, in order
+	 * @param isDistance
+	 *            true if path is by distance, false if by time
+	 * @param vertices
+	 *            list of vertex names
+	 */
+	public static void formatShortestPath(StringBuilder out, ArrayList<DirectedEdge> path, boolean isDistance, List<String> vertices) {
 		// Hint: Look into TestGraphs for format of printout
 		
 		// if it is distance
@@ -226,66 +1054,63 @@ public class GraphAlgorithms {
 			double distance = 0;
 			
 			// print each step
-			System.out.println("\tBegin at " + vertices.get(path.get(0).from()));
+			out.append("\tBegin at ").append(vertices.get(path.get(0).from())).append(NEWLINE);
 			for (int i = 0; i < path.size(); i++) {
-				System.out.println("\tContinue to " + vertices.get(path.get(i).to()) + "(" + path.get(i).weight() + ")");
+				out.append("\tContinue to ").append(vertices.get(path.get(i).to()))
+						.append('(').append(path.get(i).weight()).append(')').append(NEWLINE);
 				distance += path.get(i).weight();
 			}
 			
 			// print total distance
-			System.out.println("Total distance: " + distance + " miles");
+			out.append("Total distance: ").append(distance).append(" miles").append(NEWLINE);
 		} 
 		// if it is time
 		else {
 			// keep a variable of the total time
 			double time = 0;
-			System.out.println("\tBegin at " + vertices.get(path.get(0).from()));
+			out.append("\tBegin at ").append(vertices.get(path.get(0).from())).append(NEWLINE);
 			
 			//print each path
 			for (int i = 0; i < path.size(); i++) {
-				System.out.println("\tContinue to " + vertices.get(path.get(i).to()) + " (" + hoursToHMS(path.get(i).weight()) + ")");
+				out.append("\tContinue to ").append(vertices.get(path.get(i).to()))
+						.append(" (");
+				appendHMS(out, path.get(i).weight()).append(')').append(NEWLINE);
 				time += path.get(i).weight();
 			}
-			System.out.println("Total time: " + hoursToHMS(time));
+			out.append("Total time: ");
+			appendHMS(out, time).append(NEWLINE);
 		}
 	}
 
 	/**
-	 * Converts hours (in decimal) to hours, minutes, and seconds
-	 * 
+	 * Appends a time as hours, minutes and seconds to the tenth, as in
+	 * "1 hrs 2 mins 3.4 secs", leaving out leading zero hours and minutes.
+	 * Only ints and chars are appended, so nothing is allocated.
+	 *
+	 * @param out
+	 *            where to append the time
 	 * @param rawhours
-	 *            time elapsed
-	 * @return Equivalent of rawhours in hours, minutes, and seconds (to nearest
-	 *         10th of a second)
+	 *            time in hours, not negative
+	 * @return out
 	 */
-	private static String hoursToHMS(double rawhours) {
+	static StringBuilder appendHMS(StringBuilder out, double rawhours) {
 		//translating hours into ints
 		int numHours = (int)rawhours;
 		
-		//finding the fractional hours
-		double fractionalHours = rawhours - numHours;
-		
-		//finding number of tenth seconds
-		int tenthSeconds = (int)Math.round(fractionalHours * 36000);
+		//number of tenth seconds in the fractional hours
+		int tenthSeconds = (int)Math.round((rawhours - numHours) * 36000);
 		
-		//calculating number of mins based of tenths of seconds
+		//full minutes, and the tenth seconds left after them
 		int minutes = tenthSeconds/600;
+		int tenthSecondsLeft = tenthSeconds - 600 * minutes;
 		
-		//finding remainder of tenth of seconds left after subtracting full minutes
-		double tenthSecondsLeft = tenthSeconds - 600 * minutes;
-		
-		//calculating number of seconds with remaining tenth seconds
-		double seconds = tenthSecondsLeft / 10;
-		
-		//final time output
-		if (numHours == 0 && minutes == 0) {
-			return seconds + " secs";
+		//final time output, with the seconds to one decimal as a double prints them
+		if (numHours != 0) {
+			out.append(numHours).append(" hrs ");
 		}
-		else if (numHours == 0) {
-			return minutes + " mins " + seconds + " secs";
-		}
-		else {
-			return numHours + " hrs " + minutes + " mins " + seconds + " secs";
+		if (numHours != 0 || minutes != 0) {
+			out.append(minutes).append(" mins ");
 		}
+		return out.append(tenthSecondsLeft / 10).append('.').append(tenthSecondsLeft % 10).append(" secs");
 	}
 }
\ No newline at end of file
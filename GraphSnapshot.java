@@ -0,0 +1,368 @@
+package onTheRoad;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A built road network in a binary file, so a restart does not have to
+ * parse the text input and build the graph again. A snapshot holds the
+ * vertex names, the compact graph with one weight column per metric, the
+ * coordinates and highest speed for the A* heuristics, and any number of
+ * named int sections for preprocessing results, one value per vertex or
+ * otherwise.
+ * <p>
+ * The file is little-endian and starts with a magic number and a format
+ * version; it ends with a CRC-32 of everything before it, checked on
+ * load. It is written and read through a memory mapping, so a snapshot
+ * can be at most 2 GB.
+ * <p>
+ * A snapshot also records the size and modification time of the text file
+ * it was built from, see isSnapshotOf, so callers can tell when it is stale.
+ */
+public class GraphSnapshot {
+	/**
+	 * Name of the section holding StrongComponents.ids() of the graph
+	 */
+	public static final String SCC_SECTION = "scc";
+
+	// "OTRG" read as a little-endian int
+	private static final int MAGIC = 0x4752544F;
+
+	// format version written; load accepts this version only
+	private static final int VERSION = 1;
+
+	// flags of the header
+	private static final int HAS_COORDINATES = 1;
+	private static final int GEOGRAPHIC = 2;
+
+	// bytes of the fixed header and of the checksum
+	private static final int HEADER_BYTES = 48;
+	private static final int CHECKSUM_BYTES = 8;
+
+	private List<String> vertices;
+	private CompactDigraph graph;
+	private Coordinates coordinates;
+	private double maxSpeed;
+	private Map<String, int[]> sections = new LinkedHashMap<String, int[]>();
+
+	// size and modification time of the text input, -1 if unknown
+	private long sourceLength = -1;
+	private long sourceModified = -1;
+
+	/**
+	 * @param vertices
+	 * 		names of the vertices
+	 * @param graph
+	 * 		the road network with a weight column per metric, as made by
+	 * 		FileParser.makeMultiMetricGraph()
+	 * @param coordinates
+	 * 		positions of the vertices, or null
+	 * @param maxSpeed
+	 * 		highest speed of any segment
+	 */
+	public GraphSnapshot(List<String> vertices, CompactDigraph graph, Coordinates coordinates, double maxSpeed) {
+		if (vertices.size() != graph.V()) {
+			throw new IllegalArgumentException(vertices.size() + " names for " + graph.V() + " vertices");
+		}
+		this.vertices = vertices;
+		this.graph = graph.columnView(0);
+		this.coordinates = coordinates;
+		this.maxSpeed = maxSpeed;
+	}
+
+	/**
+	 * @return names of the vertices
+	 */
+	public List<String> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * @return the road network, weighted by the first metric; view(Metric)
+	 * 		gives the others
+	 */
+	public CompactDigraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return positions of the vertices, or null if there are none
+	 */
+	public Coordinates getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * @return highest speed of any segment
+	 */
+	public double getMaxSpeed() {
+		return maxSpeed;
+	}
+
+	/**
+	 * Builds the straight-line A* heuristic, as FileParser.makeHeuristic does
+	 * @param isDistance
+	 * 		whether the heuristic is for the distance or the time graph
+	 * @return the heuristic, or null unless every vertex has coordinates
+	 */
+	public Heuristic makeHeuristic(boolean isDistance) {
+		if (coordinates == null || !coordinates.hasAll()) {
+			return null;
+		}
+		return coordinates.heuristic(isDistance ? 1.0 : 1.0 / maxSpeed);
+	}
+
+	/**
+	 * Adds a named int section, replacing any section with that name
+	 * @param name
+	 * 		name of the section
+	 * @param data
+	 * 		its contents; not copied
+	 */
+	public void putSection(String name, int[] data) {
+		sections.put(name, data);
+	}
+
+	/**
+	 * @param name
+	 * 		name of the section
+	 * @return the contents of the section, or null if there is none by that name
+	 */
+	public int[] getSection(String name) {
+		return sections.get(name);
+	}
+
+	/**
+	 * @return names of the int sections, in the order they were added
+	 */
+	public List<String> sectionNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(sections.keySet()));
+	}
+
+	/**
+	 * Records the text file this snapshot is built from
+	 * @param textFile
+	 * 		the input file
+	 * @throws IOException
+	 * 		if its size or modification time cannot be read
+	 */
+	public void setSource(String textFile) throws IOException {
+		Path path = Paths.get(textFile);
+		sourceLength = Files.size(path);
+		sourceModified = Files.getLastModifiedTime(path).toMillis();
+	}
+
+	/**
+	 * @param textFile
+	 * 		an input file
+	 * @return whether this snapshot was built from textFile as it is now,
+	 * 		judging by its size and modification time
+	 * @throws IOException
+	 * 		if its size or modification time cannot be read
+	 */
+	public boolean isSnapshotOf(String textFile) throws IOException {
+		Path path = Paths.get(textFile);
+		return sourceLength == Files.size(path) && sourceModified == Files.getLastModifiedTime(path).toMillis();
+	}
+
+	/**
+	 * Writes the snapshot to a file. It is written next to the file and then
+	 * moved over it, so readers never see half a snapshot.
+	 * @param fileName
+	 * 		file to write
+	 * @throws IOException
+	 * 		if the file cannot be written or would be over 2 GB
+	 */
+	public void save(String fileName) throws IOException {
+		int V = graph.V(), E = graph.E();
+		double[][] columns = graph.columns();
+
+		// names as UTF-8, with the offset of each
+		byte[][] names = new byte[V][];
+		long nameBytes = 0;
+		for (int v = 0; v < V; v++) {
+			names[v] = vertices.get(v).getBytes(StandardCharsets.UTF_8);
+			nameBytes += names[v].length;
+		}
+
+		long size = HEADER_BYTES + 4 + 4L * (V + 1) + nameBytes + 4L * (V + 1) + 4L * E
+				+ 8L * columns.length * E + (coordinates == null ? 0 : 16L * V) + 4 + CHECKSUM_BYTES;
+		for (Map.Entry<String, int[]> section : sections.entrySet()) {
+			size += 4 + section.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + 4L * section.getValue().length;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("snapshot of " + size + " bytes is over 2 GB");
+		}
+
+		Path target = Paths.get(fileName).toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				out.order(ByteOrder.LITTLE_ENDIAN);
+
+				int flags = coordinates == null ? 0 : HAS_COORDINATES | (coordinates.isGeographic() ? GEOGRAPHIC : 0);
+				out.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(E).putInt(columns.length).putInt(flags);
+				out.putDouble(maxSpeed).putLong(sourceLength).putLong(sourceModified);
+
+				out.putInt((int) nameBytes);
+				int offset = 0;
+				for (int v = 0; v < V; v++) {
+					out.putInt(offset);
+					offset += names[v].length;
+				}
+				out.putInt(offset);
+				for (byte[] name : names) {
+					out.put(name);
+				}
+
+				putInts(out, graph.offsets());
+				putInts(out, graph.targets());
+				for (double[] column : columns) {
+					putDoubles(out, column);
+				}
+				if (coordinates != null) {
+					putDoubles(out, coordinates.x());
+					putDoubles(out, coordinates.y());
+				}
+
+				out.putInt(sections.size());
+				for (Map.Entry<String, int[]> section : sections.entrySet()) {
+					byte[] name = section.getKey().getBytes(StandardCharsets.UTF_8);
+					out.putInt(name.length).put(name).putInt(section.getValue().length);
+					putInts(out, section.getValue());
+				}
+
+				out.putLong(checksum(out, out.position()));
+				out.force();
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by save
+	 * @param fileName
+	 * 		file to read
+	 * @return the snapshot
+	 * @throws IOException
+	 * 		if the file cannot be read, is not a snapshot, has another
+	 * 		format version, or fails its checksum
+	 */
+	public static GraphSnapshot load(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES + CHECKSUM_BYTES) {
+				throw new IOException(fileName + " is not a graph snapshot");
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(fileName + " is over 2 GB");
+			}
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			in.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (in.getInt() != MAGIC) {
+				throw new IOException(fileName + " is not a graph snapshot");
+			}
+			int version = in.getInt();
+			if (version != VERSION) {
+				throw new IOException(fileName + " has snapshot format version " + version + ", expected " + VERSION);
+			}
+			if (checksum(in, (int) size - CHECKSUM_BYTES) != in.getLong((int) size - CHECKSUM_BYTES)) {
+				throw new IOException(fileName + " is corrupt: checksum mismatch");
+			}
+
+			int V = in.getInt(), E = in.getInt(), metrics = in.getInt(), flags = in.getInt();
+			double maxSpeed = in.getDouble();
+			long sourceLength = in.getLong(), sourceModified = in.getLong();
+
+			byte[] nameBytes = new byte[in.getInt()];
+			int[] nameOffsets = getInts(in, V + 1);
+			in.get(nameBytes);
+			List<String> vertices = new ArrayList<String>(V);
+			for (int v = 0; v < V; v++) {
+				vertices.add(new String(nameBytes, nameOffsets[v], nameOffsets[v + 1] - nameOffsets[v], StandardCharsets.UTF_8));
+			}
+
+			int[] offsets = getInts(in, V + 1);
+			int[] targets = getInts(in, E);
+			if (offsets[V] != E) {
+				throw new IOException(fileName + " is corrupt: edge offsets do not match the edge count");
+			}
+			double[][] columns = new double[metrics][];
+			for (int c = 0; c < metrics; c++) {
+				columns[c] = getDoubles(in, E);
+			}
+			Coordinates coordinates = null;
+			if ((flags & HAS_COORDINATES) != 0) {
+				double[] x = getDoubles(in, V);
+				double[] y = getDoubles(in, V);
+				coordinates = new Coordinates((flags & GEOGRAPHIC) != 0, x, y);
+			}
+
+			GraphSnapshot snapshot = new GraphSnapshot(vertices, new CompactDigraph(V, offsets, targets, columns),
+					coordinates, maxSpeed);
+			snapshot.sourceLength = sourceLength;
+			snapshot.sourceModified = sourceModified;
+			int numSections = in.getInt();
+			for (int i = 0; i < numSections; i++) {
+				byte[] name = new byte[in.getInt()];
+				in.get(name);
+				snapshot.putSection(new String(name, StandardCharsets.UTF_8), getInts(in, in.getInt()));
+			}
+			return snapshot;
+		} catch (RuntimeException e) {
+			// a buffer underflow or bad count past a matching checksum
+			throw new IOException(fileName + " is corrupt", e);
+		}
+	}
+
+	// CRC-32 of the first length bytes of buffer
+	private static long checksum(MappedByteBuffer buffer, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate().position(0).limit(length));
+		return crc.getValue();
+	}
+
+	// bulk copies through views, which move the buffer's position by hand
+	private static void putInts(MappedByteBuffer out, int[] a) {
+		out.asIntBuffer().put(a);
+		out.position(out.position() + 4 * a.length);
+	}
+
+	private static void putDoubles(MappedByteBuffer out, double[] a) {
+		out.asDoubleBuffer().put(a);
+		out.position(out.position() + 8 * a.length);
+	}
+
+	private static int[] getInts(MappedByteBuffer in, int n) {
+		int[] a = new int[n];
+		in.asIntBuffer().get(a);
+		in.position(in.position() + 4 * n);
+		return a;
+	}
+
+	private static double[] getDoubles(MappedByteBuffer in, int n) {
+		double[] a = new double[n];
+		in.asDoubleBuffer().get(a);
+		in.position(in.position() + 8 * n);
+		return a;
+	}
+}
@@ -0,0 +1,19 @@
+package onTheRoad;
+
+/**
+ * Lower bound on the remaining cost from a vertex to the target of a
+ * shortest path search, used to steer A* search towards the target.
+ * For the path found by A* to be a shortest one, the bound must never
+ * exceed the true remaining cost, and for every edge v->w of weight x
+ * lowerBound(v, t) must be at most x + lowerBound(w, t).
+ */
+public interface Heuristic {
+	/**
+	 * @param v
+	 *            vertex the estimate is for
+	 * @param target
+	 *            target vertex of the search
+	 * @return a lower bound on the cost of the shortest path from v to target
+	 */
+	double lowerBound(int v, int target);
+}
@@ -0,0 +1,493 @@
+/******************************************************************************
+ *  Dependencies: EdgeWeightedDigraph.java StrongComponents.java EdgeListener.java
+ *  Strong components kept up to date while edges are added.
+ *
+ ******************************************************************************/
+
+package onTheRoad;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ *  The {@code IncrementalComponents} class keeps the strong components of an
+ *  {@link EdgeWeightedDigraph} up to date as edges are added to it, so that
+ *  connectivity and reachability questions do not need a fresh
+ *  {@link StrongComponents} pass after every batch of new road segments.
+ *  <p>
+ *  Components are the sets of a union-find structure (union by size, path
+ *  halving). They are also kept in a topological order of the condensation,
+ *  stored as a doubly linked list with a numeric label per component: every
+ *  edge between two components goes from the higher label to the lower, as
+ *  with the ids of {@link StrongComponents}.
+ *  <p>
+ *  An edge that agrees with the order changes nothing. An edge
+ *  <em>u</em>&rarr;<em>v</em> that goes against it starts two searches, in
+ *  the manner of the dynamic topological orders of Pearce and Kelly and of
+ *  Haeupler et al.: forward from <em>v</em> over the components labelled
+ *  above <em>u</em>'s, and backward from <em>u</em> over those labelled below
+ *  <em>v</em>'s, one edge at a time on each side. Each component keeps lists
+ *  of its edges to and from other components, joined when components merge,
+ *  so the searches never walk the inside of a component. As soon as one
+ *  side has found everything in its range, that side alone is used: its components
+ *  that lie on a cycle through the new edge are merged with the component
+ *  at the other end, and the rest move to just below <em>u</em> (or just
+ *  above <em>v</em>), which makes the order valid again. An insertion thus
+ *  costs at most about twice the smaller side, however large the graph.
+ *  Labels are spread over a wide range; when a gap runs out, the smallest
+ *  surrounding stretch of the list that is sparse enough is renumbered.
+ *  <p>
+ *  {@link #stronglyConnected(int, int)}, {@link #mayReach(int, int)} and
+ *  {@link #count()} take &Theta;(&alpha;(<em>V</em>)) amortized time or less.
+ *  Like {@link EdgeWeightedDigraph}, this class is not safe for use by
+ *  several threads at once.
+ */
+public class IncrementalComponents implements EdgeListener {
+    // labels lie strictly between those of the list's two sentinels
+    private static final long LABEL_SPAN = 1L << 62;
+
+    private final EdgeWeightedDigraph g;
+    private final int[] parent;       // union-find parent; parent[c] == c for representatives
+    private final int[] size;         // size[c] = number of vertices of representative c
+    private final int[] nextMember;   // members of a component form a circular list
+    private int count;                // number of strong components
+
+    // the order: representatives from highest label to lowest, between sentinels
+    private final int head;           // sentinel above every component
+    private final int tail;           // sentinel below every component
+    private final long[] label;       // label[c] = position of representative c
+    private final int[] higher;       // higher[c] = the component before c in the list
+    private final int[] lower;        // lower[c] = the component after c in the list
+
+    // edges between different components; an edge joins the out-list of
+    // its tail's component and the in-list of its head's component, and
+    // the lists of merged components are joined, so an edge that ends up
+    // inside a component is dropped the next time a search passes it
+    private int[] edgeFrom = new int[16];
+    private int[] edgeTo = new int[16];
+    private int[] nextOut = new int[16];   // next edge in the same out-list, -1 at the end
+    private int[] nextIn = new int[16];    // next edge in the same in-list, -1 at the end
+    private int numEdges;
+    private final int[] firstOut, lastOut;  // out-list of representative c, -1 if empty
+    private final int[] firstIn, lastIn;    // in-list of representative c, -1 if empty
+
+    // the two searches, over components, one edge per step; marks are
+    // stamps so they are never cleared
+    private final Search forward;
+    private final Search backward;
+    private final int[] onCycle;          // marks components on the cycle closed by the edge
+    private int stamp;
+
+    /**
+     * Computes the strong components of {@code g} and keeps them up to date
+     * as edges are added to it, by registering as its {@link EdgeListener}.
+     *
+     * @param g the digraph
+     */
+    public IncrementalComponents(EdgeWeightedDigraph g) {
+        this.g = g;
+        int V = g.V();
+        parent = new int[V];
+        size = new int[V];
+        nextMember = new int[V];
+        head = V;
+        tail = V + 1;
+        label = new long[V + 2];
+        higher = new int[V + 2];
+        lower = new int[V + 2];
+        firstOut = new int[V];
+        lastOut = new int[V];
+        firstIn = new int[V];
+        lastIn = new int[V];
+        forward = new Search(V, true);
+        backward = new Search(V, false);
+        onCycle = new int[V];
+
+        // start from the components of one Tarjan pass; its ids are a topological order
+        StrongComponents scc = new StrongComponents(g);
+        for (int v = 0; v < V; v++) {
+            parent[v] = v;
+            size[v] = 1;
+            nextMember[v] = v;
+            firstOut[v] = lastOut[v] = firstIn[v] = lastIn[v] = -1;
+        }
+        for (int v = 0; v < V; v++)
+            for (DirectedEdge e : g.adj(v))
+                if (scc.id(v) != scc.id(e.to())) addEdge(v, e.to());
+        int[] representative = new int[scc.count()];
+        Arrays.fill(representative, -1);
+        count = V;
+        for (int v = 0; v < V; v++) {
+            int c = scc.id(v);
+            if (representative[c] == -1) representative[c] = v;
+            else union(find(representative[c]), v);
+        }
+        label[head] = LABEL_SPAN;
+        label[tail] = 0;
+        lower[head] = tail;
+        higher[tail] = head;
+        for (int c = 0; c < representative.length; c++)
+            insertBelow(head, find(representative[c]));
+        spread(head, tail, representative.length);
+        g.addEdgeListener(this);
+    }
+
+    /**
+     * Returns the number of strong components.
+     *
+     * @return the number of strong components
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns true if the digraph is strongly connected.
+     *
+     * @return {@code true} if there is at most one strong component
+     */
+    public boolean isStronglyConnected() {
+        return count <= 1;
+    }
+
+    /**
+     * Returns a representative vertex of the strong component containing
+     * {@code v}. Two vertices are in the same component if and only if they
+     * have the same representative, until the next edge is added.
+     *
+     * @param  v the vertex
+     * @return the representative of the component of {@code v}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public int id(int v) {
+        validateVertex(v);
+        return find(v);
+    }
+
+    /**
+     * Returns true if vertices {@code v} and {@code w} are in the same
+     * strong component.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @return {@code true} if {@code v} and {@code w} are strongly connected
+     * @throws IllegalArgumentException unless {@code 0 <= v < V} and {@code 0 <= w < V}
+     */
+    public boolean stronglyConnected(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        return find(v) == find(w);
+    }
+
+    /**
+     * Returns false if {@code w} is certainly not reachable from {@code v},
+     * as {@link StrongComponents#mayReach(int, int)} does.
+     *
+     * @param  v the start vertex
+     * @param  w the end vertex
+     * @return {@code false} if there is no path from {@code v} to {@code w}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V} and {@code 0 <= w < V}
+     */
+    public boolean mayReach(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        int cv = find(v), cw = find(w);
+        return cv == cw || label[cw] < label[cv];
+    }
+
+    /**
+     * Brings the components up to date after {@code e} was added to the digraph.
+     *
+     * @param g the digraph, which must be the one given to the constructor
+     * @param e the edge added
+     */
+    public void edgeAdded(EdgeWeightedDigraph g, DirectedEdge e) {
+        if (g != this.g)
+            throw new IllegalArgumentException("edge added to another digraph");
+        int u = e.from(), v = e.to();
+        int cu = find(u), cv = find(v);
+        if (cu == cv) return;
+        addEdge(u, v);
+        // an edge from higher to lower label keeps the order valid
+        if (label[cu] > label[cv]) return;
+
+        // search both sides in step until one of them is done
+        stamp++;
+        forward.start(cv, cu);
+        backward.start(cu, cv);
+        while (!forward.isDone() && !backward.isDone()) {
+            forward.step();
+            backward.step();
+        }
+        if (forward.isDone()) reorder(forward.found, forward.numFound, forward.foundCycle, cu, true);
+        else reorder(backward.found, backward.numFound, backward.foundCycle, cv, false);
+    }
+
+    // appends edge u->v to the out-list of u's component and the in-list of v's
+    private void addEdge(int u, int v) {
+        if (numEdges == edgeFrom.length) {
+            int n = 2 * numEdges;
+            edgeFrom = Arrays.copyOf(edgeFrom, n);
+            edgeTo = Arrays.copyOf(edgeTo, n);
+            nextOut = Arrays.copyOf(nextOut, n);
+            nextIn = Arrays.copyOf(nextIn, n);
+        }
+        int i = numEdges++;
+        edgeFrom[i] = u;
+        edgeTo[i] = v;
+        nextOut[i] = nextIn[i] = -1;
+        int cu = find(u), cv = find(v);
+        if (lastOut[cu] == -1) firstOut[cu] = i;
+        else nextOut[lastOut[cu]] = i;
+        lastOut[cu] = i;
+        if (lastIn[cv] == -1) firstIn[cv] = i;
+        else nextIn[lastIn[cv]] = i;
+        lastIn[cv] = i;
+    }
+
+    /**
+     * Restores the order using the n components found by the side of the
+     * search that finished. Going forward they were found from v, and
+     * anchor is the component of u; going backward they were found from u,
+     * and anchor is the component of v. Those on a cycle through the new
+     * edge merge with anchor, and the others move next to it: just below
+     * going forward, just above going backward.
+     */
+    private void reorder(int[] found, int n, boolean cycle, int anchor, final boolean isForward) {
+        // sorted so that each component comes after those it leads to on
+        // the way to the anchor: lowest first going forward, highest first backward
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++)
+            sorted[i] = found[i];
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return isForward ? Long.compare(label[a], label[b]) : Long.compare(label[b], label[a]);
+            }
+        });
+
+        // components that reach the anchor (forward) or are reached from it
+        // (backward) lie on a cycle with it through the new edge
+        int cycleStamp = ++stamp;
+        if (cycle) {
+            for (int c : sorted)
+                if (leadsTo(c, anchor, cycleStamp, isForward)) onCycle[c] = cycleStamp;
+        }
+
+        for (int c : sorted)
+            remove(c);
+        int merged = anchor;
+        for (int c : sorted) {
+            if (onCycle[c] == cycleStamp) {
+                int rep = union(merged, c);
+                if (rep != merged) replace(merged, rep);
+                merged = rep;
+            }
+        }
+
+        // the others go back next to the anchor, farthest from it first
+        int k = 0;
+        int next = merged;
+        for (int i = n - 1; i >= 0; i--) {
+            int c = sorted[i];
+            if (onCycle[c] == cycleStamp) continue;
+            if (isForward) {
+                insertBelow(next, c);
+                next = c;
+            }
+            else {
+                insertBelow(higher[next], c);
+                next = c;
+            }
+            k++;
+        }
+        if (isForward) spread(merged, lower[next], k);
+        else spread(higher[next], merged, k);
+    }
+
+    // whether component c has an edge to (forward) or from (backward) the
+    // anchor or a component marked with cycleStamp
+    private boolean leadsTo(int c, int anchor, int cycleStamp, boolean isForward) {
+        if (isForward) {
+            for (int i = firstOut[c]; i != -1; i = nextOut[i]) {
+                int cw = find(edgeTo[i]);
+                if (cw == anchor || (cw != c && onCycle[cw] == cycleStamp)) return true;
+            }
+        }
+        else {
+            for (int i = firstIn[c]; i != -1; i = nextIn[i]) {
+                int cw = find(edgeFrom[i]);
+                if (cw == anchor || (cw != c && onCycle[cw] == cycleStamp)) return true;
+            }
+        }
+        return false;
+    }
+
+    // inserts c into the list just below a
+    private void insertBelow(int a, int c) {
+        int b = lower[a];
+        lower[a] = c;
+        higher[c] = a;
+        lower[c] = b;
+        higher[b] = c;
+    }
+
+    // takes c out of the list
+    private void remove(int c) {
+        lower[higher[c]] = lower[c];
+        higher[lower[c]] = higher[c];
+    }
+
+    // puts representative rep in the place of old in the list
+    private void replace(int old, int rep) {
+        higher[rep] = higher[old];
+        lower[rep] = lower[old];
+        lower[higher[rep]] = rep;
+        higher[lower[rep]] = rep;
+        label[rep] = label[old];
+    }
+
+    // labels the k components between a and b evenly, together with enough
+    // neighbours on either side that the gaps stay wide: the window around
+    // them doubles until its gaps would be at least as many as its members
+    private void spread(int a, int b, int k) {
+        int top = a, bottom = b, n = k;
+        for (int w = 1; ; w *= 2) {
+            long step = (label[top] - label[bottom]) / (n + 1);
+            if (step > n || (top == head && bottom == tail)) {
+                long l = label[top];
+                for (int c = lower[top]; c != bottom; c = lower[c]) {
+                    l -= step;
+                    label[c] = l;
+                }
+                return;
+            }
+            for (int i = 0; i < w && top != head; i++, n++)
+                top = higher[top];
+            for (int i = 0; i < w && bottom != tail; i++, n++)
+                bottom = lower[bottom];
+        }
+    }
+
+    // representative of the component of v, halving the path on the way
+    private int find(int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    // merges the components of representatives a and b; returns the new representative
+    private int union(int a, int b) {
+        if (a == b) return a;
+        if (size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        // splice the two circular member lists into one
+        int t = nextMember[a];
+        nextMember[a] = nextMember[b];
+        nextMember[b] = t;
+        // and the edge lists, b's after a's
+        if (firstOut[b] != -1) {
+            if (lastOut[a] == -1) firstOut[a] = firstOut[b];
+            else nextOut[lastOut[a]] = firstOut[b];
+            lastOut[a] = lastOut[b];
+        }
+        if (firstIn[b] != -1) {
+            if (lastIn[a] == -1) firstIn[a] = firstIn[b];
+            else nextIn[lastIn[a]] = firstIn[b];
+            lastIn[a] = lastIn[b];
+        }
+        count--;
+        return a;
+    }
+
+    private void validateVertex(int v) {
+        int V = parent.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     *  One side of the search started by an edge against the order: the
+     *  forward side follows out-lists from the head's component and stays
+     *  above the tail's component, the backward side follows in-lists from
+     *  the tail's component and stays below the head's. Each step looks at
+     *  one edge, so the two sides advance at the same pace however large
+     *  their components are.
+     */
+    private class Search {
+        final boolean isForward;
+        final int[] mark;       // mark[c] == stamp if component c was found
+        final int[] stack;      // found components whose lists are not yet scanned
+        final int[] found;      // found[0 .. numFound-1] = components found so far
+        int top, numFound;
+        int bound;              // the component at the other end of the new edge
+        boolean foundCycle;     // whether an edge to (from) bound was seen
+        int current;            // component whose list is being scanned, -1 if none
+        int previous, edge;     // position in that list
+
+        Search(int V, boolean isForward) {
+            this.isForward = isForward;
+            mark = new int[V];
+            stack = new int[V];
+            found = new int[V];
+        }
+
+        void start(int c, int bound) {
+            this.bound = bound;
+            top = numFound = 0;
+            foundCycle = false;
+            current = -1;
+            mark[c] = stamp;
+            stack[top++] = c;
+        }
+
+        boolean isDone() {
+            return current == -1 && top == 0;
+        }
+
+        // looks at the next edge, or starts on the next component's list
+        void step() {
+            if (current == -1) {
+                current = stack[--top];
+                found[numFound++] = current;
+                previous = -1;
+                edge = isForward ? firstOut[current] : firstIn[current];
+                if (edge == -1) current = -1;
+                return;
+            }
+            int next = isForward ? nextOut[edge] : nextIn[edge];
+            int w = find(isForward ? edgeTo[edge] : edgeFrom[edge]);
+            if (w == current) unlink(next);
+            else {
+                if (w == bound) foundCycle = true;
+                else if (mark[w] != stamp && (isForward ? label[w] > label[bound] : label[w] < label[bound])) {
+                    mark[w] = stamp;
+                    stack[top++] = w;
+                }
+                previous = edge;
+            }
+            edge = next;
+            if (edge == -1) current = -1;
+        }
+
+        // drops the edge inside the current component from its list
+        private void unlink(int next) {
+            if (isForward) {
+                if (previous == -1) firstOut[current] = next;
+                else nextOut[previous] = next;
+                if (next == -1) lastOut[current] = previous;
+            }
+            else {
+                if (previous == -1) firstIn[current] = next;
+                else nextIn[previous] = next;
+                if (next == -1) lastIn[current] = previous;
+            }
+        }
+    }
+}
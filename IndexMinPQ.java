@@ -152,6 +152,19 @@ public class IndexMinPQ<Key extends Comparable<Key>> implements Iterable<Integer
         return min;
     }
 
+    /**
+     * Removes all keys from this priority queue.
+     * Takes time proportional to the number of keys, not to the capacity.
+     */
+    public void clear() {
+        for (int k = 1; k <= n; k++) {
+            qp[pq[k]] = -1;
+            keys[pq[k]] = null;
+            pq[k] = -1;
+        }
+        n = 0;
+    }
+
     /**
      * Returns the key associated with index {@code i}.
      *
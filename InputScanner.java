@@ -0,0 +1,326 @@
+package onTheRoad;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the input file line by line straight from its bytes, for
+ * FileParser. The file is read through a FileChannel into one reusable
+ * buffer, and the fields of a line are parsed in place, so reading a
+ * segment or trip line allocates nothing. Only lines that need to become
+ * Strings, such as location names, are decoded.
+ * <p>
+ * Fields are separated by single spaces, as with String.split(" "). Ints
+ * and doubles in plain decimal notation are parsed here; anything else is
+ * handed to Integer.parseInt or Double.parseDouble, so the values and
+ * errors are the same as theirs.
+ */
+class InputScanner implements Closeable {
+	// initial buffer size; the buffer grows to hold longer lines
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// exactly representable powers of ten
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+		}
+	}
+
+	// largest mantissa a double holds exactly
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private final FileChannel channel;
+	private byte[] buf = new byte[BUFFER_SIZE];
+	private ByteBuffer window = ByteBuffer.wrap(buf);
+
+	// buf[0, limit) holds unread bytes of the file
+	private int limit;
+	private boolean eof;
+
+	// the current line is buf[lineStart, lineEnd), without its line terminator
+	private int lineStart;
+	private int lineEnd;
+	// start of the next line
+	private int next;
+
+	// start of the next field of the current line
+	private int pos;
+
+	/**
+	 * @param fileName
+	 * 		file to read
+	 * @throws IOException
+	 * 		if the file cannot be opened
+	 */
+	InputScanner(String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+	}
+
+	/**
+	 * Moves to the next line that is neither blank nor starts with #
+	 * @throws IOException
+	 * 		if the file cannot be read or has no such line
+	 */
+	void nextDataLine() throws IOException {
+		while (true) {
+			if (!nextLine()) {
+				throw new EOFException("input ends before all data lines were read");
+			}
+			if (!isBlank() && buf[lineStart] != '#') {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Moves to the next line
+	 * @return false if the file has no more lines
+	 * @throws IOException
+	 * 		if the file cannot be read
+	 */
+	private boolean nextLine() throws IOException {
+		lineStart = next;
+		int i = next;
+		while (true) {
+			while (i < limit && buf[i] != '\n' && buf[i] != '\r') {
+				i++;
+			}
+			// a "\r" at the end of the buffer may be followed by a "\n" not read yet
+			if (i < limit && (buf[i] == '\n' || i + 1 < limit || eof)) {
+				break;
+			}
+			if (eof) {
+				if (i == lineStart) {
+					return false;
+				}
+				break;
+			}
+			i -= lineStart;
+			fill();
+			i += lineStart;
+		}
+		lineEnd = i;
+		pos = lineStart;
+		if (i < limit) {
+			// "\n", "\r" and "\r\n" all end a line, as for BufferedReader
+			i += buf[i] == '\r' && i + 1 < limit && buf[i + 1] == '\n' ? 2 : 1;
+		}
+		next = i;
+		return true;
+	}
+
+	/**
+	 * Moves the current line to the start of the buffer, growing it if the
+	 * line fills it, and reads more of the file after it
+	 */
+	private void fill() throws IOException {
+		int kept = limit - lineStart;
+		if (kept == buf.length) {
+			byte[] bigger = new byte[2 * buf.length];
+			System.arraycopy(buf, lineStart, bigger, 0, kept);
+			buf = bigger;
+			window = ByteBuffer.wrap(buf);
+		} else {
+			System.arraycopy(buf, lineStart, buf, 0, kept);
+		}
+		next -= lineStart;
+		lineEnd -= lineStart;
+		lineStart = 0;
+		limit = kept;
+		window.limit(buf.length).position(limit);
+		int read = channel.read(window);
+		if (read < 0) {
+			eof = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	// whether the current line is empty or only whitespace, as for String.trim()
+	private boolean isBlank() {
+		for (int i = lineStart; i < lineEnd; i++) {
+			if ((buf[i] & 0xff) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the current line as a String
+	 */
+	String line() {
+		return new String(buf, lineStart, lineEnd - lineStart, Charset.defaultCharset());
+	}
+
+	/**
+	 * @return whether the current line has no more fields
+	 */
+	boolean atEndOfLine() {
+		// trailing separators end the line, as split drops trailing empty fields
+		return pos >= lineEnd;
+	}
+
+	/**
+	 * Parses the next field of the current line as Integer.parseInt would
+	 * @return the value of the field
+	 * @throws NumberFormatException
+	 * 		if the field is not an int
+	 * @throws IllegalArgumentException
+	 * 		if the line has no more fields
+	 */
+	int nextInt() {
+		int start = pos;
+		return parseInt(start, fieldEnd());
+	}
+
+	// parses buf[start, end) as an int
+	private int parseInt(int start, int end) {
+		int i = start;
+		boolean negative = end - i > 1 && buf[i] == '-';
+		if (negative) {
+			i++;
+		}
+		// at most nine digits cannot overflow
+		if (end > i && end - i <= 9) {
+			int value = 0;
+			for (; i < end; i++) {
+				int digit = buf[i] - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				value = 10 * value + digit;
+			}
+			if (i == end) {
+				return negative ? -value : value;
+			}
+		}
+		return Integer.parseInt(field(start, end));
+	}
+
+	/**
+	 * Parses the next field of the current line as Double.parseDouble would
+	 * @return the value of the field
+	 * @throws NumberFormatException
+	 * 		if the field is not a double
+	 * @throws IllegalArgumentException
+	 * 		if the line has no more fields
+	 */
+	double nextDouble() {
+		return nextDouble(' ');
+	}
+
+	/**
+	 * Parses the next field of the current line, or the part of it before
+	 * separator, as Double.parseDouble would
+	 * @param separator
+	 * 		an ASCII character that ends the field, as a space does
+	 * @return the value of the field
+	 * @throws NumberFormatException
+	 * 		if the field is not a double
+	 * @throws IllegalArgumentException
+	 * 		if the line has no more fields
+	 */
+	double nextDouble(char separator) {
+		int start = pos, end = fieldEnd(separator);
+		int i = start;
+		boolean negative = end - i > 1 && buf[i] == '-';
+		if (negative) {
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0, fractionDigits = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			byte b = buf[i];
+			if (b >= '0' && b <= '9') {
+				if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+					break;
+				}
+				mantissa = 10 * mantissa + (b - '0');
+				digits++;
+				if (point) {
+					fractionDigits++;
+				}
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		// mantissa and power of ten are exact, so one division rounds correctly
+		if (i == end && digits > 0 && fractionDigits < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+		// exponents, long mantissas, "Infinity" and the like
+		return Double.parseDouble(field(start, end));
+	}
+
+	/**
+	 * @param s
+	 * 		an ASCII string
+	 * @return whether the next field of the current line is s; moves past
+	 * 		the field either way
+	 * @throws IllegalArgumentException
+	 * 		if the line has no more fields
+	 */
+	boolean nextFieldEquals(String s) {
+		int start = pos, end = fieldEnd();
+		if (end - start != s.length()) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (buf[i] != s.charAt(i - start)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the whole current line as Integer.parseInt would
+	 * @return the value of the line
+	 * @throws NumberFormatException
+	 * 		if the line is not an int
+	 */
+	int lineInt() {
+		pos = lineEnd;
+		return parseInt(lineStart, lineEnd);
+	}
+
+	// finds the end of the next field and moves past it and its separator
+	private int fieldEnd() {
+		return fieldEnd(' ');
+	}
+
+	// the same, for a field that may also end at separator
+	private int fieldEnd(char separator) {
+		if (atEndOfLine()) {
+			throw new IllegalArgumentException("missing field in line: " + line());
+		}
+		int end = pos;
+		while (end < lineEnd && buf[end] != ' ' && buf[end] != separator) {
+			end++;
+		}
+		pos = end + 1;
+		return end;
+	}
+
+	// the field as a String, for the cases the fast paths leave out
+	private String field(int start, int end) {
+		return new String(buf, start, end - start, Charset.defaultCharset());
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,384 @@
+package onTheRoad;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * ALT (A*, Landmarks, Triangle inequality) lower bounds for A* search on
+ * graphs without coordinates.
+ * <p>
+ * For a few landmark vertices L the distances d(L, v) and d(v, L) to and from
+ * every vertex are computed once, with dijkstra on the graph and on its
+ * reverse. The triangle inequality then bounds the distance from any v to
+ * any target t from below by d(L, t) - d(L, v) and by d(v, L) - d(t, L),
+ * and the best of these over all landmarks is used as the A* heuristic,
+ * as in GraphAlgorithms.getShortestPath(g, start, end, landmarks).
+ * <p>
+ * Distances are stored as floats, k per vertex side by side. Since rounding
+ * to float can move a distance either way, every bound is lowered by the
+ * largest possible rounding error so it stays a lower bound.
+ * <p>
+ * The bounds only hold for the weights they were computed from. Once the
+ * weights of the graph change, as through LiveWeights, lowerBound throws
+ * IllegalStateException, and the landmarks must be computed again.
+ */
+public class Landmarks implements Heuristic {
+	// identifies a landmark file, and the version of its layout
+	private static final int MAGIC = 0x414c5431;	// "ALT1"
+	private static final int VERSION = 1;
+
+	// relative rounding error of a float, doubled to cover both operands
+	private static final double FLOAT_ERROR = 0x1p-23;
+
+	/**
+	 * How landmarks are picked
+	 */
+	public enum Selection {
+		/** each landmark is the vertex farthest from the landmarks picked so far */
+		FARTHEST,
+		/** each landmark is a leaf of the part of a shortest path tree the
+		 * landmarks picked so far cover worst (Goldberg and Werneck) */
+		AVOID
+	}
+
+	// number of vertices and of landmarks
+	private int V;
+	private int k;
+
+	// the landmark vertices
+	private int[] landmarks;
+
+	// fromLandmark[v * k + i] = d(landmarks[i], v), toLandmark[v * k + i] = d(v, landmarks[i])
+	private float[] fromLandmark;
+	private float[] toLandmark;
+
+	// fingerprint of the graph the distances were computed on
+	private long fingerprint;
+
+	// the graph, and its weight version the distances are for
+	private CompactDigraph graph;
+	private long weightVersion;
+
+	/**
+	 * Picks k landmarks of g and computes their distance tables
+	 * @param g
+	 * 		compact edge weighted directed graph
+	 * @param k
+	 * 		number of landmarks
+	 * @param selection
+	 * 		how to pick the landmarks
+	 * @param seed
+	 * 		seed for the random choices made while picking landmarks
+	 */
+	public Landmarks(CompactDigraph g, int k, Selection selection, long seed) {
+		if (k < 1 || k > g.V()) {
+			throw new IllegalArgumentException("number of landmarks must be between 1 and " + g.V());
+		}
+		this.V = g.V();
+		this.k = k;
+		this.landmarks = new int[k];
+		this.fromLandmark = new float[V * k];
+		this.toLandmark = new float[V * k];
+		this.graph = g;
+		this.weightVersion = g.weightVersion();
+		this.fingerprint = fingerprint(g);
+
+		Random random = new Random(seed);
+		SearchContext ctx = new SearchContext(V);
+		int start = random.nextInt(V);
+		for (int i = 0; i < k; i++) {
+			int landmark;
+			if (selection == Selection.FARTHEST) {
+				landmark = i == 0 ? farthestFrom(g, start, ctx) : farthest(i);
+			} else {
+				landmark = avoid(g, i, random.nextInt(V), ctx);
+			}
+			landmarks[i] = landmark;
+
+			// distances from the landmark on g, and to it on the reverse of g
+			GraphAlgorithms.dijkstra(g, landmark, ctx);
+			for (int v = 0; v < V; v++) {
+				fromLandmark[v * k + i] = (float) ctx.getDist(v);
+			}
+			GraphAlgorithms.dijkstra(g.reverse(), landmark, ctx);
+			for (int v = 0; v < V; v++) {
+				toLandmark[v * k + i] = (float) ctx.getDist(v);
+			}
+		}
+	}
+
+	// only for load
+	private Landmarks() {
+	}
+
+	/**
+	 * @return number of landmarks
+	 */
+	public int size() {
+		return k;
+	}
+
+	/**
+	 * @param i
+	 * 		index of a landmark
+	 * @return the i-th landmark vertex
+	 */
+	public int landmark(int i) {
+		return landmarks[i];
+	}
+
+	/**
+	 * Lower bound on the distance from v to target, from the triangle
+	 * inequality over all landmarks
+	 * @throws IllegalStateException
+	 * 		if the weights of the graph changed since the distances were computed
+	 */
+	public double lowerBound(int v, int target) {
+		if (graph.weightVersion() != weightVersion) {
+			throw new IllegalStateException("weights of the graph changed since the landmarks were computed");
+		}
+		double best = 0.0;
+		int vk = v * k, tk = target * k;
+		for (int i = 0; i < k; i++) {
+			// d(v, t) >= d(L, t) - d(L, v)
+			double a = fromLandmark[tk + i], b = fromLandmark[vk + i];
+			if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, a - b - (a + b) * FLOAT_ERROR);
+			}
+			// d(v, t) >= d(v, L) - d(t, L)
+			a = toLandmark[vk + i];
+			b = toLandmark[tk + i];
+			if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, a - b - (a + b) * FLOAT_ERROR);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Vertex farthest from s that s can reach
+	 */
+	private int farthestFrom(CompactDigraph g, int s, SearchContext ctx) {
+		GraphAlgorithms.dijkstra(g, s, ctx);
+		int farthest = s;
+		for (int v = 0; v < V; v++) {
+			if (ctx.getDist(v) != Double.POSITIVE_INFINITY && ctx.getDist(v) > ctx.getDist(farthest)) {
+				farthest = v;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * Vertex whose distance from the nearest of the first n landmarks is largest
+	 */
+	private int farthest(int n) {
+		int farthest = landmarks[0];
+		double farthestDist = -1;
+		for (int v = 0; v < V; v++) {
+			double nearest = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				nearest = Math.min(nearest, fromLandmark[v * k + i]);
+			}
+			if (nearest != Double.POSITIVE_INFINITY && nearest > farthestDist) {
+				farthest = v;
+				farthestDist = nearest;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * Avoid selection: grows a shortest path tree from root and weighs every
+	 * vertex by how much the first n landmarks underestimate its distance from
+	 * root. Subtrees holding a landmark weigh nothing. Starting at the
+	 * heaviest vertex, follows the heaviest child down to a leaf.
+	 */
+	private int avoid(CompactDigraph g, int n, int root, SearchContext ctx) {
+		GraphAlgorithms.dijkstra(g, root, ctx);
+
+		// reachable vertices, farthest first, so children come before parents
+		Integer[] order = new Integer[V];
+		int reached = 0;
+		for (int v = 0; v < V; v++) {
+			if (ctx.isReached(v)) {
+				order[reached++] = v;
+			}
+		}
+		final SearchContext tree = ctx;
+		Arrays.sort(order, 0, reached, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(tree.getDist(b), tree.getDist(a));
+			}
+		});
+
+		int[] parent = new int[V];
+		double[] size = new double[V];
+		boolean[] hasLandmark = new boolean[V];
+		for (int i = 0; i < n; i++) {
+			hasLandmark[landmarks[i]] = true;
+		}
+		for (int j = 0; j < reached; j++) {
+			int v = order[j];
+			int e = ctx.getEdgeTo(v);
+			parent[v] = e == -1 ? -1 : g.source(e);
+			size[v] += ctx.getDist(v) - (n == 0 ? 0.0 : lowerBound(root, v, n));
+		}
+		for (int j = 0; j < reached; j++) {
+			int v = order[j];
+			if (hasLandmark[v]) {
+				size[v] = 0;
+			}
+			int p = parent[v];
+			if (p != -1) {
+				if (hasLandmark[v]) {
+					hasLandmark[p] = true;
+				} else {
+					size[p] += size[v];
+				}
+			}
+		}
+
+		// heaviest vertex, then heaviest child until a leaf
+		int w = root;
+		for (int j = 0; j < reached; j++) {
+			if (size[order[j]] > size[w]) {
+				w = order[j];
+			}
+		}
+		while (true) {
+			int child = -1;
+			for (int e = g.firstEdge(w); e < g.endEdge(w); e++) {
+				int x = g.target(e);
+				if (ctx.isReached(x) && parent[x] == w && x != root
+						&& (child == -1 || size[x] > size[child])) {
+					child = x;
+				}
+			}
+			if (child == -1) {
+				return w;
+			}
+			w = child;
+		}
+	}
+
+	/**
+	 * lowerBound restricted to the first n landmarks
+	 */
+	private double lowerBound(int v, int target, int n) {
+		double best = 0.0;
+		for (int i = 0; i < n; i++) {
+			double a = fromLandmark[target * k + i], b = fromLandmark[v * k + i];
+			if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, a - b);
+			}
+			a = toLandmark[v * k + i];
+			b = toLandmark[target * k + i];
+			if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, a - b);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Writes the landmark tables to a file, so they need not be recomputed
+	 * @param fileName
+	 * 		file to write
+	 * @throws IOException
+	 */
+	public void save(String fileName) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(V);
+			out.writeInt(k);
+			out.writeLong(fingerprint);
+			for (int i = 0; i < k; i++) {
+				out.writeInt(landmarks[i]);
+			}
+			for (int i = 0; i < V * k; i++) {
+				out.writeFloat(fromLandmark[i]);
+			}
+			for (int i = 0; i < V * k; i++) {
+				out.writeFloat(toLandmark[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads landmark tables written by save
+	 * @param fileName
+	 * 		file to read
+	 * @param g
+	 * 		graph the tables must have been computed on
+	 * @return the landmarks read
+	 * @throws IOException if the file cannot be read or is not a landmark file
+	 * @throws IllegalArgumentException if the tables were computed on a different graph
+	 */
+	public static Landmarks load(String fileName, CompactDigraph g) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(fileName + " is not a landmark file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException(fileName + " has unsupported version " + version);
+			}
+			Landmarks result = new Landmarks();
+			result.V = in.readInt();
+			result.k = in.readInt();
+			result.fingerprint = in.readLong();
+			result.graph = g;
+			result.weightVersion = g.weightVersion();
+			if (result.V != g.V() || result.fingerprint != fingerprint(g)) {
+				throw new IllegalArgumentException(fileName + " was computed for a different graph");
+			}
+			result.landmarks = new int[result.k];
+			for (int i = 0; i < result.k; i++) {
+				result.landmarks[i] = in.readInt();
+			}
+			int n = result.V * result.k;
+			result.fromLandmark = new float[n];
+			result.toLandmark = new float[n];
+			for (int i = 0; i < n; i++) {
+				result.fromLandmark[i] = in.readFloat();
+			}
+			for (int i = 0; i < n; i++) {
+				result.toLandmark[i] = in.readFloat();
+			}
+			return result;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Hash of the topology and weights of g
+	 */
+	private static long fingerprint(CompactDigraph g) {
+		long h = 1125899906842597L;
+		h = 31 * h + g.V();
+		h = 31 * h + g.E();
+		for (int v = 0; v < g.V(); v++) {
+			h = 31 * h + g.endEdge(v);
+		}
+		for (int e = 0; e < g.E(); e++) {
+			h = 31 * h + g.target(e);
+			h = 31 * h + Double.doubleToLongBits(g.weight(e));
+		}
+		return h;
+	}
+}
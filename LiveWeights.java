@@ -0,0 +1,237 @@
+package onTheRoad;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Updates the weights of a road network in place, segment by segment, as
+ * from a traffic feed. The network is a compact graph with a distance and
+ * a time column, as made by FileParser.makeMultiMetricGraph(); a new speed
+ * changes the time weight of the segment's edge, a new distance both
+ * weights. Nothing is rebuilt.
+ * <p>
+ * Updates are made in batches. setSpeed and setDistance only record the
+ * new values, which searches do not see until commit() writes all of them
+ * to the graph in one CompactDigraph.setWeights, under the write lock of
+ * the graph. commit() then tells the registered WeightListeners, which
+ * bring what they derived from the weights up to date: a RouteCache drops
+ * its routes, and a CustomizableContractionHierarchy is customized again.
+ * Searches that run during a commit may see old and new weights, unless
+ * they hold the read lock of the graph or validate their result as
+ * BatchPlanner does.
+ * <p>
+ * A segment may not become faster than the fastest segment of the input,
+ * nor, when the input has coordinates, shorter than the straight line
+ * between its ends: the straight-line heuristics of A* search assume that
+ * no segment is faster or shorter.
+ */
+public class LiveWeights {
+	// the graph, with a weight column per metric
+	private CompactDigraph roads;
+
+	// segmentEdges[i] = edge of roads that segment i of the input became
+	private int[] segmentEdges;
+
+	// speed of each segment as of the last commit
+	private double[] speeds;
+
+	// highest speed the time heuristics allow
+	private double maxSpeed;
+
+	// positions of the vertices, null if the input has none
+	private Coordinates coordinates;
+
+	// updates since the last commit: newSpeeds[i] and newDistances[i] are
+	// the values segment i gets, NaN if it keeps its own; the segments
+	// updated are changed[0 .. numChanged-1]. Null until the first update.
+	private double[] newSpeeds;
+	private double[] newDistances;
+	private int[] changed;
+	private int numChanged;
+
+	private final List<WeightListener> listeners = new CopyOnWriteArrayList<WeightListener>();
+
+	/**
+	 * @param roads
+	 *            graph with distance and time weights
+	 * @param segmentEdges
+	 *            segmentEdges[i] = edge of roads for segment i; not copied
+	 * @param speeds
+	 *            speeds[i] = speed of segment i; not copied
+	 * @param maxSpeed
+	 *            highest speed a segment may be given
+	 * @param coordinates
+	 *            positions of the vertices of roads, or null if there are
+	 *            none
+	 */
+	public LiveWeights(CompactDigraph roads, int[] segmentEdges, double[] speeds, double maxSpeed,
+			Coordinates coordinates) {
+		if (segmentEdges.length != speeds.length) {
+			throw new IllegalArgumentException("need one speed per segment");
+		}
+		if (roads.metrics() < Metric.values().length) {
+			throw new IllegalArgumentException("graph needs a weight column per metric");
+		}
+		this.roads = roads;
+		this.segmentEdges = segmentEdges;
+		this.speeds = speeds;
+		this.maxSpeed = maxSpeed;
+		this.coordinates = coordinates;
+	}
+
+	/**
+	 * @return number of segments
+	 */
+	public int segments() {
+		return segmentEdges.length;
+	}
+
+	/**
+	 * @param segment
+	 *            index of a segment in the input
+	 * @return id of the segment's edge in the graph
+	 */
+	public int edge(int segment) {
+		return segmentEdges[segment];
+	}
+
+	/**
+	 * @param segment
+	 *            index of a segment in the input
+	 * @return length of the segment as of the last commit
+	 */
+	public double getDistance(int segment) {
+		return roads.weight(segmentEdges[segment], Metric.DISTANCE);
+	}
+
+	/**
+	 * @param segment
+	 *            index of a segment in the input
+	 * @return speed on the segment as of the last commit
+	 */
+	public double getSpeed(int segment) {
+		return speeds[segment];
+	}
+
+	/**
+	 * Changes the travel speed on a segment, and so its driving time, at
+	 * the next commit
+	 * @param segment
+	 *            index of a segment in the input
+	 * @param speed
+	 *            new speed
+	 * @throws ArithmeticException
+	 *             if speed is not positive
+	 * @throws IllegalArgumentException
+	 *             if speed is above the fastest speed of the input
+	 */
+	public synchronized void setSpeed(int segment, double speed) {
+		if (!(speed > 0)) {
+			throw new ArithmeticException("speed must be positive");
+		}
+		if (speed > maxSpeed) {
+			throw new IllegalArgumentException("speed " + speed + " is above the top speed " + maxSpeed
+					+ " the time heuristics allow");
+		}
+		stage(segment);
+		newSpeeds[segment] = speed;
+	}
+
+	/**
+	 * Changes the length of a segment, and so its driving time, at the next
+	 * commit
+	 * @param segment
+	 *            index of a segment in the input
+	 * @param distance
+	 *            new length
+	 * @throws ArithmeticException
+	 *             if distance is not positive
+	 * @throws IllegalArgumentException
+	 *             if distance is below the straight-line distance between
+	 *             the ends of the segment
+	 */
+	public synchronized void setDistance(int segment, double distance) {
+		if (!(distance > 0)) {
+			throw new ArithmeticException("distance must be positive");
+		}
+		if (coordinates != null) {
+			int e = segmentEdges[segment];
+			int u = roads.source(e);
+			int v = roads.target(e);
+			if (coordinates.has(u) && coordinates.has(v) && distance < coordinates.distance(u, v)) {
+				throw new IllegalArgumentException("distance " + distance + " is below the straight-line distance "
+						+ coordinates.distance(u, v) + " the heuristics allow");
+			}
+		}
+		stage(segment);
+		newDistances[segment] = distance;
+	}
+
+	// notes that segment is updated in this batch
+	private void stage(int segment) {
+		if (newSpeeds == null) {
+			newSpeeds = new double[speeds.length];
+			newDistances = new double[speeds.length];
+			Arrays.fill(newSpeeds, Double.NaN);
+			Arrays.fill(newDistances, Double.NaN);
+			changed = new int[16];
+		}
+		if (Double.isNaN(newSpeeds[segment]) && Double.isNaN(newDistances[segment])) {
+			if (numChanged == changed.length) {
+				changed = Arrays.copyOf(changed, 2 * numChanged);
+			}
+			changed[numChanged++] = segment;
+		}
+	}
+
+	/**
+	 * Ends a batch of updates: writes the weights of every segment updated
+	 * since the last commit to the graph at once, then tells the listeners.
+	 * Does nothing if no segment was updated.
+	 */
+	public synchronized void commit() {
+		if (numChanged == 0) {
+			return;
+		}
+		int[] edges = new int[numChanged];
+		double[][] weights = new double[roads.metrics()][numChanged];
+		for (double[] column : weights) {
+			Arrays.fill(column, Double.NaN);
+		}
+		for (int i = 0; i < numChanged; i++) {
+			int segment = changed[i];
+			double distance = Double.isNaN(newDistances[segment]) ? getDistance(segment) : newDistances[segment];
+			double speed = Double.isNaN(newSpeeds[segment]) ? speeds[segment] : newSpeeds[segment];
+			edges[i] = segmentEdges[segment];
+			weights[Metric.DISTANCE.ordinal()][i] = distance;
+			weights[Metric.TIME.ordinal()][i] = distance / speed;
+			speeds[segment] = speed;
+			newSpeeds[segment] = Double.NaN;
+			newDistances[segment] = Double.NaN;
+		}
+		roads.setWeights(edges, weights, numChanged);
+		numChanged = 0;
+		for (WeightListener listener : listeners) {
+			listener.weightsChanged(roads);
+		}
+	}
+
+	/**
+	 * Registers listener to be told about every batch of updates from now on
+	 * @param listener
+	 *            the listener
+	 */
+	public void addWeightListener(WeightListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stops telling listener about updates
+	 * @param listener
+	 *            the listener
+	 */
+	public void removeWeightListener(WeightListener listener) {
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,154 @@
+package onTheRoad;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays the trips of an input file, such as one written by
+ * NetworkGenerator, through an Optimizer and reports the latency of the
+ * trips and the throughput.
+ * <p>
+ * The trips are answered one at a time, as by Optimizer.answer(), by
+ * "-threads N" threads taking the next trip in turn, "-repeat R" times
+ * over. The first "-warmup N" trips are answered before timing starts, and
+ * the route cache is emptied after them. The report gives the time taken
+ * to parse the file and build the graphs, then the median, 90th, 99th and
+ * 99.9th percentile and largest latency, and the trips answered per
+ * second over all threads.
+ * <p>
+ * Usage: LoadTest file [-threads N] [-repeat R] [-warmup N] [-cache N].
+ * "-cache N" holds up to N routes in the route cache, 0 for none.
+ */
+public class LoadTest {
+	// total length of the replayed answers, reported so they cannot be optimized away
+	private static final AtomicLong answered = new AtomicLong();
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = 1, repeat = 1, warmup = 1000;
+		int cacheEntries = -1;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-repeat") && i + 1 < args.length) {
+				repeat = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-warmup") && i + 1 < args.length) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-cache") && i + 1 < args.length) {
+				cacheEntries = Integer.parseInt(args[++i]);
+			} else {
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+		if (threads < 1) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+
+		long start = System.nanoTime();
+		FileParser fp = new FileParser(args[0]);
+		long parsed = System.nanoTime();
+		Optimizer optimizer = new Optimizer(fp);
+		long built = System.nanoTime();
+		final List<TripRequest> trips = fp.getTrips();
+		System.out.printf("%d locations, %d segments, %d trips: parsed in %.0f ms, graphs built in %.0f ms%n",
+				fp.getVertices().size(), fp.getSegments().size(), trips.size(), (parsed - start) / 1e6,
+				(built - parsed) / 1e6);
+		if (trips.isEmpty()) {
+			return;
+		}
+
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < Math.min(warmup, trips.size()); i++) {
+			out.setLength(0);
+			optimizer.answer(trips.get(i), out);
+		}
+		optimizer.setRouteCache(cacheEntries >= 0 ? cacheEntries : Optimizer.CACHE_ENTRIES);
+
+		long[] latencies = replay(optimizer, trips, repeat, threads);
+		long elapsed = latencies[latencies.length - 1];
+		latencies = Arrays.copyOf(latencies, latencies.length - 1);
+		Arrays.sort(latencies);
+		double mean = 0;
+		for (long latency : latencies) {
+			mean += latency;
+		}
+		mean /= latencies.length;
+		System.out.printf("%d trips on %d thread%s in %.0f ms: %.1f trips/s%n", latencies.length, threads,
+				threads == 1 ? "" : "s", elapsed / 1e6, latencies.length * 1e9 / elapsed);
+		System.out.printf("latency (us): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p999 %.1f, max %.1f%n",
+				mean / 1e3, percentile(latencies, 0.5) / 1e3, percentile(latencies, 0.9) / 1e3,
+				percentile(latencies, 0.99) / 1e3, percentile(latencies, 0.999) / 1e3,
+				latencies[latencies.length - 1] / 1e3);
+		// the same for every run over the same trips, whatever the threads and cache
+		System.out.printf("answers: %d characters%n", answered.get());
+	}
+
+	/**
+	 * Answers every trip repeat times over on the given number of threads
+	 * @return latency of each trip answered, in nanoseconds, followed by
+	 * 		the time all of them took
+	 * @throws RuntimeException
+	 * 		the first exception a trip threw
+	 */
+	private static long[] replay(final Optimizer optimizer, final List<TripRequest> trips, int repeat, int threads)
+			throws InterruptedException {
+		final int total = trips.size() * repeat;
+		final long[] latencies = new long[total + 1];
+		final AtomicInteger next = new AtomicInteger();
+		final RuntimeException[] failure = new RuntimeException[1];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					StringBuilder out = new StringBuilder();
+					long length = 0;
+					try {
+						for (int i; (i = next.getAndIncrement()) < total; ) {
+							out.setLength(0);
+							long begin = System.nanoTime();
+							optimizer.answer(trips.get(i % trips.size()), out);
+							latencies[i] = System.nanoTime() - begin;
+							length += out.length();
+						}
+					} catch (RuntimeException e) {
+						// stop the other threads too
+						next.set(total);
+						synchronized (failure) {
+							if (failure[0] == null) {
+								failure[0] = e;
+							}
+						}
+					}
+					answered.addAndGet(length);
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		latencies[total] = System.nanoTime() - start;
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw failure[0];
+			}
+		}
+		return latencies;
+	}
+
+	/**
+	 * @param sorted
+	 * 		values in increasing order
+	 * @param p
+	 * 		fraction between 0 and 1
+	 * @return the smallest value at least the fraction p of the values are at most
+	 */
+	private static long percentile(long[] sorted, double p) {
+		int i = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+	}
+}
@@ -0,0 +1,127 @@
+package onTheRoad;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of nonnegative long values, such as latencies in nanoseconds,
+ * in the manner of HdrHistogram: every power of two is split into
+ * 2^SUB_BITS buckets of equal width, so a value is known to within about
+ * 1.6% however large it is, in a fixed array of counts. Recording is a few
+ * shifts and one atomic increment, without locks, so many threads can
+ * record at once.
+ * <p>
+ * Percentiles are read from the counts while threads may still record, so
+ * they are only exact once recording has stopped.
+ */
+public class LogHistogram {
+	// buckets per power of two are 2^SUB_BITS
+	private static final int SUB_BITS = 6;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	// counts[i] = number of values in bucket i
+	private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) << SUB_BITS);
+	private final LongAdder total = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Adds a value
+	 * @param value
+	 * 		the value; negative values count as 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		total.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return number of values recorded
+	 */
+	public long count() {
+		return total.sum();
+	}
+
+	/**
+	 * @return mean of the values recorded, 0 if there are none
+	 */
+	public double mean() {
+		long n = total.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * @return largest value recorded, 0 if there are none
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * @param p
+	 * 		fraction between 0 and 1
+	 * @return the smallest value that at least the fraction p of the values
+	 * 		are at most, up to the width of its bucket; 0 if there are none
+	 */
+	public long percentile(double p) {
+		long[] snapshot = new long[counts.length()];
+		long n = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(p * n));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				// the top of the bucket, but no more than the largest value
+				return Math.min(highest(i), max());
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * Forgets every value recorded. Values recorded meanwhile may be kept
+	 * or lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		total.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	// bucket of value: values below SUB_COUNT have one each, above that
+	// the top SUB_BITS + 1 bits pick it
+	private static int bucket(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+	}
+
+	// largest value in bucket i
+	private static long highest(int i) {
+		if (i < SUB_COUNT) {
+			return i;
+		}
+		int shift = (i >>> SUB_BITS) - 1;
+		long low = ((long) (SUB_COUNT + (i & (SUB_COUNT - 1)))) << shift;
+		return low + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,19 @@
+package onTheRoad;
+
+/**
+ * Receives a many-to-many distance matrix one row at a time, so that
+ * matrices too large to hold in memory can be written out as they are
+ * computed. Rows arrive in the order of the sources, from the thread that
+ * asked for the matrix.
+ */
+public interface MatrixSink {
+	/**
+	 * @param source
+	 *            index of the row's source in the list of sources
+	 * @param distances
+	 *            distances[j] = length of the shortest path from the source to
+	 *            the j-th target, positive infinity if there is none. The array
+	 *            may be reused for the next row, so copy it to keep it.
+	 */
+	void row(int source, double[] distances);
+}
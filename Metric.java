@@ -0,0 +1,20 @@
+package onTheRoad;
+
+/**
+ * What a trip optimizes, and so which weights a search uses
+ */
+public enum Metric {
+	/** length of the road segments, in miles */
+	DISTANCE,
+	/** driving time over the road segments at their speed, in hours */
+	TIME;
+
+	/**
+	 * @param isDistance
+	 *            whether a trip optimizes distance, as in TripRequest.isDistance
+	 * @return the metric it optimizes
+	 */
+	public static Metric of(boolean isDistance) {
+		return isDistance ? DISTANCE : TIME;
+	}
+}
@@ -0,0 +1,50 @@
+package onTheRoad;
+
+/**
+ * Indexed minimum priority queue with integer keys, for searches in which
+ * no key smaller than the last key removed is ever inserted, as in Dijkstra's
+ * algorithm on non-negative integer weights. Indices run from 0 to the
+ * capacity of the queue minus 1.
+ */
+public interface MonotonePQ {
+	/**
+	 * @return whether the queue is empty
+	 */
+	boolean isEmpty();
+
+	/**
+	 * @param i
+	 *            an index
+	 * @return whether i is on the queue
+	 */
+	boolean contains(int i);
+
+	/**
+	 * Adds index i with the given key
+	 * @param i
+	 *            an index not on the queue
+	 * @param key
+	 *            key of i, at least the last key removed
+	 */
+	void insert(int i, long key);
+
+	/**
+	 * Lowers the key of index i
+	 * @param i
+	 *            an index on the queue
+	 * @param key
+	 *            new key of i, below its current key and at least the last key removed
+	 */
+	void decreaseKey(int i, long key);
+
+	/**
+	 * Removes an index with the smallest key
+	 * @return the index removed
+	 */
+	int delMin();
+
+	/**
+	 * Empties the queue and forgets the last key removed
+	 */
+	void clear();
+}
@@ -0,0 +1,469 @@
+package onTheRoad;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Writes synthetic road networks with trip requests in the input format of
+ * FileParser, for finding how far the searches scale.
+ * <p>
+ * The network is laid out on rows and columns of intersections, a block
+ * of 0.1 miles apart. The "grid" shape is a city like the one of
+ * sample.txt: two-way streets along the rows and avenues along the
+ * columns, intersection "r St & c Ave". The "planar" shape moves every
+ * junction randomly within its block, drops some of the roads to the
+ * neighbours, adds some diagonals and makes some roads one-way; since roads
+ * only join neighbouring junctions, no two of them cross. Either shape may
+ * get freeways: "-freeways K" lays a pair of one-way carriageways, north
+ * and south, along every K-th column, with an interchange every K rows
+ * joined to the intersection by on and off ramps, as in sample.txt.
+ * "-rushhour" gives the freeway segments a speed profile that slows down
+ * at the morning and evening rush hours.
+ * <p>
+ * Trips go between two different intersections. The mix is set by "-distance F", the
+ * fraction by distance rather than time; "-local F", the fraction that end
+ * within "-radius R" blocks of their start rather than anywhere;
+ * "-hot F", the fraction drawn from a hundred popular trips, as repeated
+ * queries hit a route cache; and "-departure F", the fraction of trips by
+ * time that give a departure time.
+ * <p>
+ * Nothing is kept per vertex or segment: lines are written as they are
+ * made, with random numbers drawn from hashes of the vertex ids, so
+ * networks of tens of millions of vertices take little memory. The
+ * segments are made twice, first only to count them for the header.
+ * <p>
+ * Usage: NetworkGenerator grid|planar file [-size V | -rows R -cols C]
+ * [-freeways K] [-rushhour] [-coordinates] [-trips N] [-distance F]
+ * [-local F] [-radius R] [-hot F] [-departure F] [-seed S].
+ * "-coordinates" adds planar coordinates to the locations, so trips are
+ * solved with A* search.
+ */
+public class NetworkGenerator {
+	// length of a block, in miles
+	private static final double BLOCK = 0.1;
+
+	// number of popular trips that "-hot" draws from
+	private static final int HOT_TRIPS = 100;
+
+	// salts for the hashes, so every random quantity is independent
+	private static final int JITTER_X = 1, JITTER_Y = 2, ROAD = 3, DIAGONAL = 4, ONE_WAY = 5,
+			DETOUR = 6, SPEED = 7, RAMP = 8;
+
+	private final boolean planar;
+	private final int rows, cols;
+	private final int freewaySpacing;    // 0 for no freeways
+	private final boolean rushHour;
+	private final boolean withCoordinates;
+	private final long seed;
+
+	// number of freeways and of interchanges along each
+	private final int freeways, interchanges;
+
+	// where the next line is built
+	private final StringBuilder line = new StringBuilder();
+
+	/**
+	 * @param planar
+	 * 		whether to make a planar network instead of a grid city
+	 * @param rows
+	 * 		rows of intersections
+	 * @param cols
+	 * 		columns of intersections
+	 * @param freewaySpacing
+	 * 		columns between freeways, also rows between their interchanges; 0 for none
+	 * @param rushHour
+	 * 		whether freeways slow down at rush hour
+	 * @param withCoordinates
+	 * 		whether to write the coordinates of the locations
+	 * @param seed
+	 * 		seed of the random choices
+	 */
+	public NetworkGenerator(boolean planar, int rows, int cols, int freewaySpacing, boolean rushHour,
+			boolean withCoordinates, long seed) {
+		if (rows < 2 || cols < 2) {
+			throw new IllegalArgumentException("need at least 2 rows and 2 columns");
+		}
+		this.planar = planar;
+		this.rows = rows;
+		this.cols = cols;
+		this.freewaySpacing = freewaySpacing;
+		this.rushHour = rushHour;
+		this.withCoordinates = withCoordinates;
+		this.seed = seed;
+		freeways = freewaySpacing > 0 && cols - 1 >= freewaySpacing / 2
+				? (cols - 1 - freewaySpacing / 2) / freewaySpacing + 1 : 0;
+		interchanges = freewaySpacing > 0 ? (rows - 1) / freewaySpacing + 1 : 0;
+		if ((long) rows * cols + 2L * freeways * interchanges >= Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many vertices");
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || !(args[0].equals("grid") || args[0].equals("planar"))) {
+			throw new IllegalArgumentException("usage: NetworkGenerator grid|planar file [options]");
+		}
+		int rows = 100, cols = 100, freeways = 0, trips = 1000;
+		boolean rushHour = false, withCoordinates = false;
+		double distance = 0.5, local = 0.5, hot = 0, departure = 0;
+		int radius = 20;
+		long seed = 42;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("-size") && i + 1 < args.length) {
+				rows = cols = (int) Math.ceil(Math.sqrt(Long.parseLong(args[++i])));
+			} else if (args[i].equals("-rows") && i + 1 < args.length) {
+				rows = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-cols") && i + 1 < args.length) {
+				cols = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-freeways") && i + 1 < args.length) {
+				freeways = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-rushhour")) {
+				rushHour = true;
+			} else if (args[i].equals("-coordinates")) {
+				withCoordinates = true;
+			} else if (args[i].equals("-trips") && i + 1 < args.length) {
+				trips = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-distance") && i + 1 < args.length) {
+				distance = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-local") && i + 1 < args.length) {
+				local = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-radius") && i + 1 < args.length) {
+				radius = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-hot") && i + 1 < args.length) {
+				hot = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-departure") && i + 1 < args.length) {
+				departure = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-seed") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else {
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+		NetworkGenerator generator = new NetworkGenerator(args[0].equals("planar"), rows, cols, freeways,
+				rushHour, withCoordinates, seed);
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]),
+				Charset.forName("US-ASCII")), 1 << 16)) {
+			generator.write(out, trips, distance, local, radius, hot, departure);
+		}
+	}
+
+	/**
+	 * @return number of vertices of the network
+	 */
+	public int V() {
+		return rows * cols + 2 * freeways * interchanges;
+	}
+
+	/**
+	 * Writes the network and trips in the input format of FileParser
+	 * @param out
+	 * 		where to write
+	 * @param numTrips
+	 * 		number of trips
+	 * @param distance
+	 * 		fraction of trips by distance
+	 * @param local
+	 * 		fraction of trips that end near their start
+	 * @param radius
+	 * 		most blocks a local trip goes in each direction
+	 * @param hot
+	 * 		fraction of trips drawn from the popular ones
+	 * @param departure
+	 * 		fraction of trips by time with a departure time
+	 * @throws IOException
+	 * 		if out cannot be written
+	 */
+	public void write(Writer out, int numTrips, double distance, double local, int radius, double hot,
+			double departure) throws IOException {
+		out.write("# LOCATIONS\n\n# number of locations\n" + V() + "\n\n");
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				line.setLength(0);
+				if (planar) {
+					line.append("Junction ").append(r + 1).append('-').append(c + 1);
+				} else {
+					ordinal(line, r + 1).append(" St & ");
+					ordinal(line, c + 101).append(" Ave");
+				}
+				location(out, x(r, c), y(r, c));
+			}
+		}
+		for (int f = 0; f < freeways; f++) {
+			for (int i = 0; i < interchanges; i++) {
+				for (int dir = 0; dir < 2; dir++) {
+					line.setLength(0);
+					line.append("Freeway ").append(f + 1).append(dir == 0 ? " North @ " : " South @ ");
+					ordinal(line, i * freewaySpacing + 1).append(" St");
+					int r = i * freewaySpacing, c = freewayColumn(f);
+					location(out, x(r, c), y(r, c));
+				}
+			}
+		}
+
+		out.write("\n\n# ROAD SEGMENTS\n\n# number of road segments\n" + segments(null) + "\n\n");
+		segments(out);
+
+		out.write("\n\n# TRIPS\n\n# number of trips to analyze\n" + numTrips + "\n\n");
+		Random random = new Random(seed);
+		int[] hotTrips = new int[2 * HOT_TRIPS];
+		for (int i = 0; i < hotTrips.length; i += 2) {
+			hotTrips[i] = random.nextInt(rows * cols);
+			do {
+				hotTrips[i + 1] = random.nextInt(rows * cols);
+			} while (hotTrips[i + 1] == hotTrips[i]);
+		}
+		for (int i = 0; i < numTrips; i++) {
+			int start, end;
+			if (random.nextDouble() < hot) {
+				int k = random.nextInt(HOT_TRIPS);
+				start = hotTrips[2 * k];
+				end = hotTrips[2 * k + 1];
+			} else {
+				start = random.nextInt(rows * cols);
+				boolean isLocal = random.nextDouble() < local;
+				do {
+					if (isLocal) {
+						int r = clamp(start / cols + random.nextInt(2 * radius + 1) - radius, rows);
+						int c = clamp(start % cols + random.nextInt(2 * radius + 1) - radius, cols);
+						end = r * cols + c;
+					} else {
+						end = random.nextInt(rows * cols);
+					}
+				} while (end == start);
+			}
+			line.setLength(0);
+			line.append(start).append(' ').append(end);
+			if (random.nextDouble() < distance) {
+				line.append(" D");
+			} else {
+				line.append(" T");
+				if (random.nextDouble() < departure) {
+					line.append(' ');
+					fixed(line, random.nextInt(24 * 4) / 4.0, 2);
+				}
+			}
+			out.append(line).append('\n');
+		}
+	}
+
+	/**
+	 * Makes the segments, writing them to out, or only counting them if out is null
+	 * @return number of segments
+	 */
+	private long segments(Writer out) throws IOException {
+		long count = 0;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int v = r * cols + c;
+				if (!planar) {
+					// streets along the rows, avenues along the columns, all two-way
+					if (c + 1 < cols) {
+						count += road(out, v, v + 1, 25, 10, false);
+					}
+					if (r + 1 < rows) {
+						count += road(out, v, v + cols, 30, 15, false);
+					}
+					continue;
+				}
+				if (c + 1 < cols && unit(v, ROAD) < 0.85) {
+					count += road(out, v, v + 1, 25, 15, unit(v, ONE_WAY) < 0.2);
+				}
+				if (r + 1 < rows && unit(v + (long) rows * cols, ROAD) < 0.85) {
+					count += road(out, v, v + cols, 25, 15, unit(v + (long) rows * cols, ONE_WAY) < 0.2);
+				}
+				if (c + 1 < cols && r + 1 < rows) {
+					double u = unit(v, DIAGONAL);
+					if (u < 0.125) {
+						count += road(out, v, v + cols + 1, 25, 10, false);
+					} else if (u < 0.25) {
+						count += road(out, v + 1, v + cols, 25, 10, false);
+					}
+				}
+			}
+		}
+		for (int f = 0; f < freeways; f++) {
+			int c = freewayColumn(f);
+			for (int i = 0; i < interchanges; i++) {
+				int r = i * freewaySpacing;
+				int north = freewayVertex(f, i, 0), south = freewayVertex(f, i, 1);
+				// north runs towards row 0, south away from it
+				if (i > 0) {
+					count += freeway(out, north, freewayVertex(f, i - 1, 0), r, c, r - freewaySpacing);
+				}
+				if (i + 1 < interchanges) {
+					count += freeway(out, south, freewayVertex(f, i + 1, 1), r, c, r + freewaySpacing);
+				}
+				int v = r * cols + c;
+				count += ramp(out, v, north) + ramp(out, north, v) + ramp(out, v, south) + ramp(out, south, v);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Makes a road between intersections v and w: two segments, or one in a
+	 * random direction if oneWay; each direction gets its own speed
+	 * @return number of segments made
+	 */
+	private int road(Writer out, int v, int w, double minSpeed, double speedRange, boolean oneWay)
+			throws IOException {
+		double length = roundUp(distance(v, w) * (1 + 0.1 * unit(v + 31L * w, DETOUR)));
+		if (oneWay) {
+			if (unit(v + 31L * w, ONE_WAY) < 0.5) {
+				int t = v;
+				v = w;
+				w = t;
+			}
+			segment(out, v, w, length, minSpeed + speedRange * unit(v + 31L * w, SPEED), false);
+			return 1;
+		}
+		segment(out, v, w, length, minSpeed + speedRange * unit(v + 31L * w, SPEED), false);
+		segment(out, w, v, length, minSpeed + speedRange * unit(w + 31L * v, SPEED), false);
+		return 2;
+	}
+
+	/**
+	 * Makes the carriageway segment from interchange v at (r, c) to w at (toRow, c)
+	 * @return number of segments made
+	 */
+	private int freeway(Writer out, int v, int w, int r, int c, int toRow) throws IOException {
+		double length = roundUp(Math.hypot(x(toRow, c) - x(r, c), y(toRow, c) - y(r, c)));
+		segment(out, v, w, length, 55 + 10 * unit(v, SPEED), rushHour);
+		return 1;
+	}
+
+	/**
+	 * Makes a ramp between an intersection and a freeway at the same place
+	 * @return number of segments made
+	 */
+	private int ramp(Writer out, int v, int w) throws IOException {
+		segment(out, v, w, roundUp(0.05 + 0.05 * unit(v + 31L * w, RAMP)), 35 + 5 * unit(v + 31L * w, SPEED), false);
+		return 1;
+	}
+
+	private void segment(Writer out, int v, int w, double length, double speed, boolean profile)
+			throws IOException {
+		if (out == null) {
+			return;
+		}
+		speed = Math.round(speed * 10) / 10.0;
+		line.setLength(0);
+		line.append(v).append(' ').append(w).append(' ');
+		fixed(line, length, 4).append(' ');
+		fixed(line, speed, 1);
+		if (profile) {
+			// slow to a third of the speed at the rush hours
+			double slow = Math.round(speed / 3 * 10) / 10.0;
+			line.append(" 0=");
+			fixed(line, speed, 1).append(" 7=");
+			fixed(line, speed, 1).append(" 8=");
+			fixed(line, slow, 1).append(" 9.5=");
+			fixed(line, speed, 1).append(" 16.5=");
+			fixed(line, speed, 1).append(" 17.5=");
+			fixed(line, slow, 1).append(" 19=");
+			fixed(line, speed, 1);
+		}
+		out.append(line).append('\n');
+	}
+
+	// writes the location name in line, with its coordinates if asked for
+	private void location(Writer out, double x, double y) throws IOException {
+		if (withCoordinates) {
+			line.append(" | P ");
+			fixed(line, x, 4).append(' ');
+			fixed(line, y, 4);
+		}
+		out.append(line).append('\n');
+	}
+
+	private int freewayColumn(int f) {
+		return f * freewaySpacing + freewaySpacing / 2;
+	}
+
+	private int freewayVertex(int f, int i, int dir) {
+		return rows * cols + 2 * (f * interchanges + i) + dir;
+	}
+
+	// position of intersection (r, c), rounded as written
+	private double x(int r, int c) {
+		double x = c * BLOCK;
+		if (planar) {
+			x += 0.6 * BLOCK * (unit(r * (long) cols + c, JITTER_X) - 0.5);
+		}
+		return Math.round(x * 1e4) / 1e4;
+	}
+
+	private double y(int r, int c) {
+		double y = r * BLOCK;
+		if (planar) {
+			y += 0.6 * BLOCK * (unit(r * (long) cols + c, JITTER_Y) - 0.5);
+		}
+		return Math.round(y * 1e4) / 1e4;
+	}
+
+	// straight-line distance between intersections v and w
+	private double distance(int v, int w) {
+		return Math.hypot(x(v / cols, v % cols) - x(w / cols, w % cols), y(v / cols, v % cols) - y(w / cols, w % cols));
+	}
+
+	/**
+	 * @return a random number in [0, 1) that only depends on the seed, key and salt
+	 */
+	private double unit(long key, int salt) {
+		// the finalizer of SplitMix64
+		long z = seed * 0x9E3779B97F4A7C15L + key * 0xBF58476D1CE4E5B9L + salt * 0x94D049BB133111EBL;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z ^= z >>> 31;
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	// rounds a length up to the 4 decimals written, so it is never shorter than the straight line
+	private static double roundUp(double length) {
+		return Math.max(1, Math.ceil(length * 1e4)) / 1e4;
+	}
+
+	private static int clamp(int i, int n) {
+		return i < 0 ? 0 : i >= n ? n - 1 : i;
+	}
+
+	/**
+	 * Appends a number with the given decimals, without the cost of
+	 * String.format
+	 */
+	private static StringBuilder fixed(StringBuilder out, double x, int decimals) {
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) {
+			scale *= 10;
+		}
+		long n = Math.round(x * scale);
+		if (n < 0) {
+			out.append('-');
+			n = -n;
+		}
+		out.append(n / scale).append('.');
+		long fraction = n % scale;
+		for (long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10) {
+			out.append('0');
+		}
+		return out.append(fraction);
+	}
+
+	// appends n with its English ordinal suffix, as in "101st"
+	private static StringBuilder ordinal(StringBuilder out, int n) {
+		out.append(n);
+		if (n % 100 >= 11 && n % 100 <= 13) {
+			return out.append("th");
+		}
+		switch (n % 10) {
+		case 1: return out.append("st");
+		case 2: return out.append("nd");
+		case 3: return out.append("rd");
+		default: return out.append("th");
+		}
+	}
+}
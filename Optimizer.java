@@ -1,8 +1,23 @@
 package onTheRoad;
 
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 //import autocomplete.Term;
 
@@ -10,61 +25,370 @@ import java.util.List;
  * Class whose main method reads in description of graph and trip requests,
  * and then returns shortest paths (according to distance or time) from one
  * given vertex to another.  The input file is given by a command line argument.
+ * The map need not be strongly connected: trips whose end cannot be reached
+ * are answered with "No route from X to Y", most of them without a search
+ * thanks to the strong components of the map.
+ * <p>
+ * Optional arguments after the file name: "-threads N" solves the trips on
+ * N platform threads (0 for one per processor), and "-virtual" on one
+ * virtual thread per batch of trips (Java 21 and later). Either way the
+ * answers are printed in the order of the trip requests, a chunk of trips
+ * at a time while the next are solved. Trips of a chunk that share a start
+ * and metric are answered by a single search, see BatchPlanner,
+ * and routes found before come from a RouteCache holding up to "-cache N"
+ * routes (100000 by default, 0 for no cache). "-snapshot F" reads the road
+ * network from the GraphSnapshot F instead of parsing it, or writes F if
+ * it is missing or was built from another version of the input file.
+ * "-format text|csv|ndjson|binary" picks the output format, see
+ * ResultWriter, and "-output F" writes the answers to F instead of the
+ * standard output. "-stats F" writes the QueryStats of the run to F as JSON at the end; the
+ * JVM must run with -DonTheRoad.stats=true for the searches to be counted.
  * @author ????
  * @date ????
  */
 public class Optimizer {
-	
+	// number of trips handed to a thread at once
+	private static final int BATCH_SIZE = 64;
+
+	// chunks of trips being solved at once by answerAll on an executor
+	private static final int CHUNKS_AHEAD = 2;
+
+	// default bounds of the route cache
+	static final int CACHE_ENTRIES = 100000;
+	private static final long CACHE_BYTES = 64L << 20;
+
+	// names of the vertices
+	private List<String> vertices;
+
+	// the graphs, shared by all threads since searches keep their state in a SearchContext
+	private CompactDigraph distanceGraph;
+	private CompactDigraph timeGraph;
+
+	// answers trips that share a start with one search
+	private BatchPlanner planner;
+
+	// updates the segment weights in place, null if the roads came from a snapshot
+	private LiveWeights liveWeights;
+
+	/**
+	 * Builds the graphs for the road network read by fp
+	 * @param fp
+	 * 		parsed input file
+	 */
+	public Optimizer(FileParser fp) {
+		// straight-line heuristics for A*, null if the file has no coordinates
+		this(fp.getVertices(), fp.makeMultiMetricGraph(), null, fp.makeHeuristic(true), fp.makeHeuristic(false));
+		// the distance graph is the multi-metric graph itself
+		liveWeights = fp.makeLiveWeights(distanceGraph);
+		liveWeights.addWeightListener(planner);
+		planner.setTimeDependent(fp.makeTimeDependentGraph(distanceGraph));
+	}
+
+	/**
+	 * Uses the road network of a snapshot
+	 * @param snapshot
+	 * 		snapshot made by FileParser.makeSnapshot() or read by GraphSnapshot.load
+	 */
+	public Optimizer(GraphSnapshot snapshot) {
+		this(snapshot.getVertices(), snapshot.getGraph(), snapshot.getSection(GraphSnapshot.SCC_SECTION),
+				snapshot.makeHeuristic(true), snapshot.makeHeuristic(false));
+	}
+
+	// roads has a weight column per metric; componentIds and the heuristics may be null
+	private Optimizer(List<String> vertices, CompactDigraph roads, int[] componentIds,
+			Heuristic distanceHeuristic, Heuristic timeHeuristic) {
+		this.vertices = vertices;
+		// one graph with both metrics; the views share its topology
+		distanceGraph = roads.view(Metric.DISTANCE);
+		timeGraph = roads.view(Metric.TIME);
+		planner = new BatchPlanner(distanceGraph, timeGraph, distanceHeuristic, timeHeuristic);
+		planner.setRouteCache(new RouteCache(CACHE_ENTRIES, CACHE_BYTES));
+		// both metrics have the same edges, so the same components
+		planner.setComponents(componentIds == null ? new StrongComponents(roads) : new StrongComponents(componentIds));
+	}
+
 	public static void main(String[] args) {
-			
-		FileParser fp = new FileParser(args[0]);
-		
-		List<String> vertices = fp.getVertices();
-		List<TripRequest> tripRequest = fp.getTrips();
-		int V = vertices.size();
-		
-		// build the graph(s) 
-		// solve the trip requests in the file.
-		EdgeWeightedDigraph distanceGraph = new EdgeWeightedDigraph(V);
-		
-		//boolean isDistance = tripRequest.get(i).isDistance();	
-		distanceGraph = fp.makeGraph(true);
-		
-		EdgeWeightedDigraph timeGraph = new EdgeWeightedDigraph(V);
-		timeGraph = fp.makeGraph(false);
-		
-		//checking to see if the map is connected
-		if (!GraphAlgorithms.isStronglyConnected(distanceGraph)) {
-			System.out.println("Disconnected Map");
+
+		int threads = 1;
+		boolean virtual = false;
+		int cacheEntries = CACHE_ENTRIES;
+		String snapshotFile = null;
+		String statsFile = null;
+		ResultWriter.Format format = ResultWriter.Format.TEXT;
+		String outputFile = null;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-virtual")) {
+				virtual = true;
+			} else if (args[i].equals("-cache") && i + 1 < args.length) {
+				cacheEntries = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-snapshot") && i + 1 < args.length) {
+				snapshotFile = args[++i];
+			} else if (args[i].equals("-stats") && i + 1 < args.length) {
+				statsFile = args[++i];
+			} else if (args[i].equals("-format") && i + 1 < args.length) {
+				format = ResultWriter.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+			} else if (args[i].equals("-output") && i + 1 < args.length) {
+				outputFile = args[++i];
+			} else {
+				throw new IllegalArgumentException("unknown argument " + args[i]);
+			}
+		}
+
+		if (QueryStats.ENABLED) {
+			QueryStats.register();
+		} else if (statsFile != null) {
+			System.err.println("query statistics are off: run with -DonTheRoad.stats=true to count them");
+		}
+
+		// build the graph(s), or read them from an up-to-date snapshot
+		List<TripRequest> tripRequest;
+		Optimizer optimizer;
+		GraphSnapshot snapshot = snapshotFile == null ? null : loadSnapshot(snapshotFile, args[0]);
+		if (snapshot != null) {
+			tripRequest = new FileParser(args[0], true).getTrips();
+			optimizer = new Optimizer(snapshot);
+		} else {
+			FileParser fp = new FileParser(args[0]);
+			tripRequest = fp.getTrips();
+			optimizer = new Optimizer(fp);
+			if (snapshotFile != null && fp.getSpeedProfiles() != null) {
+				System.err.println("not saving snapshot: speed profiles are not stored in snapshots");
+			} else if (snapshotFile != null) {
+				try {
+					fp.saveSnapshot(snapshotFile);
+				} catch (IOException e) {
+					System.err.println("could not save snapshot: " + e.getMessage());
+				}
+			}
+		}
+		if (cacheEntries != CACHE_ENTRIES) {
+			optimizer.setRouteCache(cacheEntries);
+		}
+
+		// solve the trip requests in the file,
+		// one search per start and metric
+		try (ResultWriter sink = outputFile == null ? ResultWriter.toStandardOutput(format, optimizer.vertices)
+				: new ResultWriter(new FileOutputStream(outputFile), format, optimizer.vertices,
+						StandardCharsets.UTF_8)) {
+			if (threads == 1 && !virtual) {
+				optimizer.answerAll(tripRequest, sink);
+			} else {
+				ExecutorService executor = newExecutor(threads, virtual);
+				try {
+					optimizer.answerAll(tripRequest, executor, sink);
+				} finally {
+					executor.shutdown();
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("could not write results: " + e.getMessage());
+		}
+		if (statsFile != null) {
+			try (Writer out = Files.newBufferedWriter(Paths.get(statsFile), StandardCharsets.UTF_8)) {
+				QueryStats.dump(out);
+			} catch (IOException e) {
+				System.err.println("could not write statistics: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Updates of segment speeds and distances made through the result, and
+	 * committed, are seen by the next trips solved; cached routes are dropped
+	 * @return updater of the segment weights, or null if the road network
+	 * 		came from a snapshot
+	 */
+	public LiveWeights getLiveWeights() {
+		return liveWeights;
+	}
+
+	/**
+	 * Replaces the route cache by an empty one
+	 * @param entries
+	 * 		most routes the cache holds, 0 for no cache
+	 */
+	public void setRouteCache(int entries) {
+		planner.setRouteCache(entries == 0 ? null : new RouteCache(entries, CACHE_BYTES));
+	}
+
+	/**
+	 * Reads a snapshot of the road network in inputFile
+	 * @param snapshotFile
+	 * 		the snapshot
+	 * @param inputFile
+	 * 		text input the snapshot should have been built from
+	 * @return the snapshot, or null if it is missing, unreadable, or built
+	 * 		from another version of inputFile
+	 */
+	private static GraphSnapshot loadSnapshot(String snapshotFile, String inputFile) {
+		if (!Files.exists(Paths.get(snapshotFile))) {
+			return null;
+		}
+		try {
+			GraphSnapshot snapshot = GraphSnapshot.load(snapshotFile);
+			return snapshot.isSnapshotOf(inputFile) ? snapshot : null;
+		} catch (IOException e) {
+			System.err.println("rebuilding snapshot: " + e.getMessage());
+			return null;
 		}
-		//looping through all the trips
-		else {
-			for (int i = 0; i < tripRequest.size(); i ++) {
-				int start = tripRequest.get(i).getStart();
-				int end = tripRequest.get(i).getEnd();
-				boolean isDistance = tripRequest.get(i).isDistance();
-				
-				
-				//if done by distance, print the distance graph 
-				if (isDistance == true) {
-					ArrayList<DirectedEdge> result = GraphAlgorithms.getShortestPath(distanceGraph, start, end);	
-					System.out.println("Shortest distance from " + vertices.get(result.get(0).from()) + " to " 
-					+ vertices.get(result.get(result.size()-1).to()));
-					GraphAlgorithms.printShortestPath(result, isDistance, vertices);
-					
-					
+	}
+
+	/**
+	 * Appends the answer to one trip request, as printed by main, to out
+	 * @param trip
+	 * 		trip to solve
+	 * @param out
+	 * 		where to append the answer
+	 * @return out
+	 */
+	public StringBuilder answer(TripRequest trip, StringBuilder out) {
+		return ResultWriter.appendText(out, trip, planner.solve(Collections.singletonList(trip)).get(0), vertices);
+	}
+
+	/**
+	 * Solves the trips and writes the answers in the order of trips, a
+	 * chunk of trips at a time as by BatchPlanner.solveAll
+	 * @param trips
+	 * 		trips to solve
+	 * @param sink
+	 * 		where to write the answers; flushed at the end
+	 * @throws IOException
+	 * 		if sink cannot be written
+	 */
+	public void answerAll(List<TripRequest> trips, ResultSink sink) throws IOException {
+		planner.solveAll(trips, sink);
+	}
+
+	/**
+	 * Solves the trips on executor and prints the answers in the order of
+	 * trips
+	 * @param trips
+	 * 		trips to solve
+	 * @param executor
+	 * 		runs the tasks; the caller shuts it down
+	 */
+	public void answerAll(List<TripRequest> trips, ExecutorService executor) {
+		try {
+			answerAll(trips, executor, ResultWriter.toStandardOutput(ResultWriter.Format.TEXT, vertices));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Solves the trips on executor and writes the answers in the order of
+	 * trips. The trips are taken in chunks of BatchPlanner.CHUNK_SIZE
+	 * consecutive trips; the trips of a chunk are grouped by start and
+	 * metric as by BatchPlanner, and the groups handed to the executor in
+	 * tasks of about BATCH_SIZE trips. A chunk is written as soon as it and
+	 * all chunks before it are solved, while the next CHUNKS_AHEAD - 1
+	 * chunks are being solved, so only the paths of those chunks are held.
+	 * @param trips
+	 * 		trips to solve
+	 * @param executor
+	 * 		runs the tasks; the caller shuts it down
+	 * @param sink
+	 * 		where to write the answers; flushed at the end
+	 * @throws IOException
+	 * 		if sink cannot be written
+	 */
+	public void answerAll(List<TripRequest> trips, ExecutorService executor, ResultSink sink)
+			throws IOException {
+		// chunks handed to the executor and not yet written, oldest first
+		ArrayDeque<Chunk> chunks = new ArrayDeque<Chunk>();
+		int next = 0;
+		try {
+			while (next < trips.size() || !chunks.isEmpty()) {
+				while (next < trips.size() && chunks.size() < CHUNKS_AHEAD) {
+					int to = Math.min(next + BatchPlanner.CHUNK_SIZE, trips.size());
+					chunks.add(new Chunk(next, trips.subList(next, to), executor));
+					next = to;
 				}
-				//else print the time graph 
-				else {
-					ArrayList<DirectedEdge> result = GraphAlgorithms.getShortestPath(timeGraph, start, end);	
-					System.out.println("Shortest driving time from " + vertices.get(result.get(0).from()) + " to " 
-					+ vertices.get(result.get(result.size()-1).to()));
-					GraphAlgorithms.printShortestPath(result, isDistance, vertices);
+				Chunk chunk = chunks.peek();
+				for (Future<?> task : chunk.tasks) {
+					task.get();
+				}
+				chunks.remove();
+				for (int j = 0; j < chunk.trips.size(); j++) {
+					sink.result(chunk.from + j, chunk.trips.get(j), chunk.paths.get(j));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while solving trips", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Chunk chunk : chunks) {
+				for (Future<?> task : chunk.tasks) {
+					task.cancel(true);
 				}
-				
-				
 			}
 		}
-		
+		sink.flush();
+	}
+
+	/**
+	 * Consecutive trips solved by tasks on an executor
+	 */
+	private class Chunk {
+		// index of the first trip, the trips and their paths, filled in by the tasks
+		final int from;
+		final List<TripRequest> trips;
+		final List<ArrayList<DirectedEdge>> paths;
+		final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+		Chunk(int from, final List<TripRequest> trips, ExecutorService executor) {
+			this.from = from;
+			this.trips = trips;
+			paths = BatchPlanner.emptyPaths(trips.size());
+			List<int[]> groups = planner.groups(trips);
+			for (int first = 0; first < groups.size(); ) {
+				// take groups until the task has enough trips
+				int last = first, size = 0;
+				while (last < groups.size() && size < BATCH_SIZE) {
+					size += groups.get(last++).length;
+				}
+				final List<int[]> task = groups.subList(first, last);
+				tasks.add(executor.submit(new Runnable() {
+					public void run() {
+						for (int[] group : task) {
+							planner.solveGroup(trips, group, paths);
+						}
+					}
+				}));
+				first = last;
+			}
+		}
+	}
+
+	/**
+	 * Makes the executor for answerAll
+	 * @param threads
+	 * 		number of platform threads
+	 * @param virtual
+	 * 		whether to start a virtual thread per task instead; falls back
+	 * 		to platform threads before Java 21
+	 * @return the executor
+	 */
+	public static ExecutorService newExecutor(int threads, boolean virtual) {
+		if (virtual) {
+			try {
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				return (ExecutorService) factory.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				System.err.println("virtual threads need Java 21, using platform threads");
+			}
+		}
+		if (threads < 1) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		return Executors.newFixedThreadPool(threads);
 	}
 }
\ No newline at end of file
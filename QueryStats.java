@@ -0,0 +1,199 @@
+package onTheRoad;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional statistics of the searches behind the trip queries: vertices
+ * settled, edges relaxed, priority queue inserts, decrease-keys and
+ * delMins, path lengths and latencies.
+ * <p>
+ * The searches of GraphAlgorithms count their work in their SearchContext,
+ * and BatchPlanner adds those counts to the totals here once per query,
+ * into LongAdders and LogHistograms, so that threads never wait on each
+ * other. The totals can be read over JMX, see register(), and written as
+ * JSON by dump(); "Optimizer file -stats F" writes them to F at the end of
+ * the run.
+ * <p>
+ * Everything is off unless the JVM runs with -DonTheRoad.stats=true. Every
+ * use of the counters is guarded by ENABLED, a static final field, which
+ * the JIT compiler treats as a constant: when it is false the guarded code
+ * is removed from the compiled searches.
+ */
+public final class QueryStats {
+	/**
+	 * Whether the searches count their work
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("onTheRoad.stats");
+
+	/**
+	 * Name of the JMX bean registered by register()
+	 */
+	public static final String OBJECT_NAME = "onTheRoad:type=QueryStats";
+
+	private static final LongAdder queries = new LongAdder();
+	private static final LongAdder settled = new LongAdder();
+	private static final LongAdder relaxed = new LongAdder();
+	private static final LongAdder inserts = new LongAdder();
+	private static final LongAdder decreaseKeys = new LongAdder();
+	private static final LongAdder delMins = new LongAdder();
+
+	// edges per path found, and nanoseconds per query
+	private static final LogHistogram pathEdges = new LogHistogram();
+	private static final LogHistogram latency = new LogHistogram();
+
+	private QueryStats() {
+	}
+
+	/**
+	 * Adds the work counted in ctx since it was last cleared to the totals,
+	 * as one query
+	 * @param ctx
+	 * 		search state of the query
+	 * @param nanos
+	 * 		time the query took
+	 */
+	public static void record(SearchContext ctx, long nanos) {
+		queries.increment();
+		settled.add(ctx.settled);
+		relaxed.add(ctx.relaxed);
+		inserts.add(ctx.inserts);
+		decreaseKeys.add(ctx.decreaseKeys);
+		delMins.add(ctx.delMins);
+		ctx.resetCounts();
+		latency.record(nanos);
+	}
+
+	/**
+	 * Adds the length of a path found
+	 * @param edges
+	 * 		number of edges of the path
+	 */
+	public static void recordPath(int edges) {
+		pathEdges.record(edges);
+	}
+
+	/**
+	 * Starts counting from zero again
+	 */
+	public static void reset() {
+		queries.reset();
+		settled.reset();
+		relaxed.reset();
+		inserts.reset();
+		decreaseKeys.reset();
+		delMins.reset();
+		pathEdges.reset();
+		latency.reset();
+	}
+
+	/**
+	 * Registers the statistics with the platform MBean server, under
+	 * OBJECT_NAME, unless they are registered already
+	 * @throws IllegalStateException
+	 * 		if the bean cannot be registered
+	 */
+	public static synchronized void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new Bean(), name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("could not register " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * Writes the statistics as one JSON object; counts are totals and
+	 * latencies are in microseconds
+	 * @param out
+	 * 		where to write
+	 * @throws IOException
+	 * 		if out cannot be written
+	 */
+	public static void dump(Writer out) throws IOException {
+		out.write(String.format(Locale.ROOT, "{\"enabled\":%b,\"queries\":%d,\"settledVertices\":%d,"
+				+ "\"relaxedEdges\":%d,\"inserts\":%d,\"decreaseKeys\":%d,\"delMins\":%d,"
+				+ "\"pathEdges\":{\"count\":%d,\"mean\":%.3f,\"p50\":%d,\"p99\":%d,\"max\":%d},"
+				+ "\"latencyMicros\":{\"mean\":%.3f,\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"p999\":%.3f,\"max\":%.3f}}%n",
+				ENABLED, queries.sum(), settled.sum(), relaxed.sum(), inserts.sum(), decreaseKeys.sum(),
+				delMins.sum(), pathEdges.count(), pathEdges.mean(), pathEdges.percentile(0.5),
+				pathEdges.percentile(0.99), pathEdges.max(), latency.mean() / 1e3,
+				latency.percentile(0.5) / 1e3, latency.percentile(0.9) / 1e3, latency.percentile(0.99) / 1e3,
+				latency.percentile(0.999) / 1e3, latency.max() / 1e3));
+	}
+
+	/**
+	 * The statistics as a JMX bean
+	 */
+	private static class Bean implements QueryStatsMXBean {
+		public long getQueries() {
+			return queries.sum();
+		}
+
+		public long getSettledVertices() {
+			return settled.sum();
+		}
+
+		public long getRelaxedEdges() {
+			return relaxed.sum();
+		}
+
+		public long getInserts() {
+			return inserts.sum();
+		}
+
+		public long getDecreaseKeys() {
+			return decreaseKeys.sum();
+		}
+
+		public long getDelMins() {
+			return delMins.sum();
+		}
+
+		public long getPaths() {
+			return pathEdges.count();
+		}
+
+		public double getMeanPathEdges() {
+			return pathEdges.mean();
+		}
+
+		public long getMaxPathEdges() {
+			return pathEdges.max();
+		}
+
+		public double getMeanLatencyMicros() {
+			return latency.mean() / 1e3;
+		}
+
+		public double getLatencyP50Micros() {
+			return latency.percentile(0.5) / 1e3;
+		}
+
+		public double getLatencyP99Micros() {
+			return latency.percentile(0.99) / 1e3;
+		}
+
+		public double getLatencyP999Micros() {
+			return latency.percentile(0.999) / 1e3;
+		}
+
+		public double getMaxLatencyMicros() {
+			return latency.max() / 1e3;
+		}
+
+		public void reset() {
+			QueryStats.reset();
+		}
+	}
+}
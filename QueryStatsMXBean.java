@@ -0,0 +1,41 @@
+package onTheRoad;
+
+/**
+ * The query statistics of QueryStats as seen over JMX, under the name
+ * QueryStats.OBJECT_NAME. Counts are totals since the start or the last
+ * reset(); latencies are in microseconds.
+ */
+public interface QueryStatsMXBean {
+	long getQueries();
+
+	long getSettledVertices();
+
+	long getRelaxedEdges();
+
+	long getInserts();
+
+	long getDecreaseKeys();
+
+	long getDelMins();
+
+	long getPaths();
+
+	double getMeanPathEdges();
+
+	long getMaxPathEdges();
+
+	double getMeanLatencyMicros();
+
+	double getLatencyP50Micros();
+
+	double getLatencyP99Micros();
+
+	double getLatencyP999Micros();
+
+	double getMaxLatencyMicros();
+
+	/**
+	 * Starts counting from zero again
+	 */
+	void reset();
+}
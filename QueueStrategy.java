@@ -0,0 +1,74 @@
+package onTheRoad;
+
+/**
+ * Priority queue used by Dijkstra's algorithm on a quantized graph, see
+ * GraphAlgorithms.dijkstra(g, s, strategy, ctx). All three find the same
+ * distances; which is fastest depends on the graph.
+ */
+public enum QueueStrategy {
+	/** DoubleIndexMinPQ, a 4-ary heap: O(log V) per operation whatever the weights */
+	HEAP {
+		MonotonePQ create(int V, int maxWeight) {
+			final DoubleIndexMinPQ pq = new DoubleIndexMinPQ(V);
+			return new MonotonePQ() {
+				public boolean isEmpty() {
+					return pq.isEmpty();
+				}
+
+				public boolean contains(int i) {
+					return pq.contains(i);
+				}
+
+				public void insert(int i, long key) {
+					pq.insert(i, key);
+				}
+
+				public void decreaseKey(int i, long key) {
+					pq.decreaseKey(i, key);
+				}
+
+				public int delMin() {
+					return pq.delMin();
+				}
+
+				public void clear() {
+					pq.clear();
+				}
+			};
+		}
+	},
+
+	/** DialQueue: O(1) per operation, plus a scan over one bucket per unit of distance */
+	DIAL {
+		MonotonePQ create(int V, int maxWeight) {
+			return new DialQueue(V, maxWeight);
+		}
+	},
+
+	/** RadixHeap: amortized O(log C) per delMin for largest weight C */
+	RADIX {
+		MonotonePQ create(int V, int maxWeight) {
+			return new RadixHeap(V);
+		}
+	};
+
+	/**
+	 * @param V
+	 *            number of indices
+	 * @param maxWeight
+	 *            largest edge weight of the graph to be searched
+	 * @return an empty queue of this kind
+	 */
+	abstract MonotonePQ create(int V, int maxWeight);
+
+	/**
+	 * @param maxWeight
+	 *            largest edge weight of the graph to be searched
+	 * @param pq
+	 *            queue made by create
+	 * @return whether pq can be used to search a graph whose largest weight is maxWeight
+	 */
+	boolean fits(int maxWeight, MonotonePQ pq) {
+		return this != DIAL || ((DialQueue) pq).maxWeight() >= maxWeight;
+	}
+}
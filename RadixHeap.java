@@ -0,0 +1,165 @@
+/******************************************************************************
+ *  Radix heap for monotone integer keys.
+ *
+ ******************************************************************************/
+
+package onTheRoad;
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The {@code RadixHeap} class is a monotone indexed priority queue for
+ *  non-negative integer keys (Ahuja, Mehlhorn, Orlin and Tarjan). A key is
+ *  kept in bucket 0 if it equals the last key removed, and otherwise in the
+ *  bucket numbered by the highest bit in which it differs from that key, so
+ *  there are 65 buckets whatever the edge weights. When bucket 0 runs empty,
+ *  the lowest non-empty bucket is emptied into the buckets below it around
+ *  its smallest key. Every key only ever moves to lower buckets, which bounds
+ *  the work per element by the number of buckets.
+ *  <p>
+ *  Each bucket is a doubly linked list threaded through arrays indexed by the
+ *  queue indices, so nothing is allocated after construction. The
+ *  <em>insert</em>, <em>decrease-key</em> and <em>contains</em> operations take
+ *  &Theta;(1) time and <em>delete-the-minimum</em> takes amortized
+ *  &Theta;(log <em>C</em>) time, where <em>C</em> is the largest edge weight.
+ *  Unlike {@link DialQueue}, the space used does not depend on <em>C</em>.
+ */
+public class RadixHeap implements MonotonePQ {
+    private static final int BUCKETS = 65;
+
+    private final int maxN;       // maximum number of elements on the queue
+    private final int[] head = new int[BUCKETS];    // head[b] = first index in bucket b, or -1
+    private final int[] next;     // next[i] = index after i in its bucket, or -1
+    private final int[] prev;     // prev[i] = index before i in its bucket, or -1 if first
+    private final byte[] bucketOf;  // bucketOf[i] = bucket holding i, or -1 if not on the queue
+    private final long[] keys;    // keys[i] = key of index i
+    private int n;                // number of elements on the queue
+    private long last;            // last key removed; no key on the queue is below it
+
+    /**
+     * Initializes an empty queue with indices between {@code 0} and {@code maxN - 1}.
+     *
+     * @param  maxN the number of indices
+     * @throws IllegalArgumentException if {@code maxN < 0}
+     */
+    public RadixHeap(int maxN) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        this.maxN = maxN;
+        next = new int[maxN];
+        prev = new int[maxN];
+        bucketOf = new byte[maxN];
+        keys = new long[maxN];
+        for (int i = 0; i < maxN; i++)
+            bucketOf[i] = -1;
+        for (int b = 0; b < BUCKETS; b++)
+            head[b] = -1;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public boolean contains(int i) {
+        validateIndex(i);
+        return bucketOf[i] != -1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code i} is on the queue or
+     *         {@code key} is below the last key removed
+     */
+    public void insert(int i, long key) {
+        validateIndex(i);
+        if (bucketOf[i] != -1) throw new IllegalArgumentException("index is already in the priority queue");
+        validateKey(key);
+        keys[i] = key;
+        link(i, bucket(key));
+        n++;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code key} is not below the key
+     *         of {@code i} or is below the last key removed
+     * @throws NoSuchElementException if {@code i} is not on the queue
+     */
+    public void decreaseKey(int i, long key) {
+        validateIndex(i);
+        if (bucketOf[i] == -1) throw new NoSuchElementException("index is not in the priority queue");
+        if (key >= keys[i]) throw new IllegalArgumentException("Calling decreaseKey() with a key not below the key in the priority queue");
+        validateKey(key);
+        unlink(i);
+        keys[i] = key;
+        link(i, bucket(key));
+    }
+
+    /**
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        if (head[0] == -1) {
+            // move the lowest non-empty bucket down around its smallest key
+            int b = 1;
+            while (head[b] == -1) b++;
+            long min = Long.MAX_VALUE;
+            for (int i = head[b]; i != -1; i = next[i])
+                min = Math.min(min, keys[i]);
+            last = min;
+            int i = head[b];
+            head[b] = -1;
+            while (i != -1) {
+                int after = next[i];
+                link(i, bucket(keys[i]));
+                i = after;
+            }
+        }
+        int min = head[0];
+        unlink(min);
+        bucketOf[min] = -1;
+        n--;
+        return min;
+    }
+
+    /**
+     * Takes time proportional to the number of elements on the queue.
+     */
+    public void clear() {
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int i = head[b]; i != -1; i = next[i])
+                bucketOf[i] = -1;
+            head[b] = -1;
+        }
+        n = 0;
+        last = 0;
+    }
+
+    // bucket of a key: 0 if it is the last key removed, else 1 + its highest bit differing from it
+    private int bucket(long key) {
+        return 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(int i, int b) {
+        bucketOf[i] = (byte) b;
+        prev[i] = -1;
+        next[i] = head[b];
+        if (head[b] != -1) prev[head[b]] = i;
+        head[b] = i;
+    }
+
+    private void unlink(int i) {
+        if (prev[i] == -1) head[bucketOf[i]] = next[i];
+        else               next[prev[i]] = next[i];
+        if (next[i] != -1) prev[next[i]] = prev[i];
+    }
+
+    // throw an IllegalArgumentException unless last <= key
+    private void validateKey(long key) {
+        if (key < last) throw new IllegalArgumentException("key " + key + " is below the last key removed " + last);
+    }
+
+    // throw an IllegalArgumentException unless {@code 0 <= i < maxN}
+    private void validateIndex(int i) {
+        if (i < 0) throw new IllegalArgumentException("index is negative: " + i);
+        if (i >= maxN) throw new IllegalArgumentException("index >= capacity: " + i);
+    }
+}
@@ -0,0 +1,25 @@
+package onTheRoad;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Receives the answers to trip requests, in the order of the requests, to
+ * write them out as they come. Closing the sink flushes what it buffered.
+ */
+public interface ResultSink extends Flushable, Closeable {
+	/**
+	 * @param index
+	 *            index of the trip in the list of trip requests
+	 * @param trip
+	 *            the trip
+	 * @param path
+	 *            edges of its shortest path in order, null if its end cannot
+	 *            be reached
+	 * @throws IOException
+	 *             if the answer cannot be written
+	 */
+	void result(int index, TripRequest trip, ArrayList<DirectedEdge> path) throws IOException;
+}
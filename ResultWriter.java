@@ -0,0 +1,257 @@
+package onTheRoad;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the answers to trip requests to a stream through a large buffer,
+ * in one of these formats:
+ * <ul>
+ * <li>TEXT: the directions Optimizer prints, byte for byte;</li>
+ * <li>CSV: a header line, then a line "trip,start,end,metric,departure,
+ * total,vertices" per trip, with metric D or T, the departure empty if
+ * there is none, the total length in miles or hours, and the vertex ids
+ * of the path separated by spaces; total and vertices are empty if there
+ * is no route;</li>
+ * <li>NDJSON: a JSON object per line with the same fields, vertices an
+ * array, and null for what is missing;</li>
+ * <li>BINARY: the int MAGIC, then per trip, as by DataOutputStream: int
+ * trip, int start, int end, byte 0 for distance or 1 for time, double
+ * departure (NaN if none), int number of edges of the path (-1 if there
+ * is no route), and if there is a route, double total and an int per
+ * vertex of the path, one more than its edges.</li>
+ * </ul>
+ * Every answer is built in a StringBuilder that is reused, and copied to
+ * the buffer through a reused char array, so writing an answer makes no
+ * objects beyond those of the path itself.
+ */
+public class ResultWriter implements ResultSink {
+	/**
+	 * Output formats
+	 */
+	public enum Format { TEXT, CSV, NDJSON, BINARY }
+
+	/**
+	 * First int of the binary format
+	 */
+	public static final int MAGIC = 0x4F545231;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String NEWLINE = System.lineSeparator();
+
+	private final Format format;
+	private final List<String> vertices;
+
+	// the stream, as text or binary as the format needs
+	private final Writer text;
+	private final DataOutputStream binary;
+
+	// whether close() closes the stream, or only flushes it
+	private final boolean ownsStream;
+
+	// reused for every answer
+	private final StringBuilder line = new StringBuilder(256);
+	private final char[] chars = new char[8192];
+
+	/**
+	 * @param out
+	 *            where to write; closed by close()
+	 * @param format
+	 *            output format
+	 * @param vertices
+	 *            names of the vertices, for the TEXT format
+	 * @param charset
+	 *            encoding of the text formats
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	public ResultWriter(OutputStream out, Format format, List<String> vertices, Charset charset) throws IOException {
+		this(out, format, vertices, charset, true);
+	}
+
+	private ResultWriter(OutputStream out, Format format, List<String> vertices, Charset charset,
+			boolean ownsStream) throws IOException {
+		this.format = format;
+		this.vertices = vertices;
+		this.ownsStream = ownsStream;
+		if (format == Format.BINARY) {
+			text = null;
+			binary = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			binary.writeInt(MAGIC);
+		} else {
+			text = new OutputStreamWriter(new BufferedOutputStream(out, BUFFER_SIZE), charset);
+			binary = null;
+			if (format == Format.CSV) {
+				text.write("trip,start,end,metric,departure,total,vertices" + NEWLINE);
+			}
+		}
+	}
+
+	/**
+	 * Makes a writer to System.out, in the encoding System.out uses, which
+	 * close() only flushes. The text is buffered here and handed to
+	 * System.out in large pieces.
+	 * @param format
+	 *            output format
+	 * @param vertices
+	 *            names of the vertices, for the TEXT format
+	 * @return the writer
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	public static ResultWriter toStandardOutput(Format format, List<String> vertices) throws IOException {
+		// System.out is encoded as stdout.encoding says from Java 19 on, as
+		// sun.stdout.encoding says before it when on a console, else in the default charset
+		Charset charset = Charset.defaultCharset();
+		for (String property : new String[] { "stdout.encoding", "sun.stdout.encoding" }) {
+			String encoding = System.getProperty(property);
+			if (encoding != null && Charset.isSupported(encoding)) {
+				charset = Charset.forName(encoding);
+				break;
+			}
+		}
+		System.out.flush();
+		return new ResultWriter(System.out, format, vertices, charset, false);
+	}
+
+	public void result(int index, TripRequest trip, ArrayList<DirectedEdge> path) throws IOException {
+		if (format == Format.BINARY) {
+			writeBinary(index, trip, path);
+			return;
+		}
+		line.setLength(0);
+		switch (format) {
+		case TEXT:
+			appendText(line, trip, path, vertices);
+			break;
+		case CSV:
+			appendCsv(index, trip, path);
+			break;
+		default:
+			appendJson(index, trip, path);
+		}
+		// through the char array, as Writer.append would make a String of line
+		for (int from = 0; from < line.length(); from += chars.length) {
+			int to = Math.min(line.length(), from + chars.length);
+			line.getChars(from, to, chars, 0);
+			text.write(chars, 0, to - from);
+		}
+	}
+
+	/**
+	 * Appends the answer to a trip request as Optimizer prints it
+	 * @param out
+	 *            where to append the answer
+	 * @param trip
+	 *            trip that was solved
+	 * @param path
+	 *            shortest path of the trip, null if its end cannot be reached
+	 * @param vertices
+	 *            names of the vertices
+	 * @return out
+	 */
+	public static StringBuilder appendText(StringBuilder out, TripRequest trip, ArrayList<DirectedEdge> path,
+			List<String> vertices) {
+		//the map may be disconnected, so only some trips have no route
+		if (path == null) {
+			return out.append("No route from ").append(vertices.get(trip.getStart())).append(" to ")
+					.append(vertices.get(trip.getEnd())).append(NEWLINE);
+		}
+		out.append(trip.isDistance() ? "Shortest distance from " : "Shortest driving time from ")
+				.append(vertices.get(path.get(0).from())).append(" to ")
+				.append(vertices.get(path.get(path.size() - 1).to())).append(NEWLINE);
+		GraphAlgorithms.formatShortestPath(out, path, trip.isDistance(), vertices);
+		return out;
+	}
+
+	private void appendCsv(int index, TripRequest trip, ArrayList<DirectedEdge> path) {
+		line.append(index).append(',').append(trip.getStart()).append(',').append(trip.getEnd()).append(',')
+				.append(trip.isDistance() ? 'D' : 'T').append(',');
+		if (trip.hasDeparture()) {
+			line.append(trip.getDeparture());
+		}
+		line.append(',');
+		if (path != null) {
+			line.append(total(path)).append(',').append(trip.getStart());
+			for (int i = 0; i < path.size(); i++) {
+				line.append(' ').append(path.get(i).to());
+			}
+		} else {
+			line.append(',');
+		}
+		line.append(NEWLINE);
+	}
+
+	private void appendJson(int index, TripRequest trip, ArrayList<DirectedEdge> path) {
+		line.append("{\"trip\":").append(index).append(",\"start\":").append(trip.getStart())
+				.append(",\"end\":").append(trip.getEnd()).append(",\"metric\":\"")
+				.append(trip.isDistance() ? 'D' : 'T').append("\",\"departure\":");
+		if (trip.hasDeparture()) {
+			line.append(trip.getDeparture());
+		} else {
+			line.append("null");
+		}
+		if (path != null) {
+			line.append(",\"total\":").append(total(path)).append(",\"vertices\":[").append(trip.getStart());
+			for (int i = 0; i < path.size(); i++) {
+				line.append(',').append(path.get(i).to());
+			}
+			line.append("]}");
+		} else {
+			line.append(",\"total\":null,\"vertices\":null}");
+		}
+		line.append(NEWLINE);
+	}
+
+	private void writeBinary(int index, TripRequest trip, ArrayList<DirectedEdge> path) throws IOException {
+		binary.writeInt(index);
+		binary.writeInt(trip.getStart());
+		binary.writeInt(trip.getEnd());
+		binary.writeByte(trip.isDistance() ? 0 : 1);
+		binary.writeDouble(trip.hasDeparture() ? trip.getDeparture() : Double.NaN);
+		if (path == null) {
+			binary.writeInt(-1);
+			return;
+		}
+		binary.writeInt(path.size());
+		binary.writeDouble(total(path));
+		binary.writeInt(trip.getStart());
+		for (int i = 0; i < path.size(); i++) {
+			binary.writeInt(path.get(i).to());
+		}
+	}
+
+	// length of path, summed in the order the TEXT format sums it
+	private static double total(ArrayList<DirectedEdge> path) {
+		double total = 0;
+		for (int i = 0; i < path.size(); i++) {
+			total += path.get(i).weight();
+		}
+		return total;
+	}
+
+	public void flush() throws IOException {
+		if (binary != null) {
+			binary.flush();
+		} else {
+			text.flush();
+		}
+	}
+
+	public void close() throws IOException {
+		if (!ownsStream) {
+			flush();
+		} else if (binary != null) {
+			binary.close();
+		} else {
+			text.close();
+		}
+	}
+}
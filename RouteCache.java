@@ -0,0 +1,252 @@
+package onTheRoad;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of shortest paths keyed by (start, end, metric), for trip
+ * mixes in which a few origin-destination pairs come up again and again.
+ * <p>
+ * Paths are stored as arrays of edge ids of the compact graph they were
+ * found on, a few bytes per edge. The cache is split into shards, each a
+ * LinkedHashMap in access order guarded by its own lock, so threads looking
+ * up different routes rarely wait on each other; each shard evicts its
+ * least recently used routes once it holds more than its share of the
+ * entry or memory bound.
+ * <p>
+ * Any change to a watched EdgeWeightedDigraph empties the cache, and so
+ * does a batch of weight updates from LiveWeights it listens to. A route
+ * found by a search that started before the change is not stored, see put.
+ */
+public class RouteCache implements EdgeListener, WeightListener {
+	// number of shards; a power of two
+	private static final int SHARDS = 16;
+
+	// estimated bytes of an entry besides its path: map entry, boxed key, array header
+	private static final int ENTRY_OVERHEAD = 96;
+
+	/**
+	 * The value stored for routes whose end cannot be reached from their start
+	 */
+	public static final int[] NO_PATH = new int[0];
+
+	private final Shard[] shards = new Shard[SHARDS];
+	private final int maxEntriesPerShard;
+	private final long maxBytesPerShard;
+
+	// bumped by every invalidation
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxEntries
+	 *            most routes held
+	 * @param maxBytes
+	 *            most memory the routes may take, estimated
+	 */
+	public RouteCache(int maxEntries, long maxBytes) {
+		if (maxEntries < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("cache bounds must be positive");
+		}
+		maxEntriesPerShard = Math.max(1, maxEntries / SHARDS);
+		maxBytesPerShard = Math.max(1, maxBytes / SHARDS);
+		for (int i = 0; i < SHARDS; i++) {
+			shards[i] = new Shard();
+		}
+	}
+
+	/**
+	 * Looks up a route
+	 * @param start
+	 *            starting vertex
+	 * @param end
+	 *            ending vertex
+	 * @param metric
+	 *            what the route optimizes
+	 * @return the edge ids of the route, NO_PATH if end is known to be
+	 *         unreachable, or null if the route is not cached
+	 */
+	public int[] get(int start, int end, Metric metric) {
+		long key = key(start, end, metric);
+		Shard shard = shardFor(key);
+		int[] path;
+		synchronized (shard) {
+			path = shard.get(key);
+		}
+		if (path == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return path;
+	}
+
+	/**
+	 * Stores a route, unless the cache was invalidated after generation
+	 * @param start
+	 *            starting vertex
+	 * @param end
+	 *            ending vertex
+	 * @param metric
+	 *            what the route optimizes
+	 * @param path
+	 *            edge ids of the route, or NO_PATH if there is none
+	 * @param generation
+	 *            value of generation() read before the search for the route began
+	 */
+	public void put(int start, int end, Metric metric, int[] path, long generation) {
+		long key = key(start, end, metric);
+		Shard shard = shardFor(key);
+		synchronized (shard) {
+			// checked under the lock, so a clear cannot slip in between
+			if (generation != this.generation.get()) {
+				return;
+			}
+			int[] old = shard.put(key, path);
+			if (old != null) {
+				shard.bytes -= bytes(old);
+			}
+			shard.bytes += bytes(path);
+			Iterator<int[]> eldest = shard.values().iterator();
+			while (shard.size() > maxEntriesPerShard || shard.bytes > maxBytesPerShard) {
+				int[] evicted = eldest.next();
+				eldest.remove();
+				shard.bytes -= bytes(evicted);
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * @return a stamp to pass to put, read before starting a search
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	/**
+	 * Empties the cache and makes routes from searches already running unstorable
+	 */
+	public void invalidateAll() {
+		// routes stored before this are cleared below; routes stored after it are refused
+		generation.incrementAndGet();
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				shard.clear();
+				shard.bytes = 0;
+			}
+		}
+	}
+
+	/**
+	 * Empties the cache whenever an edge is added to a graph it watches
+	 */
+	public void edgeAdded(EdgeWeightedDigraph g, DirectedEdge e) {
+		invalidateAll();
+	}
+
+	/**
+	 * Empties the cache whenever the weights of the graph change
+	 */
+	public void weightsChanged(CompactDigraph g) {
+		invalidateAll();
+	}
+
+	/**
+	 * Empties the cache now and whenever an edge is added to g
+	 * @param g
+	 *            graph the cached routes are computed on
+	 */
+	public void watch(EdgeWeightedDigraph g) {
+		g.addEdgeListener(this);
+		invalidateAll();
+	}
+
+	/**
+	 * @return number of routes held
+	 */
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				size += shard.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return estimated memory taken by the routes held, in bytes
+	 */
+	public long bytes() {
+		long bytes = 0;
+		for (Shard shard : shards) {
+			synchronized (shard) {
+				bytes += shard.bytes;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return number of lookups that found a route
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of lookups that found nothing
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of routes dropped to stay within the bounds
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the statistics of the cache on one line
+	 */
+	public String toString() {
+		return "RouteCache: " + size() + " routes, " + bytes() + " bytes, " + hits() + " hits, "
+				+ misses() + " misses, " + evictions() + " evictions";
+	}
+
+	// start and end take 31 bits each, the metric the lowest two
+	private static long key(int start, int end, Metric metric) {
+		return ((long) start << 33) | ((long) end << 2) | metric.ordinal();
+	}
+
+	private Shard shardFor(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return shards[(int) (h >>> 60) & (SHARDS - 1)];
+	}
+
+	private static long bytes(int[] path) {
+		return ENTRY_OVERHEAD + 4L * path.length;
+	}
+
+	/**
+	 * One independently locked part of the cache
+	 */
+	private static class Shard extends LinkedHashMap<Long, int[]> {
+		private static final long serialVersionUID = 1L;
+
+		// estimated memory taken by the routes in this shard
+		long bytes;
+
+		Shard() {
+			super(16, 0.75f, true);
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/******************************************************************************
+ *  Dependencies: DoubleIndexMinPQ.java
+ *  Reusable per-query search state for graph searches.
+ *
+ ******************************************************************************/
+package onTheRoad;
+
+import java.util.Arrays;
+
+/**
+ *  The {@code SearchContext} class holds the mutable state of one graph
+ *  search: the distance, the parent edge and the visited mark of every vertex,
+ *  plus the scratch queues the searches need. Keeping this state out of the
+ *  graph lets a single, immutable {@link CompactDigraph} be searched by many
+ *  threads at once, each with its own context.
+ *  <p>
+ *  Every entry is stamped with the generation in which it was written, and
+ *  an entry whose stamp is not the current generation reads as "not reached"
+ *  (distance positive infinity, no parent edge, not marked). {@link #clear()}
+ *  just starts a new generation, so clearing takes &Theta;(1) time instead of
+ *  reallocating or refilling &Theta;(<em>V</em>) arrays before every query.
+ *  <p>
+ *  A context is not thread-safe; use one per thread, for instance the one
+ *  returned by {@link #forThread(int)}.
+ */
+public class SearchContext {
+    /** Slot of the context for a forward search, see {@link #forThread(int, int)}. */
+    public static final int FORWARD = 0;
+    /** Slot of the context for a backward search, see {@link #forThread(int, int)}. */
+    public static final int BACKWARD = 1;
+
+    // contexts handed out by forThread, one array of slots per thread
+    private static final ThreadLocal<SearchContext[]> LOCAL = new ThreadLocal<SearchContext[]>();
+
+    private final int V;                // number of vertices this context can hold
+    private int generation;             // stamp of the current search
+    private final int[] reached;        // reached[v] == generation iff distTo[v], edgeTo[v] are set
+    private final int[] marked;         // marked[v] == generation iff v is marked
+    private final double[] distTo;      // distTo[v] = length of shortest known path to v
+    private final int[] edgeTo;         // edgeTo[v] = id of last edge on shortest known path to v
+    private int[] queue;                // scratch FIFO queue for breadth-first search
+    private DoubleIndexMinPQ pq;      // scratch priority queue for Dijkstra's algorithm
+    private MonotonePQ monotonePQ;      // scratch queue for Dijkstra's algorithm on integer weights
+    private QueueStrategy monotoneStrategy;     // kind of monotonePQ
+
+    // work of the current search, counted only if QueryStats.ENABLED
+    long settled;                       // vertices whose edges were scanned
+    long relaxed;                       // edges relaxed
+    long inserts;                       // priority queue inserts
+    long decreaseKeys;                  // priority queue decrease-keys
+    long delMins;                       // priority queue delMins
+
+    /**
+     * Initializes an empty search context for graphs with up to {@code V} vertices.
+     *
+     * @param  V the number of vertices
+     * @throws IllegalArgumentException if {@code V < 0}
+     */
+    public SearchContext(int V) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        this.V = V;
+        this.generation = 1;
+        this.reached = new int[V];
+        this.marked = new int[V];
+        this.distTo = new double[V];
+        this.edgeTo = new int[V];
+    }
+
+    /**
+     * Returns this thread's search context, creating or growing it if it
+     * holds fewer than {@code V} vertices. The context is cleared.
+     *
+     * @param  V the number of vertices of the graph about to be searched
+     * @return a cleared search context owned by the calling thread
+     */
+    public static SearchContext forThread(int V) {
+        return forThread(V, FORWARD);
+    }
+
+    /**
+     * Returns one of this thread's search contexts, for searches such as
+     * bidirectional Dijkstra that need two at the same time.
+     *
+     * @param  V the number of vertices of the graph about to be searched
+     * @param  slot {@link #FORWARD} or {@link #BACKWARD}
+     * @return a cleared search context owned by the calling thread
+     */
+    public static SearchContext forThread(int V, int slot) {
+        SearchContext[] slots = LOCAL.get();
+        if (slots == null) {
+            slots = new SearchContext[BACKWARD + 1];
+            LOCAL.set(slots);
+        }
+        SearchContext ctx = slots[slot];
+        if (ctx == null || ctx.capacity() < V) {
+            ctx = new SearchContext(V);
+            slots[slot] = ctx;
+        } else {
+            ctx.clear();
+        }
+        return ctx;
+    }
+
+    /**
+     * Returns the number of vertices this context can hold.
+     *
+     * @return the number of vertices this context can hold
+     */
+    public int capacity() {
+        return V;
+    }
+
+    /**
+     * Forgets the results of the previous search in &Theta;(1) time.
+     */
+    public void clear() {
+        generation++;
+        if (generation == 0) {
+            // the stamps wrapped around, so old stamps could look current again
+            Arrays.fill(reached, 0);
+            Arrays.fill(marked, 0);
+            generation = 1;
+        }
+        if (pq != null && !pq.isEmpty()) pq.clear();
+        if (QueryStats.ENABLED) resetCounts();
+    }
+
+    /**
+     * Sets the work counted for {@link QueryStats} back to zero.
+     */
+    void resetCounts() {
+        settled = 0;
+        relaxed = 0;
+        inserts = 0;
+        decreaseKeys = 0;
+        delMins = 0;
+    }
+
+    /**
+     * Has a distance been recorded for vertex {@code v} in the current search?
+     *
+     * @param  v the vertex
+     * @return {@code true} if {@code v} has been reached
+     */
+    public boolean isReached(int v) {
+        return reached[v] == generation;
+    }
+
+    /**
+     * Returns the length of the shortest known path to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the distance to {@code v}, or positive infinity if not reached
+     */
+    public double getDist(int v) {
+        return reached[v] == generation ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the id of the last edge on the shortest known path to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the edge id, or -1 if {@code v} is the source or not reached
+     */
+    public int getEdgeTo(int v) {
+        return reached[v] == generation ? edgeTo[v] : -1;
+    }
+
+    /**
+     * Records a path of length {@code dist} to {@code v} ending with edge {@code e}.
+     *
+     * @param  v the vertex
+     * @param  dist the length of the path
+     * @param  e the id of the last edge on the path, or -1 for the source
+     */
+    public void setDist(int v, double dist, int e) {
+        reached[v] = generation;
+        distTo[v] = dist;
+        edgeTo[v] = e;
+    }
+
+    /**
+     * Marks vertex {@code v} as visited.
+     *
+     * @param  v the vertex
+     */
+    public void mark(int v) {
+        marked[v] = generation;
+    }
+
+    /**
+     * Confirms whether vertex {@code v} has been marked as visited.
+     *
+     * @param  v the vertex
+     * @return {@code true} if {@code v} has been marked
+     */
+    public boolean isMarked(int v) {
+        return marked[v] == generation;
+    }
+
+    /**
+     * Returns the scratch FIFO queue used by breadth-first search.
+     *
+     * @return an array of length {@link #capacity()}
+     */
+    int[] queue() {
+        if (queue == null) queue = new int[V];
+        return queue;
+    }
+
+    /**
+     * Returns the scratch priority queue used by Dijkstra's algorithm.
+     * It is empty after {@link #clear()}.
+     *
+     * @return an indexed priority queue of capacity {@link #capacity()}
+     */
+    DoubleIndexMinPQ priorityQueue() {
+        if (pq == null) pq = new DoubleIndexMinPQ(V);
+        return pq;
+    }
+
+    /**
+     * Returns the scratch queue used by Dijkstra's algorithm on a quantized
+     * graph, replacing the previous one if it is of another kind or too small
+     * for {@code maxWeight}. The queue is cleared every time it is asked for.
+     *
+     * @param  strategy the kind of queue
+     * @param  maxWeight the largest edge weight of the graph to be searched
+     * @return a monotone priority queue of capacity {@link #capacity()}
+     */
+    MonotonePQ monotoneQueue(QueueStrategy strategy, int maxWeight) {
+        if (monotonePQ == null || monotoneStrategy != strategy || !strategy.fits(maxWeight, monotonePQ)) {
+            monotonePQ = strategy.create(V, maxWeight);
+            monotoneStrategy = strategy;
+        } else {
+            // also forgets the last key removed by the previous search
+            monotonePQ.clear();
+        }
+        return monotonePQ;
+    }
+}
@@ -34,6 +34,31 @@ public class Segment {
 		}
 	}
 
+	/**
+	 * Segment with the given values, as read by FileParser
+	 * Pre: Speed must be greater than 0
+	 * @param start
+	 * 	index of start node
+	 * @param end
+	 * 	index of end node
+	 * @param distance
+	 * 	length of segment
+	 * @param speed
+	 * 	travel speed on segment
+	 */
+	public Segment(int start, int end, double distance, double speed) {
+		if (distance <= 0){
+			throw new ArithmeticException("distance must be positive");
+		}
+		if (speed <= 0) {
+			throw new ArithmeticException("speed must be positive");
+		}
+		this.start = start;
+		this.end = end;
+		this.distance = distance;
+		this.speed = speed;
+	}
+
 	/**
 	 * @return index of start node for segment
 	 */
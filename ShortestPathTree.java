@@ -0,0 +1,193 @@
+/******************************************************************************
+ *  Dependencies: EdgeWeightedDigraph.java DirectedEdge.java
+ *  The shortest paths from one vertex to all others, as flat arrays.
+ *
+ ******************************************************************************/
+package onTheRoad;
+
+import java.util.ArrayList;
+
+/**
+ *  The {@code ShortestPathTree} class holds the result of a single-source
+ *  shortest path search: for every vertex its distance from the source and
+ *  its parent in the tree of shortest paths, in two arrays of length
+ *  <em>V</em>. Paths are only built when asked for, by walking the parents
+ *  from the end of the path, as vertex arrays or as lists of edge
+ *  objects; the tree itself takes &Theta;(<em>V</em>) space however
+ *  long the paths are, where a list per vertex would take
+ *  &Theta;(<em>V</em> &middot; depth).
+ *  <p>
+ *  Trees of an {@link EdgeWeightedDigraph} hold the last edge on the path
+ *  to every vertex. Trees of a {@link CompactDigraph} are
+ *  {@link CompactShortestPathTree}s, which hold the id of that edge
+ *  instead and can also give the paths as edge ids.
+ *  <p>
+ *  A tree is a copy of the search state, so the graph may be searched
+ *  again while the tree is in use.
+ */
+public class ShortestPathTree {
+    private final int source;           // the source of every path
+    private final double[] distTo;      // distTo[v] = length of shortest s->v path, infinity if none
+    private final int[] parent;         // parent[v] = vertex before v on the path, -1 for s or none
+    private final DirectedEdge[] lastEdge;  // last edge on the path to v; null in a CompactShortestPathTree
+
+    /**
+     * Makes a tree whose distances and parents the subclass fills in.
+     *
+     * @param  V the number of vertices
+     * @param  s the source of the search
+     */
+    ShortestPathTree(int V, int s) {
+        this.source = s;
+        this.lastEdge = null;
+        this.distTo = new double[V];
+        this.parent = new int[V];
+    }
+
+    /**
+     * Copies the tree the last search of {@code g} left in it.
+     * Takes &Theta;(<em>V</em>) time.
+     *
+     * @param  g the graph that was searched
+     * @param  s the source of the search
+     */
+    ShortestPathTree(EdgeWeightedDigraph g, int s) {
+        int V = g.V();
+        this.source = s;
+        this.distTo = new double[V];
+        this.parent = new int[V];
+        this.lastEdge = new DirectedEdge[V];
+        for (int v = 0; v < V; v++) {
+            distTo[v] = g.getDist(v);
+            lastEdge[v] = g.getEdgeTo(v);
+            parent[v] = lastEdge[v] == null ? -1 : lastEdge[v].from();
+        }
+    }
+
+    /**
+     * Returns the source of the paths.
+     *
+     * @return the source vertex
+     */
+    public int source() {
+        return source;
+    }
+
+    /**
+     * Returns the number of vertices of the graph.
+     *
+     * @return the number of vertices
+     */
+    public int V() {
+        return distTo.length;
+    }
+
+    /**
+     * Is there a path from the source to {@code v}?
+     *
+     * @param  v the vertex
+     * @return {@code true} if {@code v} can be reached from the source
+     */
+    public boolean hasPathTo(int v) {
+        return distTo[v] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the length of the shortest path from the source to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the length, or positive infinity if there is no path
+     */
+    public double distTo(int v) {
+        return distTo[v];
+    }
+
+    /**
+     * Returns the vertex before {@code v} on its shortest path.
+     *
+     * @param  v the vertex
+     * @return the parent of {@code v}, or -1 if {@code v} is the source or
+     *         cannot be reached
+     */
+    public int parent(int v) {
+        return parent[v];
+    }
+
+    /**
+     * Returns the distances of all vertices. The array is the tree's own,
+     * not a copy, and must not be changed.
+     *
+     * @return an array whose entry {@code v} is {@link #distTo(int) distTo(v)}
+     */
+    public double[] distances() {
+        return distTo;
+    }
+
+    /**
+     * Returns the parents of all vertices. The array is the tree's own, not
+     * a copy, and must not be changed.
+     *
+     * @return an array whose entry {@code v} is {@link #parent(int) parent(v)}
+     */
+    public int[] parents() {
+        return parent;
+    }
+
+    /**
+     * Returns the number of edges on the shortest path to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the number of edges, or -1 if there is no path
+     */
+    public int edgeCount(int v) {
+        if (!hasPathTo(v)) return -1;
+        int n = 0;
+        for (int w = v; parent[w] != -1; w = parent[w])
+            n++;
+        return n;
+    }
+
+    /**
+     * Returns the vertices of the shortest path from the source to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the vertices of the path in order, from the source to
+     *         {@code v}, or {@code null} if there is no path
+     */
+    public int[] vertexPathTo(int v) {
+        int n = edgeCount(v);
+        if (n < 0) return null;
+        int[] path = new int[n + 1];
+        for (int w = v, i = n; i >= 0; w = parent[w], i--)
+            path[i] = w;
+        return path;
+    }
+
+    /**
+     * Returns the edges of the shortest path from the source to {@code v}.
+     *
+     * @param  v the vertex
+     * @return the edges of the path in order, or {@code null} if there is no path
+     */
+    public ArrayList<DirectedEdge> pathTo(int v) {
+        int n = edgeCount(v);
+        if (n < 0) return null;
+        DirectedEdge[] edges = new DirectedEdge[n];
+        for (int w = v, i = n - 1; i >= 0; w = parent[w], i--)
+            edges[i] = lastEdge(w);
+        ArrayList<DirectedEdge> path = new ArrayList<DirectedEdge>(n);
+        for (DirectedEdge e : edges)
+            path.add(e);
+        return path;
+    }
+
+    /**
+     * Returns the last edge on the shortest path to {@code v}.
+     *
+     * @param  v a vertex other than the source that can be reached
+     * @return the edge from {@code parent(v)} to {@code v}
+     */
+    DirectedEdge lastEdge(int v) {
+        return lastEdge[v];
+    }
+}
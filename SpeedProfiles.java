@@ -0,0 +1,193 @@
+package onTheRoad;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time-of-day speed profiles of road segments, such as a slow-down at rush
+ * hour. A profile is a list of breakpoints (hour of day, speed) with the
+ * hours increasing from 0 up to 24; the speed between two breakpoints is
+ * interpolated linearly, and after the last breakpoint it runs towards the
+ * first one of the next day, so every profile repeats daily.
+ * <p>
+ * The breakpoints of all profiles are kept in two shared arrays, and a
+ * profile added a second time is stored once: segments with the same
+ * profile share it, and each only needs its profile id.
+ * <p>
+ * Since a vehicle covers the segment at the speed of the moment, leaving
+ * later never means arriving earlier (the FIFO property), which time
+ * dependent Dijkstra search relies on.
+ */
+public class SpeedProfiles {
+	// hours in a day, the period of every profile
+	public static final double DAY = 24;
+
+	// the breakpoints of profile p are hours[i], speeds[i] for
+	// start[p] <= i < start[p+1]
+	private double[] hours = new double[16];
+	private double[] speeds = new double[16];
+	private int[] start = new int[9];
+	private int numProfiles;
+
+	// profiles by content, to store each only once
+	private Map<Profile, Integer> ids = new HashMap<Profile, Integer>();
+
+	/**
+	 * Adds a profile, unless an identical one was added before
+	 * @param profileHours
+	 * 		hours of the breakpoints, increasing, from 0 to below 24
+	 * @param profileSpeeds
+	 * 		speed at each breakpoint, all positive
+	 * @param n
+	 * 		number of breakpoints to read from the arrays
+	 * @return id of the profile
+	 * @throws IllegalArgumentException
+	 * 		if there are no breakpoints, or their hours or speeds are illegal
+	 */
+	public int add(double[] profileHours, double[] profileSpeeds, int n) {
+		if (n == 0) {
+			throw new IllegalArgumentException("a speed profile needs a breakpoint");
+		}
+		for (int i = 0; i < n; i++) {
+			if (!(profileHours[i] >= 0 && profileHours[i] < DAY) || (i > 0 && !(profileHours[i] > profileHours[i - 1]))) {
+				throw new IllegalArgumentException("profile hours must increase from 0 to below 24: " + profileHours[i]);
+			}
+			if (!(profileSpeeds[i] > 0) || Double.isInfinite(profileSpeeds[i])) {
+				throw new IllegalArgumentException("profile speed must be positive: " + profileSpeeds[i]);
+			}
+		}
+		Profile key = new Profile(Arrays.copyOf(profileHours, n), Arrays.copyOf(profileSpeeds, n));
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+
+		int from = start[numProfiles];
+		if (from + n > hours.length) {
+			int capacity = Math.max(2 * hours.length, from + n);
+			hours = Arrays.copyOf(hours, capacity);
+			speeds = Arrays.copyOf(speeds, capacity);
+		}
+		System.arraycopy(key.hours, 0, hours, from, n);
+		System.arraycopy(key.speeds, 0, speeds, from, n);
+		if (numProfiles + 2 > start.length) {
+			start = Arrays.copyOf(start, 2 * start.length);
+		}
+		start[numProfiles + 1] = from + n;
+		ids.put(key, numProfiles);
+		return numProfiles++;
+	}
+
+	/**
+	 * @return number of distinct profiles
+	 */
+	public int size() {
+		return numProfiles;
+	}
+
+	/**
+	 * @param profile
+	 * 		id of a profile
+	 * @param time
+	 * 		time in hours, counted from midnight of the first day
+	 * @return the speed of profile at time
+	 */
+	public double speed(int profile, double time) {
+		int first = start[profile], last = start[profile + 1] - 1;
+		double hour = time - DAY * Math.floor(time / DAY);
+		int i = piece(profile, hour);
+		if (hour < hours[i]) {
+			// before the first breakpoint: on the piece from the previous day's last one
+			hour += DAY;
+		}
+		int next = i < last ? i + 1 : first;
+		double end = i < last ? hours[i + 1] : hours[first] + DAY;
+		return speeds[i] + (speeds[next] - speeds[i]) * (hour - hours[i]) / (end - hours[i]);
+	}
+
+	/**
+	 * Computes how long covering distance takes at the speeds of a profile,
+	 * leaving at time. The speed is linear on each piece between two
+	 * breakpoints, so the distance covered is a quadratic in the time taken,
+	 * solved piece by piece.
+	 * @param profile
+	 * 		id of a profile
+	 * @param distance
+	 * 		distance to cover
+	 * @param time
+	 * 		time of leaving in hours, counted from midnight of the first day
+	 * @return time taken in hours
+	 */
+	public double travelTime(int profile, double distance, double time) {
+		int first = start[profile], last = start[profile + 1] - 1;
+		double hour = time - DAY * Math.floor(time / DAY);
+		int i = piece(profile, hour);
+		if (hour < hours[i]) {
+			// before the first breakpoint: on the piece from the previous day's last one
+			hour += DAY;
+		}
+		double taken = 0;
+		while (true) {
+			int next = i < last ? i + 1 : first;
+			double end = i < last ? hours[i + 1] : hours[first] + DAY;
+			double slope = (speeds[next] - speeds[i]) / (end - hours[i]);
+			double speed = speeds[i] + slope * (hour - hours[i]);
+			double left = end - hour;
+			double reach = left * (speed + 0.5 * slope * left);
+			if (distance <= reach) {
+				// slope / 2 * t^2 + speed * t = distance, in a form that is stable for small slopes
+				return taken + 2 * distance / (speed + Math.sqrt(Math.max(0, speed * speed + 2 * slope * distance)));
+			}
+			distance -= reach;
+			taken += left;
+			hour = end;
+			if (i == last) {
+				hour -= DAY;
+			}
+			i = next;
+		}
+	}
+
+	/**
+	 * @return the last breakpoint of profile at or before hour, or its last
+	 * 		breakpoint if hour comes before all of them
+	 */
+	private int piece(int profile, double hour) {
+		int lo = start[profile], hi = start[profile + 1] - 1;
+		if (hour < hours[lo]) {
+			return hi;
+		}
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (hours[mid] <= hour) lo = mid;
+			else hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * The breakpoints of a profile, compared by content
+	 */
+	private static class Profile {
+		final double[] hours;
+		final double[] speeds;
+
+		Profile(double[] hours, double[] speeds) {
+			this.hours = hours;
+			this.speeds = speeds;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Profile)) {
+				return false;
+			}
+			Profile p = (Profile) o;
+			return Arrays.equals(hours, p.hours) && Arrays.equals(speeds, p.speeds);
+		}
+
+		public int hashCode() {
+			return 31 * Arrays.hashCode(hours) + Arrays.hashCode(speeds);
+		}
+	}
+}
@@ -0,0 +1,273 @@
+/******************************************************************************
+ *  Dependencies: CompactDigraph.java EdgeWeightedDigraph.java
+ *  Strong components of a digraph by Tarjan's algorithm, without recursion.
+ *
+ ******************************************************************************/
+
+package onTheRoad;
+
+import java.util.Iterator;
+
+/**
+ *  The {@code StrongComponents} class computes the strong components of a
+ *  digraph with Tarjan's algorithm in one depth-first pass. The depth-first
+ *  search keeps its own stack of vertices and, for each vertex on it, the
+ *  position of the next edge to follow, so it never recurses and handles
+ *  paths of any length; the graph itself is not copied or reversed.
+ *  <p>
+ *  Tarjan's algorithm finishes a component only after every component it
+ *  can reach, so component ids are a reverse topological order of the
+ *  condensation: if some vertex of component <em>a</em> reaches a vertex of
+ *  another component <em>b</em>, then <em>b</em> &lt; <em>a</em>.
+ *  {@link #mayReach(int, int)} uses this to rule out many unreachable pairs
+ *  in constant time.
+ *  <p>
+ *  The constructor takes &Theta;(<em>V</em> + <em>E</em>) time and
+ *  &Theta;(<em>V</em>) extra space; every instance method takes &Theta;(1) time.
+ */
+public class StrongComponents {
+    private final int[] id;       // id[v] = id of the strong component containing v
+    private final int[] size;     // size[c] = number of vertices in component c
+    private final int count;      // number of strong components
+
+    /**
+     * Computes the strong components of the compact digraph {@code g}.
+     *
+     * @param g the digraph
+     */
+    public StrongComponents(CompactDigraph g) {
+        int V = g.V();
+        Search search = new Search(V);
+        int[] nextEdge = new int[V];      // nextEdge[v] = next edge of v to follow
+        for (int s = 0; s < V; s++) {
+            if (search.pre[s] != 0) continue;
+            search.visit(s);
+            nextEdge[s] = g.firstEdge(s);
+            while (search.depth > 0) {
+                int v = search.path[search.depth - 1];
+                if (nextEdge[v] < g.endEdge(v)) {
+                    int w = g.target(nextEdge[v]++);
+                    if (search.pre[w] == 0) {
+                        search.visit(w);
+                        nextEdge[w] = g.firstEdge(w);
+                    }
+                    else search.reach(v, w);
+                }
+                else search.finish();
+            }
+        }
+        id = search.id;
+        count = search.count;
+        size = sizes(id, count);
+    }
+
+    /**
+     * Computes the strong components of the edge-weighted digraph {@code g}.
+     *
+     * @param g the digraph
+     */
+    public StrongComponents(EdgeWeightedDigraph g) {
+        int V = g.V();
+        Search search = new Search(V);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Iterator<DirectedEdge>[] nextEdge = (Iterator<DirectedEdge>[]) new Iterator[V];
+        for (int s = 0; s < V; s++) {
+            if (search.pre[s] != 0) continue;
+            search.visit(s);
+            nextEdge[s] = g.adj(s).iterator();
+            while (search.depth > 0) {
+                int v = search.path[search.depth - 1];
+                if (nextEdge[v].hasNext()) {
+                    int w = nextEdge[v].next().to();
+                    if (search.pre[w] == 0) {
+                        search.visit(w);
+                        nextEdge[w] = g.adj(w).iterator();
+                    }
+                    else search.reach(v, w);
+                }
+                else {
+                    nextEdge[v] = null;
+                    search.finish();
+                }
+            }
+        }
+        id = search.id;
+        count = search.count;
+        size = sizes(id, count);
+    }
+
+    /**
+     * Restores strong components computed before, from the array returned by
+     * {@link #ids()}.
+     *
+     * @param  ids ids[v] = component id of vertex v, in the order Tarjan's
+     *         algorithm assigns them; not copied
+     * @throws IllegalArgumentException if an id is negative
+     */
+    public StrongComponents(int[] ids) {
+        int max = -1;
+        for (int c : ids) {
+            if (c < 0) throw new IllegalArgumentException("component id " + c + " is negative");
+            max = Math.max(max, c);
+        }
+        id = ids;
+        count = max + 1;
+        size = sizes(id, count);
+    }
+
+    // size[c] = number of vertices v with id[v] == c
+    private static int[] sizes(int[] id, int count) {
+        int[] size = new int[count];
+        for (int c : id)
+            size[c]++;
+        return size;
+    }
+
+    /**
+     * Returns the number of strong components.
+     *
+     * @return the number of strong components
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the id of the strong component containing vertex {@code v},
+     * between {@code 0} and {@code count() - 1}.
+     *
+     * @param  v the vertex
+     * @return the component id of vertex {@code v}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V}
+     */
+    public int id(int v) {
+        validateVertex(v);
+        return id[v];
+    }
+
+    /**
+     * Returns the number of vertices in the strong component with id {@code c}.
+     *
+     * @param  c the component id
+     * @return the number of vertices in component {@code c}
+     * @throws IllegalArgumentException unless {@code 0 <= c < count()}
+     */
+    public int size(int c) {
+        if (c < 0 || c >= count)
+            throw new IllegalArgumentException("component " + c + " is not between 0 and " + (count - 1));
+        return size[c];
+    }
+
+    /**
+     * Returns true if vertices {@code v} and {@code w} are in the same
+     * strong component, that is, if each is reachable from the other.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @return {@code true} if {@code v} and {@code w} are strongly connected
+     * @throws IllegalArgumentException unless {@code 0 <= v < V} and {@code 0 <= w < V}
+     */
+    public boolean stronglyConnected(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        return id[v] == id[w];
+    }
+
+    /**
+     * Returns false if {@code w} is certainly not reachable from {@code v}.
+     * The answer true is exact when the two are in the same component, and
+     * means only "perhaps" otherwise, so a search must decide.
+     *
+     * @param  v the start vertex
+     * @param  w the end vertex
+     * @return {@code false} if there is no path from {@code v} to {@code w}
+     * @throws IllegalArgumentException unless {@code 0 <= v < V} and {@code 0 <= w < V}
+     */
+    public boolean mayReach(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        return id[w] <= id[v];
+    }
+
+    /**
+     * Returns true if the digraph is strongly connected.
+     *
+     * @return {@code true} if there is at most one strong component
+     */
+    public boolean isStronglyConnected() {
+        return count <= 1;
+    }
+
+    /**
+     * Returns the component ids as an array, for storing with the graph,
+     * for example in a {@link GraphSnapshot}.
+     *
+     * @return a copy of the array of component ids, indexed by vertex
+     */
+    public int[] ids() {
+        return id.clone();
+    }
+
+    private void validateVertex(int v) {
+        int V = id.length;
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     *  The state of Tarjan's algorithm shared by both kinds of digraph: the
+     *  depth-first path, the stack of vertices not yet in a component, and
+     *  the preorder and low-link numbers.
+     */
+    private static class Search {
+        final int[] pre;      // pre[v] = preorder number of v, counting from 1; 0 if unvisited
+        final int[] low;      // low[v] = lowest preorder number reachable from v's subtree
+        final int[] id;       // id[v] = component of v, -1 while v is on the stack
+        final int[] path;     // path[0 .. depth-1] = the depth-first path
+        final int[] stack;    // stack[0 .. top-1] = visited vertices not yet in a component
+        int depth;
+        int top;
+        int preCounter;
+        int count;
+
+        Search(int V) {
+            pre = new int[V];
+            low = new int[V];
+            id = new int[V];
+            path = new int[V];
+            stack = new int[V];
+        }
+
+        // starts visiting v, making it the end of the depth-first path
+        void visit(int v) {
+            pre[v] = low[v] = ++preCounter;
+            id[v] = -1;
+            stack[top++] = v;
+            path[depth++] = v;
+        }
+
+        // edge v->w leads to a vertex visited before
+        void reach(int v, int w) {
+            // a w already in a component cannot reach back to v
+            if (id[w] == -1 && pre[w] < low[v]) low[v] = pre[w];
+        }
+
+        // all edges of the last vertex on the path are followed
+        void finish() {
+            int v = path[--depth];
+            if (depth > 0) {
+                int u = path[depth - 1];
+                if (low[v] < low[u]) low[u] = low[v];
+            }
+            if (low[v] == pre[v]) {
+                // v is the root of a component: everything above it on the stack
+                int w;
+                do {
+                    w = stack[--top];
+                    id[w] = count;
+                } while (w != v);
+                count++;
+            }
+        }
+    }
+}
@@ -3,15 +3,34 @@ package onTheRoad;
  * Testing code for graph algorithms
  */
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TestGraphs {
 	/**
 	 * Testing code for graph algorithms
 	 * @param args  ignored
+	 * @throws IOException if a generated file cannot be written or read
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		// Build a test graph
 		EdgeWeightedDigraph testGraph = new EdgeWeightedDigraph(4);
 		List<String> vertices = new ArrayList<String>();
@@ -112,8 +131,1258 @@ public class TestGraphs {
 		System.out.println("Shortest path from "+ maxCities.get(0) + " to " + maxCities.get(3) + " is");
 		GraphAlgorithms.printShortestPath(maxResult, true, maxCities);
 		GraphAlgorithms.printShortestPath(maxResult, false, maxCities);
+
+		// Check the faster searches against Dijkstra's algorithm on a generated network
+		FileParser network = new FileParser(generatedNetwork(100, 1).getPath());
+		checkBidirectional(network);
+		checkAStar(network);
+		checkContractionHierarchy(network);
+		checkLandmarks(network);
+		checkPriorityQueue();
+		checkQueueStrategies(network);
+		checkParallelAnswers();
+		checkDistanceMatrix(network);
+		checkRouteCache(network);
+		checkParser();
+		checkSnapshot(network);
+		checkStrongComponents(network);
+		checkUnreachableTrips(network);
+		checkIncrementalComponents(network);
+		checkLiveWeights(network);
+		checkTimeDependent(network);
+		checkResultWriter(network);
+	}
+
+	/**
+	 * Writes a grid city of 20 by 20 junctions to a temporary file: every
+	 * block is a two-way street a little longer than the straight line
+	 * between its ends, every fifth avenue is fast,
+	 * with rush-hour slowdowns,
+	 * the junctions have coordinates,
+	 * and most trips start at one of a few junctions
+	 * @param numTrips  number of trips
+	 * @param seed  seed of the random lengths, speeds and trips
+	 * @return the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static File generatedNetwork(int numTrips, long seed) throws IOException {
+		int n = 20;
+		Random random = new Random(seed);
+		File file = File.createTempFile("testgraphs", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+			out.println("# LOCATIONS");
+			out.println(n * n);
+			for (int v = 0; v < n * n; v++) {
+				out.println((v / n + 1) + " St & " + (v % n + 1) + " Ave | P " + 0.2 * (v % n) + " " + 0.2 * (v / n));
+			}
+			List<String> segments = new ArrayList<String>();
+			for (int v = 0; v < n * n; v++) {
+				if (v % n < n - 1) {
+					segments.add(block(v, v + 1, false, random));
+				}
+				if (v / n < n - 1) {
+					segments.add(block(v, v + n, v % n % 5 == 0, random));
+				}
+			}
+			out.println("# ROAD SEGMENTS");
+			out.println(2 * segments.size());
+			for (String segment : segments) {
+				out.println(segment);
+			}
+			out.println("# TRIPS");
+			out.println(numTrips);
+			int[] starts = new int[10];
+			for (int i = 0; i < starts.length; i++) {
+				starts[i] = random.nextInt(n * n);
+			}
+			for (int i = 0; i < numTrips; i++) {
+				int start = random.nextInt(4) == 0 ? random.nextInt(n * n) : starts[random.nextInt(starts.length)];
+				int end = random.nextInt(n * n);
+				if (end == start) {
+					end = (end + 1) % (n * n);
+				}
+				String trip = start + " " + end + (random.nextBoolean() ? " D" : " T");
+				if (trip.endsWith("T") && random.nextBoolean()) {
+					trip += " " + random.nextInt(2400) / 100.0;
+				}
+				out.println(trip);
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * @param v  junction at one end
+	 * @param w  junction at the other end
+	 * @param fast  whether the block is on a fast avenue
+	 * @param random  source of the length and speeds
+	 * @return the segment lines of both directions of the block
+	 */
+	private static String block(int v, int w, boolean fast, Random random) {
+		double distance = 0.2 * (1.01 + 0.3 * random.nextDouble());
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 2; i++) {
+			double speed = fast ? 55 + 10 * random.nextDouble() : 25 + 15 * random.nextDouble();
+			lines.append(i == 0 ? v + " " + w : "\n" + w + " " + v).append(" " + distance + " " + speed);
+			if (fast) {
+				// slower from 7 to 9:30 in the morning and from 4 to 7 in the evening
+				lines.append(" 0=" + speed + " 7=" + speed + " 8=" + 0.3 * speed + " 9.5=" + speed + " 16=" + speed
+						+ " 17.5=" + 0.4 * speed + " 19=" + speed);
+			}
+		}
+		return lines.toString();
+	}
+
+	/**
+	 * @param V  number of vertices
+	 * @param n  number of pairs
+	 * @param seed  seed of the random choices
+	 * @return n pairs of different random vertices, a pair per row
+	 */
+	private static int[][] randomPairs(int V, int n, long seed) {
+		Random random = new Random(seed);
+		int[][] pairs = new int[n][2];
+		for (int[] pair : pairs) {
+			pair[0] = random.nextInt(V);
+			do {
+				pair[1] = random.nextInt(V);
+			} while (pair[1] == pair[0]);
+		}
+		return pairs;
+	}
+
+	// distances from s to every vertex found by Dijkstra's algorithm, infinity where unreachable
+	private static double[] distances(CompactDigraph g, int s) {
+		SearchContext ctx = new SearchContext(g.V());
+		GraphAlgorithms.dijkstra(g, s, ctx);
+		double[] distances = new double[g.V()];
+		for (int v = 0; v < g.V(); v++) {
+			distances[v] = ctx.getDist(v);
+		}
+		return distances;
+	}
+
+	// total weight of a path, infinity if there is none
+	private static double length(ArrayList<DirectedEdge> path) {
+		if (path == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double length = 0;
+		for (DirectedEdge e : path) {
+			length += e.weight();
+		}
+		return length;
+	}
+
+	// whether two distances are equal but for rounding, as when summed in another order
+	private static boolean sameDistance(double a, double b) {
+		return a == b || Math.abs(a - b) <= 1e-9 * Math.max(1, Math.abs(b));
+	}
+
+	// stops the testing code with message unless ok
+	private static void check(boolean ok, String message) {
+		if (!ok) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	// whether path goes edge after edge from start to end
+	private static boolean connects(ArrayList<DirectedEdge> path, int start, int end) {
+		int v = start;
+		for (DirectedEdge e : path) {
+			if (e.from() != v) {
+				return false;
+			}
+			v = e.to();
+		}
+		return v == end;
+	}
+
+	/**
+	 * Checks that bidirectional Dijkstra finds paths as short as Dijkstra's
+	 * algorithm, and that they are paths from start to end
+	 * @param network  the network to search
+	 */
+	private static void checkBidirectional(FileParser network) {
+		int checked = 0;
+		for (boolean isDistance : new boolean[] { true, false }) {
+			CompactDigraph g = network.makeCompactGraph(isDistance);
+			for (int[] pair : randomPairs(g.V(), 200, 1)) {
+				double expected = distances(g, pair[0])[pair[1]];
+				ArrayList<DirectedEdge> path = GraphAlgorithms.bidirectionalShortestPath(g, pair[0], pair[1]);
+				check(sameDistance(length(path), expected), "bidirectional Dijkstra from " + pair[0] + " to "
+						+ pair[1] + ": " + length(path) + " instead of " + expected);
+				check(path == null || connects(path, pair[0], pair[1]), "bidirectional Dijkstra from "
+						+ pair[0] + " to " + pair[1] + ": broken path " + path);
+				checked++;
+			}
+		}
+		System.out.println("bidirectional Dijkstra agrees with Dijkstra on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks that A* search with the straight-line heuristics of the
+	 * coordinates finds paths as short as Dijkstra's algorithm
+	 * @param network  the network to search, with coordinates
+	 */
+	private static void checkAStar(FileParser network) {
+		int checked = 0;
+		for (boolean isDistance : new boolean[] { true, false }) {
+			CompactDigraph g = network.makeCompactGraph(isDistance);
+			Heuristic h = network.makeHeuristic(isDistance);
+			check(h != null, "no heuristic for a network with coordinates");
+			for (int[] pair : randomPairs(g.V(), 200, 14)) {
+				double expected = distances(g, pair[0])[pair[1]];
+				ArrayList<DirectedEdge> path = GraphAlgorithms.getShortestPath(g, pair[0], pair[1], h);
+				check(sameDistance(length(path), expected) && (path == null || connects(path, pair[0], pair[1])),
+						"A* from " + pair[0] + " to " + pair[1] + ": " + path + " instead of " + expected);
+				checked++;
+			}
+		}
+		System.out.println("A* agrees with Dijkstra on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks that a contraction hierarchy finds the distances and paths
+	 * Dijkstra's algorithm finds, by distance and by time
+	 * @param network  the network to search
+	 */
+	private static void checkContractionHierarchy(FileParser network) {
+		int checked = 0;
+		for (boolean isDistance : new boolean[] { true, false }) {
+			CompactDigraph g = network.makeCompactGraph(isDistance);
+			ContractionHierarchy ch = new ContractionHierarchy(g);
+			for (int[] pair : randomPairs(g.V(), 200, 2)) {
+				double expected = distances(g, pair[0])[pair[1]];
+				ArrayList<DirectedEdge> path = ch.getShortestPath(pair[0], pair[1]);
+				check(sameDistance(ch.distance(pair[0], pair[1]), expected) && sameDistance(length(path), expected)
+						&& (path == null || connects(path, pair[0], pair[1])), "contraction hierarchy from "
+						+ pair[0] + " to " + pair[1] + ": " + path + " instead of " + expected);
+				checked++;
+			}
+		}
+		System.out.println("contraction hierarchy agrees with Dijkstra on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks that the landmark lower bounds never exceed the distances
+	 * Dijkstra's algorithm finds, also after a save and load, and that A*
+	 * search with them finds paths as short as Dijkstra's
+	 * @param network  the network to search
+	 * @throws IOException if the landmarks cannot be saved
+	 */
+	private static void checkLandmarks(FileParser network) throws IOException {
+		int checked = 0;
+		CompactDigraph g = network.makeCompactGraph(false);
+		File file = File.createTempFile("testgraphs", ".alt");
+		file.deleteOnExit();
+		for (Landmarks.Selection selection : Landmarks.Selection.values()) {
+			Landmarks landmarks = new Landmarks(g, 4, selection, 3);
+			landmarks.save(file.getPath());
+			Landmarks loaded = Landmarks.load(file.getPath(), g);
+			for (int[] pair : randomPairs(g.V(), 100, 3)) {
+				double[] expected = distances(g, pair[0]);
+				ArrayList<DirectedEdge> path = GraphAlgorithms.getShortestPath(g, pair[0], pair[1], landmarks);
+				check(sameDistance(length(path), expected[pair[1]]), "A* with " + selection + " landmarks from "
+						+ pair[0] + " to " + pair[1] + ": " + length(path) + " instead of " + expected[pair[1]]);
+				// the bound from the start to the end of every shortest path
+				for (int v = 0; v < g.V(); v++) {
+					double bound = landmarks.lowerBound(pair[0], v);
+					check(bound <= expected[v] * (1 + 1e-6) && bound == loaded.lowerBound(pair[0], v),
+							selection + " landmarks bound the distance from " + pair[0] + " to " + v + " by " + bound
+									+ " instead of at most " + expected[v]);
+				}
+				checked++;
+			}
+		}
+		System.out.println("landmarks agree with Dijkstra on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks DoubleIndexMinPQ of several arities against IndexMinPQ on the
+	 * same random inserts, decreaseKeys, delMins and contains, with many
+	 * equal keys, and again after each clear()
+	 */
+	private static void checkPriorityQueue() {
+		int n = 100;
+		Random random = new Random(15);
+		int checked = 0;
+		for (int d : new int[] { 2, 4, 7 }) {
+			DoubleIndexMinPQ pq = new DoubleIndexMinPQ(n, d);
+			for (int round = 0; round < 3; round++) {
+				pq.clear();
+				IndexMinPQ<Double> expected = new IndexMinPQ<Double>(n);
+				for (int op = 0; op < 3000; op++) {
+					int i = random.nextInt(n);
+					// keys of a few values, so that many are equal
+					double key = random.nextInt(20);
+					check(pq.contains(i) == expected.contains(i), "DoubleIndexMinPQ contains " + i + " wrongly");
+					if (random.nextInt(3) == 0 && !pq.isEmpty()) {
+						// equal keys may come out in another order, but never a larger key first
+						int min = pq.delMin();
+						check(expected.contains(min) && expected.keyOf(min) == expected.minKey().doubleValue()
+								&& !pq.contains(min), "DoubleIndexMinPQ took " + min + " out before a smaller key");
+						expected.delete(min);
+					} else if (!pq.contains(i)) {
+						pq.insert(i, key);
+						expected.insert(i, key);
+					} else if (key < pq.keyOf(i)) {
+						pq.decreaseKey(i, key);
+						expected.decreaseKey(i, key);
+					}
+					check(pq.size() == expected.size() && (pq.isEmpty() || pq.minKey() == expected.minKey()
+							&& pq.keyOf(pq.minIndex()) == pq.minKey()), "DoubleIndexMinPQ of arity " + d
+									+ " differs from IndexMinPQ after " + op + " operations");
+					checked++;
+				}
+			}
+		}
+		System.out.println("DoubleIndexMinPQ agrees with IndexMinPQ on " + checked + " operations");
+	}
+
+
+	/**
+	 * Checks that Dijkstra's algorithm finds the same distances with every
+	 * queue strategy on the time graph quantized to deciseconds, whether it
+	 * searches the whole graph or stops at a target
+	 * @param network  the network to search
+	 */
+	private static void checkQueueStrategies(FileParser network) {
+		int checked = 0;
+		CompactDigraph g = network.makeCompactGraph(false).quantize(GraphAlgorithms.DECISECONDS_PER_HOUR);
+		SearchContext expected = new SearchContext(g.V());
+		SearchContext ctx = new SearchContext(g.V());
+		for (int[] pair : randomPairs(g.V(), 50, 4)) {
+			GraphAlgorithms.dijkstra(g, pair[0], expected);
+			for (QueueStrategy strategy : QueueStrategy.values()) {
+				GraphAlgorithms.dijkstra(g, pair[0], strategy, ctx);
+				for (int v = 0; v < g.V(); v++) {
+					check(ctx.getDist(v) == expected.getDist(v), strategy + " from " + pair[0] + " to " + v + ": "
+							+ ctx.getDist(v) + " instead of " + expected.getDist(v));
+				}
+				GraphAlgorithms.dijkstra(g, pair[0], pair[1], strategy, ctx);
+				check(ctx.getDist(pair[1]) == expected.getDist(pair[1]), strategy + " from " + pair[0] + " to "
+						+ pair[1] + ": " + ctx.getDist(pair[1]) + " instead of " + expected.getDist(pair[1]));
+				checked++;
+			}
+		}
+		System.out.println("queue strategies agree with Dijkstra on " + checked + " searches");
+	}
+
+
+	/**
+	 * Checks that Optimizer prints the answers it gives to the trips one by
+	 * one, in the order of the trip requests, on one thread, on several
+	 * and on virtual threads,
+	 * with and without the route cache,
+	 * for more trips than it answers at a time,
+	 * when most trips share their start with others
+	 * @throws IOException if the trips cannot be written
+	 */
+	private static void checkParallelAnswers() throws IOException {
+		String file = generatedNetwork(BatchPlanner.CHUNK_SIZE + 1000, 11).getPath();
+		FileParser input = new FileParser(file);
+		Optimizer optimizer = new Optimizer(input);
+		StringBuilder expected = new StringBuilder();
+		for (TripRequest trip : input.getTrips()) {
+			optimizer.answer(trip, expected);
+		}
+		String[][] settings = { { file }, { file, "-threads", "3" }, { file, "-virtual" },
+				{ file, "-cache", "0" }, { file, "-threads", "3", "-cache", "0" },
+		};
+		for (String[] args : settings) {
+			check(optimizerOutput(args).equals(expected.toString()), "Optimizer " + Arrays.toString(args)
+					+ " answers differently or out of order");
+		}
+		System.out.println("Optimizer answers " + input.getTrips().size() + " trips in order with " + settings.length
+				+ " settings");
+	}
+
+	// what Optimizer.main prints with args
+	private static String optimizerOutput(String[] args) {
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			System.setOut(new PrintStream(bytes, true));
+			// before Java 21 -virtual says on System.err that it uses platform threads
+			System.setErr(new PrintStream(new ByteArrayOutputStream()));
+			Optimizer.main(args);
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+		return bytes.toString();
+	}
+
+
+	/**
+	 * Checks that the distance matrices, by one search per source on one
+	 * thread or several and from a contraction hierarchy, hold the distances
+	 * Dijkstra's algorithm finds, in the order of the sources
+	 * @param network  the network to search
+	 */
+	private static void checkDistanceMatrix(FileParser network) {
+		int checked = 0;
+		CompactDigraph roads = network.makeMultiMetricGraph();
+		int[][] pairs = randomPairs(roads.V(), 30, 5);
+		final int[] sources = new int[20];
+		int[] targets = new int[pairs.length];
+		for (int i = 0; i < pairs.length; i++) {
+			if (i < sources.length) {
+				sources[i] = pairs[i][0];
+			}
+			targets[i] = pairs[i][1];
+		}
+		// a source among the targets, whose distance to itself is 0
+		targets[0] = sources[0];
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (Metric metric : Metric.values()) {
+				CompactDigraph g = roads.view(metric);
+				final double[][] parallel = new double[sources.length][];
+				GraphAlgorithms.distanceMatrix(g, sources, targets, executor, new MatrixSink() {
+					private int next;
+
+					public void row(int source, double[] distances) {
+						check(source == next++, "distance matrix row " + source + " out of order");
+						parallel[source] = distances.clone();
+					}
+				});
+				double[][][] matrices = { GraphAlgorithms.distanceMatrix(roads, metric, sources, targets), parallel,
+						new ContractionHierarchy(g).distanceMatrix(sources, targets) };
+				for (int i = 0; i < sources.length; i++) {
+					double[] expected = distances(g, sources[i]);
+					for (double[][] matrix : matrices) {
+						for (int j = 0; j < targets.length; j++) {
+							check(sameDistance(matrix[i][j], expected[targets[j]]), metric + " matrix from "
+									+ sources[i] + " to " + targets[j] + ": " + matrix[i][j] + " instead of "
+									+ expected[targets[j]]);
+							checked++;
+						}
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		System.out.println("distance matrices agree with Dijkstra on " + checked + " entries");
+	}
+
+
+	/**
+	 * Checks the bounds, invalidation and statistics of RouteCache: a
+	 * segment of the cache over its share of the entry or byte bound drops
+	 * its least recently used route, adding an edge to a watched graph
+	 * empties the cache and makes it refuse routes found before,
+	 * so does a commit of new weights,
+	 * and routes known not to exist are kept as NO_PATH
+	 * @param network  the network the routes are on
+	 */
+	private static void checkRouteCache(FileParser network) {
+		int[] ends = sameSegment(3);
+		int[] path = new int[10];
+		RouteCache probe = new RouteCache(16, Long.MAX_VALUE);
+		probe.put(0, ends[0], Metric.DISTANCE, path, probe.generation());
+		long routeBytes = probe.bytes();
+		// two routes of the same segment fit either bound, three do not
+		RouteCache[] caches = { new RouteCache(2 * 16, Long.MAX_VALUE),
+				new RouteCache(Integer.MAX_VALUE, 16 * (2 * routeBytes + routeBytes / 2)) };
+		for (RouteCache cache : caches) {
+			cache.put(0, ends[0], Metric.DISTANCE, path, cache.generation());
+			cache.put(0, ends[1], Metric.DISTANCE, path, cache.generation());
+			// now the route to ends[1] is the least recently used
+			check(cache.get(0, ends[0], Metric.DISTANCE) == path, "route cache lost a route");
+			cache.put(0, ends[2], Metric.DISTANCE, path, cache.generation());
+			check(cache.get(0, ends[1], Metric.DISTANCE) == null && cache.get(0, ends[0], Metric.DISTANCE) == path
+					&& cache.get(0, ends[2], Metric.DISTANCE) == path, "route cache evicted the wrong route");
+			check(cache.size() == 2 && cache.bytes() == 2 * routeBytes && cache.evictions() == 1
+					&& cache.hits() == 3 && cache.misses() == 1, "route cache counts wrong: " + cache);
+		}
+
+		EdgeWeightedDigraph g = network.makeGraph(true);
+		RouteCache cache = new RouteCache(1000, 1 << 20);
+		cache.watch(g);
+		cache.put(0, 1, Metric.DISTANCE, RouteCache.NO_PATH, cache.generation());
+		check(cache.get(0, 1, Metric.DISTANCE) == RouteCache.NO_PATH, "route cache lost a route known not to exist");
+		// as read by a search that ends after the edge is added
+		long generation = cache.generation();
+		g.addEdge(new DirectedEdge(0, 1, 1.0));
+		cache.put(0, 2, Metric.TIME, path, generation);
+		check(cache.size() == 0 && cache.get(0, 1, Metric.DISTANCE) == null && cache.get(0, 2, Metric.TIME) == null,
+				"route cache kept routes after an edge was added");
+
+		CompactDigraph roads = network.makeMultiMetricGraph();
+		LiveWeights live = network.makeLiveWeights(roads);
+		live.addWeightListener(cache);
+		cache.put(0, 1, Metric.TIME, path, cache.generation());
+		generation = cache.generation();
+		live.setSpeed(0, live.getSpeed(0) / 2);
+		live.commit();
+		cache.put(0, 2, Metric.TIME, path, generation);
+		check(cache.size() == 0, "route cache kept routes after new weights were committed");
+		System.out.println("route cache bounds, invalidation and counts agree");
+	}
+
+	/**
+	 * @param n  number of routes
+	 * @return ends of n routes from 0 by distance that RouteCache keeps in the same segment
+	 */
+	private static int[] sameSegment(int n) {
+		int[] ends = new int[n];
+		ends[0] = 1;
+		for (int end = 2, found = 1; found < n; end++) {
+			// one route per segment, so a second route of the segment evicts the first
+			RouteCache probe = new RouteCache(16, Long.MAX_VALUE);
+			probe.put(0, 1, Metric.DISTANCE, RouteCache.NO_PATH, probe.generation());
+			probe.put(0, end, Metric.DISTANCE, RouteCache.NO_PATH, probe.generation());
+			if (probe.evictions() == 1) {
+				ends[found++] = end;
+			}
+		}
+		return ends;
+	}
+
+
+	/**
+	 * Checks that FileParser reads the same locations, coordinates,
+	 * segments and trips as splitting the lines of a BufferedReader at
+	 * spaces, as it did before, from inputs with CRLF line ends, comment and
+	 * blank lines, "|" in names, planar and geographic coordinates, numbers
+	 * with exponents and more digits than a double holds, and without a
+	 * newline at the end
+	 * @throws IOException if the inputs cannot be written or read
+	 */
+	private static void checkParser() throws IOException {
+		File file = File.createTempFile("testgraphs", ".txt");
+		file.deleteOnExit();
+		int checked = 0;
+		for (String tag : new String[] { null, "P", "G" }) {
+			for (String newline : new String[] { "\n", "\r\n" }) {
+				for (boolean lastNewline : new boolean[] { true, false }) {
+					String text = parserInput(tag, newline);
+					if (!lastNewline) {
+						text = text.substring(0, text.length() - newline.length());
+					}
+					Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+					FileParser fp = new FileParser(file.getPath());
+					String found = describe(fp.getVertices(), fp.getCoordinates(), fp.getSegments(), fp.getTrips());
+					String expected = splitParse(file.getPath());
+					check(found.equals(expected), "FileParser read\n" + found + "instead of\n" + expected + "from\n"
+							+ text);
+					checked++;
+				}
+			}
+		}
+		System.out.println("FileParser agrees with split lines on " + checked + " inputs");
+	}
+
+	/**
+	 * @param tag  letter of the coordinates, P or G, or null for none
+	 * @param newline  line end
+	 * @return an input file of five locations, six segments and five trips
+	 */
+	private static String parserInput(String tag, String newline) {
+		String[] coordinates = { " 0 0", " 1.5e-1 2.5E0", " 33.6846 -117.8265", " 0.1234567890123456789012345 7",
+				" -3.5 4" };
+		String[] names = { "1st St & 101st Ave", "Main St", "Bar | Grill", "Harbor Blvd", "Exit | P 5" };
+		StringBuilder text = new StringBuilder("# LOCATIONS" + newline + newline + "# number of locations" + newline
+				+ "5" + newline);
+		for (int v = 0; v < names.length; v++) {
+			if (v == 2) {
+				text.append(newline).append("# names may hold a bar").append(newline);
+			}
+			text.append(names[v]);
+			if (tag != null) {
+				text.append(" | ").append(tag).append(coordinates[v]);
+			}
+			text.append(newline);
+		}
+		String[] segments = { "0 1 1.5 30.0", "1 0 0.12345678901234567890123456 27.5", "1 2 2e0 3.05E1",
+				"2 3 0.000001234 65", "3 4 123456789.123456789 30", "4 0 12.5 1e2" };
+		text.append(newline).append("# ROAD SEGMENTS").append(newline).append("6").append(newline);
+		for (String segment : segments) {
+			text.append(segment).append(newline);
+		}
+		String[] trips = { "0 3 D", "3 0 T", "1 4 T 17.5", "0 x D", "2 2 D" };
+		text.append(newline).append(newline).append("# TRIPS").append(newline).append("5").append(newline);
+		for (String trip : trips) {
+			text.append(trip).append(newline);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * @return the locations, coordinates, segments and trips, a line each
+	 */
+	private static String describe(List<String> vertices, Coordinates coordinates, List<Segment> segments,
+			List<TripRequest> trips) {
+		StringBuilder out = new StringBuilder();
+		for (int v = 0; v < vertices.size(); v++) {
+			out.append(vertices.get(v));
+			if (coordinates != null && coordinates.has(v)) {
+				out.append(" at ").append(coordinates.isGeographic()).append(' ').append(coordinates.distance(v, 0))
+						.append(' ').append(coordinates.distance(v, 1));
+			}
+			out.append('\n');
+		}
+		for (Segment segment : segments) {
+			out.append(segment.getStart()).append(' ').append(segment.getEnd()).append(' ')
+					.append(segment.getDistance()).append(' ').append(segment.getSpeed()).append('\n');
+		}
+		for (TripRequest trip : trips) {
+			out.append(trip.getStart()).append(' ').append(trip.getEnd()).append(' ').append(trip.isDistance());
+			if (trip.hasDeparture()) {
+				out.append(' ').append(trip.getDeparture());
+			}
+			out.append('\n');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Parses an input file as FileParser did before it read bytes: lines
+	 * from a BufferedReader, split at spaces by Segment and TripRequest
+	 * @param fileName  the input file
+	 * @return the locations, coordinates, segments and trips, a line each
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String splitParse(String fileName) throws IOException {
+		try (BufferedReader input = new BufferedReader(new FileReader(fileName))) {
+			int numLocations = Integer.parseInt(dataLine(input));
+			List<String> vertices = new ArrayList<String>();
+			Coordinates coordinates = null;
+			for (int v = 0; v < numLocations; v++) {
+				String line = dataLine(input);
+				int bar = line.lastIndexOf('|');
+				String[] pieces = line.substring(bar + 1).trim().split(" ");
+				if (bar >= 0 && pieces.length == 3 && (pieces[0].equals("P") || pieces[0].equals("G"))) {
+					if (coordinates == null) {
+						coordinates = new Coordinates(numLocations, pieces[0].equals("G"));
+					}
+					coordinates.set(v, Double.parseDouble(pieces[1]), Double.parseDouble(pieces[2]));
+					line = line.substring(0, bar);
+				}
+				vertices.add(line.trim());
+			}
+			int numSegments = Integer.parseInt(dataLine(input));
+			List<Segment> segments = new ArrayList<Segment>();
+			for (int i = 0; i < numSegments; i++) {
+				segments.add(new Segment(dataLine(input)));
+			}
+			int numTrips = Integer.parseInt(dataLine(input));
+			List<TripRequest> trips = new ArrayList<TripRequest>();
+			for (int i = 0; i < numTrips; i++) {
+				String line = dataLine(input);
+				try {
+					trips.add(new TripRequest(line, vertices));
+				} catch (IllegalArgumentException e) {
+					continue;
+				}
+			}
+			return describe(vertices, coordinates, segments, trips);
+		}
+	}
+
+	// next line that is neither blank nor a comment
+	private static String dataLine(BufferedReader input) throws IOException {
+		String line = input.readLine();
+		while (line.trim().equals("") || line.charAt(0) == '#') {
+			line = input.readLine();
+		}
+		return line;
+	}
+
+
+	/**
+	 * Checks that a snapshot saved and loaded again holds the same names,
+	 * edges, weights, coordinates and sections, so that Dijkstra's algorithm
+	 * finds the same distances on it; that a snapshot with a damaged byte or
+	 * another format version is refused; and that it tells whether it is
+	 * still the snapshot of its text file
+	 * @param network  the network to save
+	 * @throws IOException if the snapshot cannot be saved or loaded
+	 */
+	private static void checkSnapshot(FileParser network) throws IOException {
+		CompactDigraph roads = network.makeMultiMetricGraph();
+		// the speed profiles of the network are not saved, so the snapshot is made without makeSnapshot()
+		GraphSnapshot saved = new GraphSnapshot(network.getVertices(), roads, network.getCoordinates(),
+				network.getMaxSpeed());
+		int[] section = { 3, 1, 4, 1, 5 };
+		saved.putSection("test", section);
+		File file = File.createTempFile("testgraphs", ".snapshot");
+		file.deleteOnExit();
+		saved.save(file.getPath());
+		GraphSnapshot loaded = GraphSnapshot.load(file.getPath());
+		CompactDigraph g = loaded.getGraph();
+		check(loaded.getVertices().equals(network.getVertices()) && loaded.getMaxSpeed() == network.getMaxSpeed()
+				&& Arrays.equals(loaded.getSection("test"), section), "snapshot lost names, speed or sections");
+		check(g.V() == roads.V() && g.E() == roads.E(), "snapshot has " + g.V() + " vertices and " + g.E()
+				+ " edges instead of " + roads.V() + " and " + roads.E());
+		for (int v = 0; v < g.V(); v++) {
+			check(g.firstEdge(v) == roads.firstEdge(v) && g.endEdge(v) == roads.endEdge(v)
+					&& loaded.getCoordinates().distance(v, 0) == network.getCoordinates().distance(v, 0),
+					"snapshot changed vertex " + v);
+		}
+		for (int e = 0; e < g.E(); e++) {
+			for (Metric metric : Metric.values()) {
+				check(g.target(e) == roads.target(e) && g.weight(e, metric) == roads.weight(e, metric),
+						"snapshot changed edge " + e);
+			}
+		}
+		int checked = 0;
+		for (Metric metric : Metric.values()) {
+			for (int[] pair : randomPairs(g.V(), 50, 6)) {
+				double expected = distances(roads.view(metric), pair[0])[pair[1]];
+				double found = distances(g.view(metric), pair[0])[pair[1]];
+				check(found == expected, "snapshot " + metric + " distance from " + pair[0] + " to " + pair[1] + ": "
+						+ found + " instead of " + expected);
+				checked++;
+			}
+		}
+
+		// a byte in the middle, covered by the checksum, and the version after the magic number
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		for (int at : new int[] { bytes.length / 2, 4 }) {
+			byte[] damaged = bytes.clone();
+			damaged[at] ^= 1;
+			Files.write(file.toPath(), damaged);
+			String refusal = null;
+			try {
+				GraphSnapshot.load(file.getPath());
+			} catch (IOException e) {
+				refusal = e.getMessage();
+			}
+			check(refusal != null && refusal.contains(at == 4 ? "version" : "checksum"),
+					"snapshot with byte " + at + " damaged loaded: " + refusal);
+		}
+
+		File source = File.createTempFile("testgraphs", ".txt");
+		source.deleteOnExit();
+		Files.write(source.toPath(), "1".getBytes(StandardCharsets.US_ASCII));
+		saved.setSource(source.getPath());
+		saved.save(file.getPath());
+		boolean current = GraphSnapshot.load(file.getPath()).isSnapshotOf(source.getPath());
+		Files.write(source.toPath(), "12".getBytes(StandardCharsets.US_ASCII));
+		check(current && !GraphSnapshot.load(file.getPath()).isSnapshotOf(source.getPath()),
+				"snapshot does not tell whether its text file changed");
+		System.out.println("snapshot agrees with the text input on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks the strong components of the network, and of the network with
+	 * every third edge dropped so that it falls apart, against the vertices
+	 * Dijkstra's algorithm reaches from random sources forward and backward;
+	 * the components must be numbered in reverse topological order, which
+	 * mayReach relies on
+	 * @param network  the network to check
+	 */
+	private static void checkStrongComponents(FileParser network) {
+		int checked = 0;
+		CompactDigraph roads = network.makeCompactGraph(true);
+		StrongComponents compact = new StrongComponents(roads);
+		StrongComponents edges = new StrongComponents(network.makeGraph(true));
+		// the same components, though perhaps numbered in another order
+		int[] renumbered = new int[compact.count()];
+		Arrays.fill(renumbered, -1);
+		for (int v = 0; v < roads.V(); v++) {
+			if (renumbered[compact.id(v)] == -1) {
+				renumbered[compact.id(v)] = edges.id(v);
+			}
+			check(compact.count() == edges.count() && renumbered[compact.id(v)] == edges.id(v),
+					"strong components of the two graph representations differ at " + v);
+		}
+		for (CompactDigraph g : new CompactDigraph[] { roads, thinned(roads, 3) }) {
+			StrongComponents scc = new StrongComponents(g);
+			CompactDigraph reverse = GraphAlgorithms.graphEdgeReversal(g);
+			check(scc.isStronglyConnected() == GraphAlgorithms.isStronglyConnected(g),
+					"isStronglyConnected disagrees with the strong components");
+			for (int v = 0; v < g.V(); v++) {
+				for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+					check(scc.id(g.target(e)) <= scc.id(v), "strong component of " + g.target(e)
+							+ " numbered after that of " + v + " though an edge leads there");
+				}
+			}
+			for (int[] pair : randomPairs(g.V(), 50, 7)) {
+				int s = pair[0];
+				double[] from = distances(g, s);
+				double[] to = distances(reverse, s);
+				for (int v = 0; v < g.V(); v++) {
+					boolean reached = from[v] < Double.POSITIVE_INFINITY;
+					check(scc.stronglyConnected(s, v) == (reached && to[v] < Double.POSITIVE_INFINITY)
+							&& (scc.mayReach(s, v) || !reached), "strong components of " + s + " and " + v + " wrong");
+				}
+				checked++;
+			}
+			System.out.println(scc.count() + " strong components");
+		}
+		System.out.println("strong components agree with Dijkstra from " + checked + " sources");
+	}
+
+	/**
+	 * @param g  a compact graph
+	 * @param k  one edge in k is dropped
+	 * @return a copy of g without edges 0, k, 2k, ...
+	 */
+	private static CompactDigraph thinned(CompactDigraph g, int k) {
+		int[] tails = new int[g.E()];
+		int[] heads = new int[g.E()];
+		double[] weights = new double[g.E()];
+		int E = 0;
+		for (int v = 0; v < g.V(); v++) {
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				if (e % k != 0) {
+					tails[E] = v;
+					heads[E] = g.target(e);
+					weights[E++] = g.weight(e);
+				}
+			}
+		}
+		return CompactDigraph.fromArrays(g.V(), tails, heads, weights, E);
 	}
 
+	/**
+	 * Checks that BatchPlanner answers a trip with no path, without a search,
+	 * when the strong components show its end to be unreachable, and
+	 * searches for the others; the components given to it claim that
+	 * starts only reach starts, though all junctions are connected
+	 * @param network  the network to search, strongly connected
+	 */
+	private static void checkUnreachableTrips(FileParser network) {
+		CompactDigraph byDistance = network.makeCompactGraph(true);
+		BatchPlanner planner = new BatchPlanner(byDistance, network.makeCompactGraph(false), null, null);
+		List<TripRequest> trips = new ArrayList<TripRequest>();
+		int[] ids = new int[byDistance.V()];
+		Arrays.fill(ids, 1);
+		for (int[] pair : randomPairs(byDistance.V(), 200, 16)) {
+			trips.add(new TripRequest(pair[0], pair[1], pair[0] % 2 == 0));
+			ids[pair[0]] = 0;
+		}
+		planner.setComponents(new StrongComponents(ids));
+		List<ArrayList<DirectedEdge>> paths = BatchPlanner.emptyPaths(trips.size());
+		for (int[] group : planner.groups(trips)) {
+			planner.solveGroup(trips, group, paths);
+		}
+		int unreachable = 0;
+		for (int i = 0; i < trips.size(); i++) {
+			TripRequest trip = trips.get(i);
+			boolean ruledOut = ids[trip.getEnd()] > ids[trip.getStart()];
+			check(ruledOut == (paths.get(i) == null), "trip from " + trip.getStart() + " to " + trip.getEnd()
+					+ (ruledOut ? " searched though the components rule it out" : " has no path"));
+			if (ruledOut) {
+				unreachable++;
+			}
+		}
+		check(unreachable > 0, "no trip ruled out by the components");
+		System.out.println("strong components rule out " + unreachable + " of " + trips.size() + " trips");
+	}
+
+
+	/**
+	 * Checks that IncrementalComponents keeps the same strong components as
+	 * StrongComponents computes afresh, while the edges of the network are
+	 * added in random order to a graph that starts with none, and that
+	 * mayReach holds for the ends of every edge
+	 * @param network  the network whose edges are added
+	 */
+	private static void checkIncrementalComponents(FileParser network) {
+		List<DirectedEdge> edges = new ArrayList<DirectedEdge>();
+		for (DirectedEdge e : network.makeGraph(true).edges()) {
+			edges.add(e);
+		}
+		Collections.shuffle(edges, new Random(8));
+		EdgeWeightedDigraph g = new EdgeWeightedDigraph(network.getVertices().size());
+		IncrementalComponents incremental = new IncrementalComponents(g);
+		int checked = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			g.addEdge(edges.get(i));
+			if (i % 50 != 49 && i != edges.size() - 1) {
+				continue;
+			}
+			StrongComponents scc = new StrongComponents(g);
+			check(incremental.count() == scc.count() && incremental.isStronglyConnected() == scc.isStronglyConnected(),
+					"after " + (i + 1) + " edges IncrementalComponents counts " + incremental.count()
+							+ " strong components instead of " + scc.count());
+			// the same components, though perhaps numbered in another order
+			int[] renumbered = new int[g.V()];
+			Arrays.fill(renumbered, -1);
+			for (int v = 0; v < g.V(); v++) {
+				if (renumbered[incremental.id(v)] == -1) {
+					renumbered[incremental.id(v)] = scc.id(v);
+				}
+				check(renumbered[incremental.id(v)] == scc.id(v), "after " + (i + 1)
+						+ " edges IncrementalComponents puts " + v + " in another component");
+			}
+			for (int j = 0; j <= i; j++) {
+				DirectedEdge e = edges.get(j);
+				check(incremental.mayReach(e.from(), e.to()) && incremental.stronglyConnected(e.from(), e.to())
+						== scc.stronglyConnected(e.from(), e.to()), "after " + (i + 1)
+								+ " edges IncrementalComponents is wrong about edge " + e);
+			}
+			checked++;
+		}
+		System.out.println("incremental strong components agree with StrongComponents at " + checked + " points");
+	}
+
+
+	/**
+	 * Checks that commit() tells the listeners of LiveWeights once per batch
+	 * of updates,
+	 * that updates are only seen once committed,
+	 * that customizable contraction hierarchies listening to it then find
+	 * the distances and paths Dijkstra's algorithm finds on the new weights,
+	 * that a contraction hierarchy built before refuses to answer,
+	 * that segments cannot be made shorter than the straight line between
+	 * their ends, so that A* search still finds the shortest paths,
+	 * and that a listener removed is not told
+	 * @param network  the network to update
+	 */
+	private static void checkLiveWeights(FileParser network) {
+		CompactDigraph roads = network.makeMultiMetricGraph();
+		LiveWeights live = network.makeLiveWeights(roads);
+		CustomizableContractionHierarchy byDistance = new CustomizableContractionHierarchy(roads.view(Metric.DISTANCE));
+		CustomizableContractionHierarchy byTime = new CustomizableContractionHierarchy(roads.view(Metric.TIME));
+		live.addWeightListener(byDistance);
+		live.addWeightListener(byTime);
+		final int[] commits = new int[1];
+		WeightListener counter = new WeightListener() {
+			public void weightsChanged(CompactDigraph g) {
+				commits[0]++;
+			}
+		};
+		live.addWeightListener(counter);
+		ContractionHierarchy stale = new ContractionHierarchy(roads.view(Metric.TIME));
+		Random random = new Random(9);
+		int checked = 0;
+		for (int round = 0; round < 5; round++) {
+			// slow down some segments and lengthen a few, as a traffic feed would
+			for (int i = 0; i < 30; i++) {
+				int segment = random.nextInt(live.segments());
+				double time = roads.weight(live.edge(segment), Metric.TIME);
+				live.setSpeed(segment, live.getSpeed(segment) * (0.3 + 0.7 * random.nextDouble()));
+				if (i % 10 == 0) {
+					live.setDistance(segment, live.getDistance(segment) * (1 + random.nextDouble()));
+				}
+				check(roads.weight(live.edge(segment), Metric.TIME) == time, "update seen before the commit");
+			}
+			live.commit();
+			// nothing to commit
+			live.commit();
+			check(commits[0] == round + 1, commits[0] + " commits told for " + (round + 1));
+			for (Metric metric : Metric.values()) {
+				CompactDigraph g = roads.view(metric);
+				CustomizableContractionHierarchy cch = metric == Metric.DISTANCE ? byDistance : byTime;
+				for (int[] pair : randomPairs(g.V(), 40, round)) {
+					double expected = distances(g, pair[0])[pair[1]];
+					ArrayList<DirectedEdge> path = cch.getShortestPath(pair[0], pair[1]);
+					check(sameDistance(cch.distance(pair[0], pair[1]), expected) && sameDistance(length(path), expected),
+							"customized hierarchy " + metric + " from " + pair[0] + " to " + pair[1] + ": "
+									+ length(path) + " instead of " + expected);
+					checked++;
+				}
+			}
+		}
+		boolean refused = false;
+		try {
+			stale.distance(0, 1);
+		} catch (IllegalStateException e) {
+			refused = true;
+		}
+		check(refused, "a contraction hierarchy answered after the weights changed");
+
+		// the grid blocks are longer than the straight line between their ends, so each can be shortened to it
+		Coordinates coordinates = network.getCoordinates();
+		for (int segment = 0; segment < live.segments(); segment += 7) {
+			int v = network.getSegments().get(segment).getStart();
+			int w = network.getSegments().get(segment).getEnd();
+			double straight = coordinates.distance(v, w);
+			boolean rejected = false;
+			try {
+				live.setDistance(segment, straight * 0.9);
+			} catch (IllegalArgumentException e) {
+				rejected = true;
+			}
+			check(rejected, "segment " + segment + " made shorter than the straight line");
+			live.setDistance(segment, straight);
+		}
+		live.commit();
+		for (Metric metric : Metric.values()) {
+			CompactDigraph g = roads.view(metric);
+			Heuristic h = network.makeHeuristic(metric == Metric.DISTANCE);
+			for (int[] pair : randomPairs(g.V(), 40, 17)) {
+				double expected = distances(g, pair[0])[pair[1]];
+				ArrayList<DirectedEdge> path = GraphAlgorithms.getShortestPath(g, pair[0], pair[1], h);
+				check(sameDistance(length(path), expected), "A* " + metric + " from " + pair[0] + " to " + pair[1]
+						+ " after shortening segments: " + length(path) + " instead of " + expected);
+				checked++;
+			}
+		}
+		int told = commits[0];
+		live.removeWeightListener(counter);
+		live.setSpeed(0, live.getSpeed(0) / 2);
+		live.commit();
+		check(commits[0] == told, "a removed listener was told of a commit");
+		System.out.println("customized hierarchies agree with Dijkstra on " + checked + " trips after updates");
+	}
+
+
+	/**
+	 * Checks the time dependent Dijkstra search against a label-correcting
+	 * search that relaxes every edge until no arrival time improves, on the
+	 * network with rush-hour speed profiles, at random departure times; the
+	 * path it finds must also take the time it reports. Leaving later must
+	 * never mean arriving earlier on a segment, at breakpoints or between them.
+	 * @param network  the network to search
+	 */
+	private static void checkTimeDependent(FileParser network) {
+		TimeDependentGraph td = network.makeTimeDependentGraph(network.makeMultiMetricGraph());
+		CompactDigraph g = td.getGraph();
+		SpeedProfiles profiles = td.getProfiles();
+		for (int profile = 0; profile < profiles.size(); profile++) {
+			for (double distance : new double[] { 0.2, 5 }) {
+				double last = Double.NEGATIVE_INFINITY;
+				// every 6 seconds for two days
+				for (int step = 0; step <= 48 * 600; step++) {
+					double time = step / 600.0;
+					double arrival = time + profiles.travelTime(profile, distance, time);
+					check(arrival >= last, "leaving at " + time + " on profile " + profile + " arrives at " + arrival
+							+ ", before leaving earlier does");
+					last = arrival;
+				}
+			}
+		}
+		SearchContext ctx = new SearchContext(g.V());
+		Random random = new Random(10);
+		double[] arrival = new double[g.V()];
+		int checked = 0;
+		for (int[] pair : randomPairs(g.V(), 40, 10)) {
+			double departure = 48 * random.nextDouble();
+			Arrays.fill(arrival, Double.POSITIVE_INFINITY);
+			arrival[pair[0]] = departure;
+			for (boolean improved = true; improved; ) {
+				improved = false;
+				for (int v = 0; v < g.V(); v++) {
+					if (arrival[v] == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+					for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+						double t = arrival[v] + td.travelTime(e, arrival[v]);
+						if (t < arrival[g.target(e)]) {
+							arrival[g.target(e)] = t;
+							improved = true;
+						}
+					}
+				}
+			}
+			double expected = arrival[pair[1]] - departure;
+			boolean reached = GraphAlgorithms.dijkstra(td, pair[0], pair[1], departure, ctx);
+			check(reached == (expected < Double.POSITIVE_INFINITY), "time dependent search from " + pair[0] + " to "
+					+ pair[1] + " at " + departure + " disagrees on reachability");
+			if (reached) {
+				double time = departure;
+				for (int e : GraphAlgorithms.extractEdgeIds(g, ctx, pair[1])) {
+					time += td.travelTime(e, time);
+				}
+				check(sameDistance(ctx.getDist(pair[1]), expected) && sameDistance(time - departure, expected),
+						"time dependent search from " + pair[0] + " to " + pair[1] + " at " + departure + ": "
+								+ ctx.getDist(pair[1]) + " instead of " + expected);
+			}
+			checked++;
+		}
+		System.out.println("time dependent search agrees with label correcting on " + checked + " trips");
+	}
+
+
+	/**
+	 * Checks that ResultWriter writes the answers in the TEXT format byte for
+	 * byte as Optimizer printed them before it, times that round to a whole
+	 * minute or hour included, and that the CSV, NDJSON and binary formats
+	 * give back the trips, totals and paths written
+	 * @param network  the network to search
+	 * @throws IOException if an answer cannot be written or read back
+	 */
+	private static void checkResultWriter(FileParser network) throws IOException {
+		List<String> vertices = network.getVertices();
+		List<TripRequest> trips = new ArrayList<TripRequest>();
+		List<ArrayList<DirectedEdge>> paths = new ArrayList<ArrayList<DirectedEdge>>();
+		for (int[] pair : randomPairs(vertices.size(), 40, 18)) {
+			boolean isDistance = pair[0] % 2 == 0;
+			trips.add(new TripRequest(pair[0], pair[1], isDistance));
+			paths.add(GraphAlgorithms.getShortestPath(network.makeCompactGraph(isDistance), pair[0], pair[1]));
+		}
+		// single segments of 59.9999 seconds, just under an hour, whole hours, and a minute and a half
+		for (double hours : new double[] { 59.9999 / 3600, 3599.96 / 3600, 1, 2, 1.5 / 60, 1 - 1e-9, 25 }) {
+			ArrayList<DirectedEdge> path = new ArrayList<DirectedEdge>();
+			path.add(new DirectedEdge(0, 1, hours));
+			trips.add(new TripRequest(0, 1, false));
+			paths.add(path);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ResultWriter writer = new ResultWriter(bytes, ResultWriter.Format.TEXT, vertices, StandardCharsets.UTF_8);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < trips.size(); i++) {
+			writer.result(i, trips.get(i), paths.get(i));
+			String answer = baselineText(trips.get(i), paths.get(i), vertices);
+			check(ResultWriter.appendText(new StringBuilder(), trips.get(i), paths.get(i), vertices).toString()
+					.equals(answer), "trip " + i + " printed differently");
+			expected.append(answer);
+		}
+		writer.close();
+		check(Arrays.equals(bytes.toByteArray(), expected.toString().getBytes(StandardCharsets.UTF_8)),
+				"TEXT format differs from the printed answers");
+
+		// and a trip with a departure time, and one with no route
+		trips.add(new TripRequest(2, 3, false, 17.25));
+		paths.add(GraphAlgorithms.getShortestPath(network.makeCompactGraph(false), 2, 3));
+		trips.add(new TripRequest(3, 2, true));
+		paths.add(null);
+		List<String> written = new ArrayList<String>();
+		for (int i = 0; i < trips.size(); i++) {
+			written.add(record(i, trips.get(i), paths.get(i)));
+		}
+		for (ResultWriter.Format format : new ResultWriter.Format[] { ResultWriter.Format.CSV,
+				ResultWriter.Format.NDJSON, ResultWriter.Format.BINARY }) {
+			bytes = new ByteArrayOutputStream();
+			writer = new ResultWriter(bytes, format, vertices, StandardCharsets.UTF_8);
+			for (int i = 0; i < trips.size(); i++) {
+				writer.result(i, trips.get(i), paths.get(i));
+			}
+			writer.close();
+			List<String> read = readBack(format, bytes.toByteArray());
+			check(read.equals(written), format + " format gives back\n" + read + "\ninstead of\n" + written);
+		}
+		System.out.println("result formats agree with the answers on " + trips.size() + " trips");
+	}
+
+	/**
+	 * @return the answer to a trip as Optimizer printed it before
+	 * ResultWriter, through GraphAlgorithms.printShortestPath and hoursToHMS
+	 */
+	private static String baselineText(TripRequest trip, ArrayList<DirectedEdge> path, List<String> vertices) {
+		String newline = System.lineSeparator();
+		StringBuilder out = new StringBuilder();
+		if (trip.isDistance()) {
+			out.append("Shortest distance from " + vertices.get(path.get(0).from()) + " to "
+					+ vertices.get(path.get(path.size() - 1).to()) + newline);
+			double distance = 0;
+			out.append("\tBegin at " + vertices.get(path.get(0).from()) + newline);
+			for (int i = 0; i < path.size(); i++) {
+				out.append("\tContinue to " + vertices.get(path.get(i).to()) + "(" + path.get(i).weight() + ")"
+						+ newline);
+				distance += path.get(i).weight();
+			}
+			out.append("Total distance: " + distance + " miles" + newline);
+		} else {
+			out.append("Shortest driving time from " + vertices.get(path.get(0).from()) + " to "
+					+ vertices.get(path.get(path.size() - 1).to()) + newline);
+			double time = 0;
+			out.append("\tBegin at " + vertices.get(path.get(0).from()) + newline);
+			for (int i = 0; i < path.size(); i++) {
+				out.append("\tContinue to " + vertices.get(path.get(i).to()) + " (" + hoursToHMS(path.get(i).weight())
+						+ ")" + newline);
+				time += path.get(i).weight();
+			}
+			out.append("Total time: " + hoursToHMS(time) + newline);
+		}
+		return out.toString();
+	}
+
+	// hours as hours, minutes and seconds to the nearest tenth, as GraphAlgorithms printed them
+	private static String hoursToHMS(double rawhours) {
+		int numHours = (int) rawhours;
+		double fractionalHours = rawhours - numHours;
+		int tenthSeconds = (int) Math.round(fractionalHours * 36000);
+		int minutes = tenthSeconds / 600;
+		double tenthSecondsLeft = tenthSeconds - 600 * minutes;
+		double seconds = tenthSecondsLeft / 10;
+		if (numHours == 0 && minutes == 0) {
+			return seconds + " secs";
+		} else if (numHours == 0) {
+			return minutes + " mins " + seconds + " secs";
+		} else {
+			return numHours + " hrs " + minutes + " mins " + seconds + " secs";
+		}
+	}
+
+	// the fields of an answer in the machine formats, separated by spaces
+	private static String record(int index, TripRequest trip, ArrayList<DirectedEdge> path) {
+		StringBuilder out = new StringBuilder();
+		out.append(index + " " + trip.getStart() + " " + trip.getEnd() + " " + (trip.isDistance() ? "D" : "T") + " "
+				+ (trip.hasDeparture() ? String.valueOf(trip.getDeparture()) : "-"));
+		if (path == null) {
+			return out.append(" -").toString();
+		}
+		out.append(" " + length(path) + " " + trip.getStart());
+		for (DirectedEdge e : path) {
+			out.append(" " + e.to());
+		}
+		return out.toString();
+	}
+
+	/**
+	 * @param format  CSV, NDJSON or BINARY
+	 * @param bytes  answers written by ResultWriter in format
+	 * @return the fields of each answer, as record gives them
+	 * @throws IOException if the bytes cannot be read
+	 */
+	private static List<String> readBack(ResultWriter.Format format, byte[] bytes) throws IOException {
+		List<String> records = new ArrayList<String>();
+		if (format == ResultWriter.Format.BINARY) {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			check(in.readInt() == ResultWriter.MAGIC, "binary format without its magic number");
+			while (in.available() > 0) {
+				String fields = in.readInt() + " " + in.readInt() + " " + in.readInt() + " "
+						+ (in.readByte() == 0 ? "D" : "T");
+				double departure = in.readDouble();
+				fields += " " + (Double.isNaN(departure) ? "-" : String.valueOf(departure));
+				int edges = in.readInt();
+				if (edges < 0) {
+					records.add(fields + " -");
+					continue;
+				}
+				fields += " " + in.readDouble();
+				for (int i = 0; i <= edges; i++) {
+					fields += " " + in.readInt();
+				}
+				records.add(fields);
+			}
+			return records;
+		}
+		String[] lines = new String(bytes, StandardCharsets.UTF_8).split(System.lineSeparator());
+		for (int i = format == ResultWriter.Format.CSV ? 1 : 0; i < lines.length; i++) {
+			if (format == ResultWriter.Format.CSV) {
+				String[] f = lines[i].split(",", -1);
+				records.add(f[0] + " " + f[1] + " " + f[2] + " " + f[3] + " " + (f[4].isEmpty() ? "-" : f[4]) + " "
+						+ (f[5].isEmpty() ? "-" : f[5] + " " + f[6]));
+			} else {
+				String vertexIds = jsonValue(lines[i], "vertices");
+				records.add(jsonValue(lines[i], "trip") + " " + jsonValue(lines[i], "start") + " "
+						+ jsonValue(lines[i], "end") + " " + jsonValue(lines[i], "metric").replace("\"", "") + " "
+						+ jsonValue(lines[i], "departure").replace("null", "-") + " "
+						+ (vertexIds.equals("null") ? "-" : jsonValue(lines[i], "total") + " "
+								+ vertexIds.substring(1, vertexIds.length() - 1).replace(',', ' ')));
+			}
+		}
+		return records;
+	}
+
+	// the value of field name of a JSON object on one line, as written
+	private static String jsonValue(String line, String name) {
+		int from = line.indexOf("\"" + name + "\":") + name.length() + 3;
+		int to = line.charAt(from) == '[' ? line.indexOf(']', from) + 1 : from;
+		while (line.charAt(to) != ',' && line.charAt(to) != '}') {
+			to++;
+		}
+		return line.substring(from, to);
+	}
+
+
 /*
 4 4
 0: 0->2  1.00  0->1  1.00  
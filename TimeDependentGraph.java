@@ -0,0 +1,81 @@
+package onTheRoad;
+
+/**
+ * A road network whose driving times depend on the time of day: a compact
+ * graph with distance and time weights, as made by
+ * FileParser.makeMultiMetricGraph(), and a speed profile for some of its
+ * edges. Driving an edge with a profile takes as long as covering its
+ * distance at the speeds of the profile from the moment it is entered;
+ * driving any other edge takes its time weight, so updates made through
+ * LiveWeights apply to those edges.
+ * <p>
+ * Travel times are only computed when a search reaches an edge, at the
+ * time it reaches it; nothing is precomputed per departure time.
+ */
+public class TimeDependentGraph {
+	// the graph, with a weight column per metric
+	private CompactDigraph roads;
+
+	// edgeProfile[e] = profile of edge e in profiles, -1 if it has none
+	private int[] edgeProfile;
+	private SpeedProfiles profiles;
+
+	/**
+	 * @param roads
+	 *            graph with distance and time weights
+	 * @param edgeProfile
+	 *            edgeProfile[e] = id in profiles of the profile of edge e, -1
+	 *            for none; not copied
+	 * @param profiles
+	 *            the profiles
+	 */
+	public TimeDependentGraph(CompactDigraph roads, int[] edgeProfile, SpeedProfiles profiles) {
+		if (edgeProfile.length != roads.E()) {
+			throw new IllegalArgumentException("need one profile id per edge");
+		}
+		if (roads.metrics() < Metric.values().length) {
+			throw new IllegalArgumentException("graph needs a weight column per metric");
+		}
+		this.roads = roads;
+		this.edgeProfile = edgeProfile;
+		this.profiles = profiles;
+	}
+
+	/**
+	 * @return the graph, weighted by time when traffic does not matter
+	 */
+	public CompactDigraph getGraph() {
+		return roads.view(Metric.TIME);
+	}
+
+	/**
+	 * @return the profiles, shared by the edges
+	 */
+	public SpeedProfiles getProfiles() {
+		return profiles;
+	}
+
+	/**
+	 * @param e
+	 *            an edge
+	 * @return id of the profile of e, -1 if it has none
+	 */
+	public int profile(int e) {
+		return edgeProfile[e];
+	}
+
+	/**
+	 * @param e
+	 *            an edge
+	 * @param time
+	 *            time edge e is entered, in hours from midnight of the first day
+	 * @return time driving edge e takes, in hours
+	 */
+	public double travelTime(int e, double time) {
+		int p = edgeProfile[e];
+		if (p == -1) {
+			return roads.weight(e, Metric.TIME);
+		}
+		return profiles.travelTime(p, roads.weight(e, Metric.DISTANCE), time);
+	}
+}
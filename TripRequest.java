@@ -1,7 +1,7 @@
 package onTheRoad;
 /**
  * Class representing a trip request with start, end, and whether it
- * is optimizing distance or time.
+ * is optimizing distance or time, optionally with a departure time.
  */
 import java.util.List;
 
@@ -15,13 +15,17 @@ public class TripRequest {
 	
 	// Whether trip should optimize distance (instead of time)
 	private boolean isDistance;
+
+	// Departure time in hours from midnight, NaN if the trip has none
+	private double departure = Double.NaN;
 	
 	/**
 	 * Create trip request from location to location
 	 * @param req 
 	 *    String representing a textual request formatted with
 	 *    the number of the start and end nodes, and a "D" if
-	 *    we are to optimize the trip by distance, "T" if by time
+	 *    we are to optimize the trip by distance, "T" if by time,
+	 *    optionally followed by the departure time in hours if by time
 	 * @param vertices
 	 * 	A list of vertices of the graph so can look up label of nodes.
 	 */
@@ -39,6 +43,57 @@ public class TripRequest {
 		
 		// true iff optimize by distance
 		isDistance = reqPieces[2].equals("D");
+
+		// departure time, if given; only trips by time have one, and any other extra piece is ignored
+		if (!isDistance && reqPieces.length > 3) {
+			try {
+				departure = Double.parseDouble(reqPieces[3]);
+			} catch (NumberFormatException e) {
+				// not a time, so not a departure
+			}
+			if (!Double.isNaN(departure)) {
+				checkDeparture(departure);
+			}
+		}
+	}
+	
+	/**
+	 * Create trip request from already parsed values
+	 * @param start
+	 *    index of the start node
+	 * @param end
+	 *    index of the end node
+	 * @param isDistance
+	 *    true to optimize the trip by distance, false by time
+	 */
+	public TripRequest(int start, int end, boolean isDistance) {
+		this.start = start;
+		this.end = end;
+		this.isDistance = isDistance;
+	}
+
+	/**
+	 * Create trip request leaving at a given time
+	 * @param start
+	 *    index of the start node
+	 * @param end
+	 *    index of the end node
+	 * @param isDistance
+	 *    true to optimize the trip by distance, false by time
+	 * @param departure
+	 *    departure time in hours from midnight of the first day
+	 */
+	public TripRequest(int start, int end, boolean isDistance, double departure) {
+		this(start, end, isDistance);
+		this.departure = checkDeparture(departure);
+	}
+
+	// departure times count from midnight of the first day
+	private static double checkDeparture(double departure) {
+		if (!(departure >= 0) || Double.isInfinite(departure)) {
+			throw new IllegalArgumentException("departure time must be a time of day or later: " + departure);
+		}
+		return departure;
 	}
 	
 	/**
@@ -61,12 +116,34 @@ public class TripRequest {
 	public boolean isDistance() {
 		return isDistance;
 	}
+
+	/**
+	 * @return whether the trip has a departure time
+	 */
+	public boolean hasDeparture() {
+		return !Double.isNaN(departure);
+	}
+
+	/**
+	 * @return departure time in hours from midnight, NaN if the trip has none
+	 */
+	public double getDeparture() {
+		return departure;
+	}
+
+	/**
+	 * @return the metric the trip optimizes
+	 */
+	public Metric getMetric() {
+		return Metric.of(isDistance);
+	}
 	
 	/**
 	 * @return representation of trip as a string
 	 */
 	public String toString() {
 		return "Request going from "+start+" to "+end+" by "
-				+(isDistance ?"distance":"time");
+				+(isDistance ?"distance":"time")
+				+(hasDeparture() ? " leaving at "+departure : "");
 	}
 }
@@ -0,0 +1,16 @@
+package onTheRoad;
+
+/**
+ * Notified when a batch of weight updates made through LiveWeights is
+ * complete, so that anything derived from the weights (cached routes,
+ * customized hierarchies) can be brought up to date. Register with
+ * LiveWeights.addWeightListener.
+ */
+public interface WeightListener {
+	/**
+	 * Called after the weights of g have changed
+	 * @param g
+	 *            the graph whose weights changed, with a weight column per metric
+	 */
+	void weightsChanged(CompactDigraph g);
+}
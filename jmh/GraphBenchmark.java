@@ -0,0 +1,91 @@
+package onTheRoad;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the graph algorithms and the input parser, each on both
+ * graph representations where it has both, on the generated networks of
+ * Network in every size and shape. Searches go from one random vertex to
+ * another, a different pair each time.
+ * <p>
+ * Run with "gradle jmh", which adds "-prof gc" for the allocation per
+ * operation and the collections; "-PjmhArgs='...'" passes more JMH
+ * options, such as "GraphBenchmark.dijkstra -p size=10000".
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+	@Benchmark
+	public ShortestPathTree dijkstraAllPaths(Network n) {
+		return GraphAlgorithms.dijkstra(n.graph, n.vertex());
+	}
+
+	@Benchmark
+	public CompactShortestPathTree dijkstraAllPathsCompact(Network n) {
+		return GraphAlgorithms.dijkstra(n.compact, n.vertex());
+	}
+
+	@Benchmark
+	public double dijkstraCompact(Network n) {
+		GraphAlgorithms.dijkstra(n.compact, n.vertex(), n.ctx);
+		return n.ctx.getDist(n.vertex());
+	}
+
+	@Benchmark
+	public ArrayList<DirectedEdge> getShortestPath(Network n) {
+		return GraphAlgorithms.getShortestPath(n.graph, n.vertex(), n.vertex());
+	}
+
+	@Benchmark
+	public ArrayList<DirectedEdge> getShortestPathCompact(Network n) {
+		return GraphAlgorithms.getShortestPath(n.compact, n.vertex(), n.vertex(), n.ctx);
+	}
+
+	@Benchmark
+	public boolean breadthFirstSearch(Network n) {
+		GraphAlgorithms.breadthFirstSearch(n.graph, n.vertex());
+		return n.graph.isVisited(n.vertex());
+	}
+
+	@Benchmark
+	public int breadthFirstSearchCompact(Network n) {
+		return GraphAlgorithms.breadthFirstSearch(n.compact, n.vertex(), n.ctx);
+	}
+
+	@Benchmark
+	public boolean isStronglyConnected(Network n) {
+		return GraphAlgorithms.isStronglyConnected(n.graph);
+	}
+
+	@Benchmark
+	public boolean isStronglyConnectedCompact(Network n) {
+		return GraphAlgorithms.isStronglyConnected(n.compact);
+	}
+
+	@Benchmark
+	public EdgeWeightedDigraph graphEdgeReversal(Network n) {
+		return GraphAlgorithms.graphEdgeReversal(n.graph);
+	}
+
+	@Benchmark
+	public CompactDigraph graphEdgeReversalCompact(Network n) {
+		return GraphAlgorithms.graphEdgeReversal(n.compact);
+	}
+
+	@Benchmark
+	public FileParser fileParser(Network n) {
+		return new FileParser(n.file.toString());
+	}
+}
@@ -0,0 +1,138 @@
+package onTheRoad;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A generated road network shared by the benchmarks, in every form they
+ * need: the input file, an EdgeWeightedDigraph and a CompactDigraph by
+ * distance, and the search state and random sources they reuse.
+ * <p>
+ * "grid" is a square grid of two-way streets, about one block in twenty
+ * missing; "random" is a cycle through all vertices plus three random
+ * one-way roads from each, strongly connected and of small diameter.
+ * Blocks are 0.1 to 1 mile long, with speeds of 25 to 40 mph. The same
+ * size and shape give the same network on every run.
+ * <p>
+ * The EdgeWeightedDigraph keeps its search state in the graph, so the
+ * benchmarks run on one thread.
+ */
+@State(Scope.Benchmark)
+public class Network {
+	/**
+	 * Number of vertices, rounded to a square for grids
+	 */
+	@Param({ "10000", "250000" })
+	public int size;
+
+	/**
+	 * grid or random
+	 */
+	@Param({ "grid", "random" })
+	public String shape;
+
+	Path file;
+	EdgeWeightedDigraph graph;
+	CompactDigraph compact;
+	SearchContext ctx;
+
+	// random vertices the searches start and end at; a power of two of them
+	private final int[] vertices = new int[1024];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Random random = new Random(42);
+		List<int[]> ends = new ArrayList<int[]>();
+		List<double[]> values = new ArrayList<double[]>();
+		int V;
+		if (shape.equals("grid")) {
+			int side = Math.max(2, (int) Math.round(Math.sqrt(size)));
+			V = side * side;
+			for (int r = 0; r < side; r++) {
+				for (int c = 0; c < side; c++) {
+					int v = r * side + c;
+					if (c + 1 < side && random.nextInt(20) != 0) {
+						twoWay(v, v + 1, random, ends, values);
+					}
+					if (r + 1 < side && random.nextInt(20) != 0) {
+						twoWay(v, v + side, random, ends, values);
+					}
+				}
+			}
+		} else if (shape.equals("random")) {
+			V = size;
+			for (int v = 0; v < V; v++) {
+				// a cycle through all vertices keeps the graph strongly connected
+				ends.add(new int[] { v, (v + 1) % V });
+				values.add(block(random));
+				for (int k = 0; k < 3; k++) {
+					ends.add(new int[] { v, random.nextInt(V) });
+					values.add(block(random));
+				}
+			}
+		} else {
+			throw new IllegalArgumentException("unknown shape " + shape);
+		}
+
+		// the network as an input file, read back for the graphs
+		file = Files.createTempFile("benchmark-" + shape + "-", ".txt");
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, Charset.defaultCharset()))) {
+			out.println("# " + shape + " benchmark network");
+			out.println(V);
+			for (int v = 0; v < V; v++) {
+				out.println("Intersection " + v);
+			}
+			out.println(ends.size());
+			for (int i = 0; i < ends.size(); i++) {
+				out.println(ends.get(i)[0] + " " + ends.get(i)[1] + " " + values.get(i)[0] + " " + values.get(i)[1]);
+			}
+			out.println(0);
+		}
+		FileParser fp = new FileParser(file.toString());
+		graph = fp.makeGraph(true);
+		compact = fp.makeCompactGraph(true);
+		ctx = new SearchContext(V);
+		for (int i = 0; i < vertices.length; i++) {
+			vertices[i] = random.nextInt(V);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * @return the next of the random vertices, each call another
+	 */
+	int vertex() {
+		return vertices[next++ & (vertices.length - 1)];
+	}
+
+	// distance in miles and speed in mph of a block
+	private static double[] block(Random random) {
+		return new double[] { 0.1 + 0.9 * random.nextDouble(), 25 + 15 * random.nextDouble() };
+	}
+
+	private static void twoWay(int v, int w, Random random, List<int[]> ends, List<double[]> values) {
+		double[] block = block(random);
+		ends.add(new int[] { v, w });
+		values.add(block);
+		ends.add(new int[] { w, v });
+		values.add(block);
+	}
+}
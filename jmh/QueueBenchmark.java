@@ -0,0 +1,184 @@
+package onTheRoad;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the priority queues on the networks of Network: IndexMinPQ of
+ * Double against DoubleIndexMinPQ of a few arities, first on their own (a
+ * key per vertex inserted, half of them decreased, then all deleted) and
+ * then in Dijkstra's algorithm from a random source; then the queue
+ * strategies on the network quantized to hundredths of a mile.
+ * <p>
+ * Run with "gradle jmh -PjmhArgs=QueueBenchmark".
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+	/**
+	 * A random key per vertex of the network, and an IndexMinPQ of Double
+	 */
+	@State(Scope.Benchmark)
+	public static class Queues {
+		double[] keys;
+		double[] distTo;
+		IndexMinPQ<Double> boxed;
+
+		@Setup(Level.Trial)
+		public void setUp(Network n) {
+			int V = n.compact.V();
+			Random random = new Random(7);
+			keys = new double[V];
+			for (int i = 0; i < V; i++) {
+				keys[i] = random.nextDouble();
+			}
+			distTo = new double[V];
+			boxed = new IndexMinPQ<Double>(V);
+		}
+	}
+
+	/**
+	 * A DoubleIndexMinPQ of the given arity
+	 */
+	@State(Scope.Benchmark)
+	public static class Heap {
+		@Param({ "2", "4", "8" })
+		public int arity;
+
+		DoubleIndexMinPQ pq;
+
+		@Setup(Level.Trial)
+		public void setUp(Network n) {
+			pq = new DoubleIndexMinPQ(n.compact.V(), arity);
+		}
+	}
+
+	/**
+	 * The network quantized, and a search context for the strategy
+	 */
+	@State(Scope.Benchmark)
+	public static class Quantized {
+		@Param({ "HEAP", "DIAL", "RADIX" })
+		public QueueStrategy strategy;
+
+		CompactDigraph graph;
+		SearchContext ctx;
+
+		@Setup(Level.Trial)
+		public void setUp(Network n) {
+			graph = n.compact.quantize(100);
+			ctx = new SearchContext(graph.V());
+		}
+	}
+
+	@Benchmark
+	public int indexMinPQ(Queues q) {
+		IndexMinPQ<Double> pq = q.boxed;
+		double[] keys = q.keys;
+		for (int k = 0; k < keys.length; k++) {
+			pq.insert(k, keys[k]);
+		}
+		for (int k = 0; k < keys.length; k += 2) {
+			pq.decreaseKey(k, keys[k] / 2);
+		}
+		int last = 0;
+		while (!pq.isEmpty()) {
+			last = pq.delMin();
+		}
+		return last;
+	}
+
+	@Benchmark
+	public int doubleIndexMinPQ(Queues q, Heap h) {
+		DoubleIndexMinPQ pq = h.pq;
+		double[] keys = q.keys;
+		for (int k = 0; k < keys.length; k++) {
+			pq.insert(k, keys[k]);
+		}
+		for (int k = 0; k < keys.length; k += 2) {
+			pq.decreaseKey(k, keys[k] / 2);
+		}
+		int last = 0;
+		while (!pq.isEmpty()) {
+			last = pq.delMin();
+		}
+		return last;
+	}
+
+	@Benchmark
+	public double dijkstraIndexMinPQ(Network n, Queues q) {
+		return dijkstra(n.compact, n.vertex(), q.distTo, q.boxed)[n.vertex()];
+	}
+
+	@Benchmark
+	public double dijkstraDoubleIndexMinPQ(Network n, Queues q, Heap h) {
+		return dijkstra(n.compact, n.vertex(), q.distTo, h.pq)[n.vertex()];
+	}
+
+	@Benchmark
+	public double dijkstraStrategy(Network n, Quantized q) {
+		GraphAlgorithms.dijkstra(q.graph, n.vertex(), q.strategy, q.ctx);
+		return q.ctx.getDist(n.vertex());
+	}
+
+	private static double[] dijkstra(CompactDigraph g, int s, double[] distTo, IndexMinPQ<Double> pq) {
+		Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+		distTo[s] = 0.0;
+		pq.insert(s, 0.0);
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				int w = g.target(e);
+				double newDist = distTo[v] + g.weight(e);
+				if (distTo[w] > newDist) {
+					distTo[w] = newDist;
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, newDist);
+					} else {
+						pq.insert(w, newDist);
+					}
+				}
+			}
+		}
+		return distTo;
+	}
+
+	private static double[] dijkstra(CompactDigraph g, int s, double[] distTo, DoubleIndexMinPQ pq) {
+		Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+		distTo[s] = 0.0;
+		pq.insert(s, 0.0);
+		while (!pq.isEmpty()) {
+			int v = pq.delMin();
+			for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+				int w = g.target(e);
+				double newDist = distTo[v] + g.weight(e);
+				if (distTo[w] > newDist) {
+					distTo[w] = newDist;
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, newDist);
+					} else {
+						pq.insert(w, newDist);
+					}
+				}
+			}
+		}
+		return distTo;
+	}
+}